@@ -1,13 +1,17 @@
 package org.plumelib.util;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.StringJoiner;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.lock.qual.GuardSatisfied;
 import org.checkerframework.checker.nullness.qual.KeyForBottom;
+import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.nullness.qual.PolyNull;
 import org.checkerframework.checker.signedness.qual.PolySigned;
@@ -17,7 +21,10 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 
 /**
  * Base class for arbitrary-size sets that is very efficient (more efficient than HashSet) for 0 and
- * 1 elements.
+ * 1 elements, and compact for up to {@link #SMALL_CAPACITY} elements.
+ *
+ * <p>A set with 2 through {@link #SMALL_CAPACITY} elements stores them in an array, which it
+ * searches linearly, as {@link ArraySet} does. A larger set stores its elements in a hash set.
  *
  * <p>Does not support storing {@code null}.
  *
@@ -34,16 +41,30 @@ public abstract class AbstractMostlySingletonSet<T extends @Signed Object> imple
     EMPTY,
     /** A singleton set. */
     SINGLETON,
+    /** A set of at most {@link #SMALL_CAPACITY} elements, stored in an array. */
+    SMALL,
     /** A set of arbitrary size. */
     ANY
   }
 
+  /** The maximum number of elements in a set whose state is SMALL. */
+  public static final int SMALL_CAPACITY = 8;
+
   /** The current state. */
   protected State state;
 
   /** The current value, non-null when the state is SINGLETON. */
   protected @Nullable T value;
 
+  /**
+   * The elements, non-null when the state is SMALL. Only the first {@link #smallSize} are used, and
+   * the rest are null.
+   */
+  protected @Nullable T @Nullable [] smallElements;
+
+  /** The number of elements in {@link #smallElements}, when the state is SMALL. */
+  protected @NonNegative int smallSize;
+
   /** The wrapped set, non-null when the state is ANY. */
   protected @Nullable Set<T> set;
 
@@ -68,21 +89,162 @@ public abstract class AbstractMostlySingletonSet<T extends @Signed Object> imple
     this.value = v;
   }
 
+  /**
+   * Returns true if the given element of this set is the same as the given object, according to
+   * the equality that this set uses.
+   *
+   * @param element an element of this set
+   * @param o an object
+   * @return true if {@code element} and {@code o} are the same according to this set
+   */
+  protected abstract boolean isSame(T element, @GuardSatisfied @UnknownSignedness Object o);
+
+  /**
+   * Returns a new, empty set that uses the same equality as this set, for the ANY state.
+   *
+   * @param capacity the number of elements the new set should hold without growing
+   * @return a new, empty set that uses the same equality as this set
+   */
+  protected abstract Set<T> newLargeSet(int capacity);
+
   /** Throws an exception if the internal representation is corrupted. */
   protected void checkRep() {
+    boolean smallOk =
+        (state == State.SMALL)
+            == (smallElements != null
+                && smallSize <= smallElements.length
+                && smallElements.length <= SMALL_CAPACITY);
     if ((state == State.EMPTY && (value != null || set != null))
         || (state == State.SINGLETON && (value == null || set != null))
-        || (state == State.ANY && (value != null || set == null))) {
+        || (state == State.SMALL && (value != null || set != null))
+        || (state == State.ANY && (value != null || set == null))
+        || !smallOk) {
       throw new IllegalStateException(
-          String.format("Bad set: state=%s, value=%s, set=%s", state, value, set));
+          String.format(
+              "Bad set: state=%s, value=%s, smallElements=%s, smallSize=%d, set=%s",
+              state, value, Arrays.toString(smallElements), smallSize, set));
     }
   }
 
+  @Override
+  public boolean add(@GuardSatisfied AbstractMostlySingletonSet<T> this, T e) {
+    return switch (state) {
+      case EMPTY -> {
+        state = State.SINGLETON;
+        value = e;
+        yield true;
+      }
+      case SINGLETON -> {
+        assert value != null : "@AssumeAssertion(nullness): SINGLETON => value != null";
+        if (isSame(value, e)) {
+          yield false;
+        }
+        makeSmall();
+        yield addSmall(e);
+      }
+      case SMALL -> addSmall(e);
+      case ANY -> {
+        assert set != null : "@AssumeAssertion(nullness): ANY => set != null";
+        yield set.add(e);
+      }
+      default -> throw new IllegalStateException("Unhandled state " + state);
+    };
+  }
+
+  /** Switches the representation of this from SINGLETON to SMALL. */
+  @SuppressWarnings("unchecked") // generic array cast
+  private void makeSmall(@GuardSatisfied AbstractMostlySingletonSet<T> this) {
+    assert value != null : "@AssumeAssertion(nullness): SINGLETON => value != null";
+    state = State.SMALL;
+    smallElements = (T[]) new Object[4];
+    smallElements[0] = value;
+    smallSize = 1;
+    value = null;
+  }
+
+  /**
+   * Adds an element to a set whose state is SMALL. Switches the representation to ANY if the
+   * array is full.
+   *
+   * @param e the element to add
+   * @return true if this set was modified
+   */
+  private boolean addSmall(@GuardSatisfied AbstractMostlySingletonSet<T> this, T e) {
+    assert smallElements != null : "@AssumeAssertion(nullness): SMALL => smallElements != null";
+    if (indexOfSmall(e) != -1) {
+      return false;
+    }
+    if (smallSize == smallElements.length) {
+      if (smallSize < SMALL_CAPACITY) {
+        smallElements = Arrays.copyOf(smallElements, SMALL_CAPACITY);
+      } else {
+        makeAny();
+        assert set != null : "@AssumeAssertion(nullness): set != null after makeAny";
+        return set.add(e);
+      }
+    }
+    smallElements[smallSize++] = e;
+    return true;
+  }
+
+  /** Switches the representation of this from SMALL to ANY. */
+  private void makeAny(@GuardSatisfied AbstractMostlySingletonSet<T> this) {
+    assert smallElements != null : "@AssumeAssertion(nullness): SMALL => smallElements != null";
+    Set<T> newSet = newLargeSet(smallSize + 1);
+    for (int i = 0; i < smallSize; i++) {
+      newSet.add(smallElements[i]);
+    }
+    state = State.ANY;
+    set = newSet;
+    smallElements = null;
+    smallSize = 0;
+  }
+
+  /**
+   * Returns the index of the given object in {@link #smallElements}, or -1 if it does not appear.
+   *
+   * @param o an object
+   * @return the index of {@code o} in {@link #smallElements}, or -1 if it does not appear
+   */
+  private int indexOfSmall(
+      @GuardSatisfied AbstractMostlySingletonSet<T> this,
+      @GuardSatisfied @UnknownSignedness Object o) {
+    assert smallElements != null : "@AssumeAssertion(nullness): SMALL => smallElements != null";
+    for (int i = 0; i < smallSize; i++) {
+      @SuppressWarnings("nullness:assignment") // elements below smallSize are non-null
+      @NonNull T element = smallElements[i];
+      if (isSame(element, o)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean contains(
+      @GuardSatisfied AbstractMostlySingletonSet<T> this,
+      @GuardSatisfied @UnknownSignedness Object o) {
+    return switch (state) {
+      case EMPTY -> false;
+      case SINGLETON -> {
+        assert value != null : "@AssumeAssertion(nullness): SINGLETON => value != null";
+        yield isSame(value, o);
+      }
+      case SMALL -> indexOfSmall(o) != -1;
+      case ANY -> {
+        assert set != null : "@AssumeAssertion(nullness): set initialized before";
+        yield set.contains(o);
+      }
+      default -> throw new IllegalStateException("Unhandled state " + state);
+    };
+  }
+
   @Override
   public @NonNegative int size(@GuardSatisfied AbstractMostlySingletonSet<T> this) {
     return switch (state) {
       case EMPTY -> 0;
       case SINGLETON -> 1;
+      case SMALL -> smallSize;
       case ANY -> {
         assert set != null : "@AssumeAssertion(nullness): set initialized before";
         yield set.size();
@@ -105,6 +267,7 @@ public abstract class AbstractMostlySingletonSet<T extends @Signed Object> imple
     return switch (state) {
       case EMPTY -> Collections.emptyIterator();
       case SINGLETON -> new SingletonIterator();
+      case SMALL -> new SmallIterator();
       case ANY -> {
         assert set != null : "@AssumeAssertion(nullness): set initialized before";
         yield set.iterator();
@@ -146,11 +309,74 @@ public abstract class AbstractMostlySingletonSet<T extends @Signed Object> imple
     }
   }
 
+  /** An iterator over a set that is in the {@link State#SMALL} state. */
+  @SuppressWarnings("lock:override.receiver") // cannot specify the receiver type
+  private class SmallIterator implements Iterator<T> {
+    /** The index in {@link #smallElements} of the next element to return. */
+    private @NonNegative int index = 0;
+
+    /** True if remove() has been called since the last call to next(). */
+    private boolean removed = true;
+
+    /** The array that this iterates over, for fail-fast. */
+    private final @Nullable T @Nullable [] elements = smallElements;
+
+    /** Creates a SmallIterator. */
+    public SmallIterator() {}
+
+    @Override
+    public boolean hasNext() {
+      return index < smallSize;
+    }
+
+    @Override
+    public T next() {
+      if (elements != smallElements) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      removed = false;
+      assert elements != null : "@AssumeAssertion(nullness): SMALL => smallElements != null";
+      @SuppressWarnings("nullness:assignment") // elements below smallSize are non-null
+      @NonNull T result = elements[index++];
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      if (removed) {
+        throw new IllegalStateException(
+            "Called remove() on SmallIterator without calling next() first.");
+      }
+      if (elements != smallElements) {
+        throw new ConcurrentModificationException();
+      }
+      assert elements != null : "@AssumeAssertion(nullness): SMALL => smallElements != null";
+      @SuppressWarnings("lowerbound:assignment") // removed==false, so index>0.
+      @NonNegative int newIndex = index - 1;
+      index = newIndex;
+      System.arraycopy(elements, index + 1, elements, index, smallSize - index - 1);
+      smallSize--;
+      elements[smallSize] = null;
+      removed = true;
+    }
+  }
+
   @Override
   public String toString(@GuardSatisfied AbstractMostlySingletonSet<T> this) {
     return switch (state) {
       case EMPTY -> "[]";
       case SINGLETON -> "[" + value + "]";
+      case SMALL -> {
+        assert smallElements != null : "@AssumeAssertion(nullness): SMALL => smallElements != null";
+        StringJoiner result = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < smallSize; i++) {
+          result.add(String.valueOf(smallElements[i]));
+        }
+        yield result.toString();
+      }
       case ANY -> {
         assert set != null : "@AssumeAssertion(nullness): set initialized before";
         yield set.toString();
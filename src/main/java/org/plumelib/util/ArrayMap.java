@@ -1,5 +1,10 @@
 package org.plumelib.util;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
@@ -73,17 +78,23 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
   "nullness" // temporary; nullness is tricky because of null-padded arrays
 })
 public class ArrayMap<K extends @UnknownSignedness Object, V extends @UnknownSignedness Object>
-    extends AbstractMap<K, V> implements Cloneable {
+    extends AbstractMap<K, V> implements Cloneable, Serializable {
+
+  /** Unique identifier for serialization. If you add or remove fields, change this number. */
+  private static final long serialVersionUID = 20261019L;
 
   // An alternate internal representation would be a list of Map.Entry objects (e.g.,
   // AbstractMap.SimpleEntry) instead of two arrays for keys and values.  That is a bad idea
   // because it both uses more memory and makes some operations more expensive.
 
+  // The keys and values are serialized by writeObject() rather than by default serialization, so
+  // that unused capacity is not written.
+
   /** The keys. Null if capacity=0. */
-  private @Nullable K @Nullable @SameLen("values") [] keys;
+  private transient @Nullable K @Nullable @SameLen("values") [] keys;
 
   /** The values. Null if capacity=0. */
-  private @Nullable V @Nullable @SameLen("keys") [] values;
+  private transient @Nullable V @Nullable @SameLen("keys") [] values;
 
   /** The number of used mappings in the representation of this. */
   private @NonNegative @LessThan("keys.length + 1") @IndexOrHigh({"keys", "values"}) int size = 0;
@@ -482,7 +493,7 @@ public class ArrayMap<K extends @UnknownSignedness Object, V extends @UnknownSig
   // Views
 
   /** A view of the keys. */
-  @MonotonicNonNull Set<@KeyFor("this") K> keySet = null;
+  transient @MonotonicNonNull Set<@KeyFor("this") K> keySet = null;
 
   // Behavior is undefined if the map is changed while the sets are being iterated through, so these
   // implementations can assume there are no concurrent side effects.
@@ -581,7 +592,7 @@ public class ArrayMap<K extends @UnknownSignedness Object, V extends @UnknownSig
   }
 
   /** The view of the values. */
-  @MonotonicNonNull Collection<V> valuesCollection = null;
+  transient @MonotonicNonNull Collection<V> valuesCollection = null;
 
   @Pure
   @SuppressWarnings("allcheckers:purity")
@@ -672,7 +683,7 @@ public class ArrayMap<K extends @UnknownSignedness Object, V extends @UnknownSig
   }
 
   /** The view of the entries. */
-  @MonotonicNonNull Set<Map.Entry<@KeyFor("this") K, V>> entrySet = null;
+  transient @MonotonicNonNull Set<Map.Entry<@KeyFor("this") K, V>> entrySet = null;
 
   @SuppressWarnings("allcheckers:purity")
   @Pure
@@ -1196,6 +1207,47 @@ public class ArrayMap<K extends @UnknownSignedness Object, V extends @UnknownSig
     }
   }
 
+  /**
+   * Writes this map to a stream: its size, then each key followed by its value. Unused capacity is
+   * not written.
+   *
+   * @param out the stream to write to
+   * @throws IOException if there is trouble writing
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    for (int i = 0; i < size; i++) {
+      out.writeObject(keys[i]);
+      out.writeObject(values[i]);
+    }
+  }
+
+  /**
+   * Reads a map that was written by {@link #writeObject}. The capacity of the result is its size.
+   *
+   * @param in the stream to read from
+   * @throws IOException if there is trouble reading
+   * @throws ClassNotFoundException if the class of a key or value cannot be found
+   */
+  @SuppressWarnings("unchecked") // generic array cast; deserialization
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    if (size < 0) {
+      throw new InvalidObjectException("negative size: " + size);
+    }
+    if (size == 0) {
+      keys = null;
+      values = null;
+      return;
+    }
+    keys = (K[]) new Object[size];
+    values = (V[]) new Object[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = (K) in.readObject();
+      values[i] = (V) in.readObject();
+    }
+  }
+
   /**
    * Returns the internal representation, printed.
    *
@@ -1,5 +1,10 @@
 package org.plumelib.util;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
@@ -59,10 +64,16 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
   "lock" // not yet annotated for the Lock Checker
 })
 public class ArraySet<E extends @UnknownSignedness @Nullable Object> extends AbstractSet<E>
-    implements Cloneable {
+    implements Cloneable, Serializable {
+
+  /** Unique identifier for serialization. If you add or remove fields, change this number. */
+  private static final long serialVersionUID = 20261019L;
+
+  // The values are serialized by writeObject() rather than by default serialization, so that
+  // unused capacity is not written.
 
   /** The values. Null if capacity=0. */
-  private @Nullable E @MonotonicNonNull [] values;
+  private transient @Nullable E @MonotonicNonNull [] values;
 
   /** The number of used slots in the representation of this. */
   private @NonNegative @LessThan("values.length + 1") @IndexOrHigh({"values"}) int size = 0;
@@ -484,6 +495,41 @@ public class ArraySet<E extends @UnknownSignedness @Nullable Object> extends Abs
     }
   }
 
+  /**
+   * Writes this set to a stream: its size, then its elements. Unused capacity is not written.
+   *
+   * @param out the stream to write to
+   * @throws IOException if there is trouble writing
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    for (int i = 0; i < size; i++) {
+      out.writeObject(values[i]);
+    }
+  }
+
+  /**
+   * Reads a set that was written by {@link #writeObject}. The capacity of the result is its size.
+   *
+   * @param in the stream to read from
+   * @throws IOException if there is trouble reading
+   * @throws ClassNotFoundException if the class of an element cannot be found
+   */
+  @SuppressWarnings("unchecked") // generic array cast; deserialization
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    if (size < 0) {
+      throw new InvalidObjectException("negative size: " + size);
+    }
+    if (size == 0) {
+      return;
+    }
+    values = (E[]) new Object[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = (E) in.readObject();
+    }
+  }
+
   // Extra methods, not specified by `Set`.
 
   /**
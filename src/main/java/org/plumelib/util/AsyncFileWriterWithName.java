@@ -0,0 +1,503 @@
+package org.plumelib.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.lock.qual.GuardedByUnknown;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.qual.Pure;
+
+/**
+ * Like {@link FileWriterWithName}, but writes to the file on a separate thread, so that the client
+ * rarely waits for the file system.
+ *
+ * <p>Characters written to an AsyncFileWriterWithName are collected in a buffer. When the buffer
+ * is full, it is handed to a background thread that writes it to the file, and the client
+ * continues with another buffer. There is a fixed number of buffers, which the client and the
+ * background thread pass back and forth; the client waits only when all of them are waiting to be
+ * written. The background thread writes all the buffers that are ready before it flushes the file,
+ * so that a burst of output becomes a few large writes.
+ *
+ * <p>{@link #flush} and {@link #close} wait until everything written so far has reached the file.
+ * If the background thread encounters an error, the next call to {@code write}, {@code flush}, or
+ * {@code close} throws an {@code IOException} whose cause is that error, and all later output is
+ * discarded.
+ *
+ * <p>An AsyncFileWriterWithName must be closed, to stop its thread. Like other {@code Writer}s, it
+ * is safe for use by multiple threads.
+ */
+public final class AsyncFileWriterWithName extends Writer {
+
+  /** The default size of each buffer, in characters. */
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  /** The default number of buffers. */
+  public static final int DEFAULT_BUFFERS = 4;
+
+  /**
+   * A unit of work for the background thread.
+   *
+   * @param data characters to write, or null if this is only a barrier
+   * @param length the number of characters of {@code data} to write
+   * @param barrier if non-null, the background thread flushes the file (and closes it, if {@code
+   *     close} is true) and then counts this down
+   * @param close if true, the background thread closes the file and exits
+   */
+  private static record Task(
+      char @Nullable [] data, int length, @Nullable CountDownLatch barrier, boolean close) {}
+
+  /** The file being written by this. */
+  private final String fileName;
+
+  /** The underlying writer, which is used only by {@link #writerThread}. */
+  private final FileWriter out;
+
+  /** The size of each buffer. */
+  private final @Positive int bufferSize;
+
+  /** Work for the background thread, in order. */
+  private final BlockingQueue<Task> tasks;
+
+  /** Buffers that are available to the client. */
+  private final BlockingQueue<char[]> freeBuffers;
+
+  /** The thread that writes to the file. */
+  private final Thread writerThread;
+
+  /** The buffer currently being filled by the client, or null if none. */
+  private char @Nullable [] buffer = null;
+
+  /** The number of characters in {@link #buffer}. */
+  private int bufferLength = 0;
+
+  /** The first error encountered by the background thread, or null if none. */
+  private volatile @Nullable IOException error = null;
+
+  /** True if this writer has been closed. */
+  private boolean closed = false;
+
+  /**
+   * Constructs an AsyncFileWriterWithName given a file name.
+   *
+   * @param fileName the system-dependent filename
+   * @throws IOException if the named file exists but is a directory rather than a regular file,
+   *     does not exist but cannot be created, or cannot be opened for any other reason
+   */
+  public AsyncFileWriterWithName(String fileName) throws IOException {
+    this(fileName, false);
+  }
+
+  /**
+   * Constructs an AsyncFileWriterWithName given a file name with a boolean indicating whether or
+   * not to append the data written.
+   *
+   * @param fileName the system-dependent filename
+   * @param append boolean if {@code true}, then data will be written to the end of the file rather
+   *     than the beginning
+   * @throws IOException if the named file exists but is a directory rather than a regular file,
+   *     does not exist but cannot be created, or cannot be opened for any other reason
+   */
+  public AsyncFileWriterWithName(String fileName, boolean append) throws IOException {
+    this(new FileWriter(fileName, append), fileName, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+  }
+
+  /**
+   * Constructs an AsyncFileWriterWithName given a File object.
+   *
+   * @param file a File object to write to
+   * @throws IOException if the file exists but is a directory rather than a regular file, does not
+   *     exist but cannot be created, or cannot be opened for any other reason
+   */
+  public AsyncFileWriterWithName(File file) throws IOException {
+    this(file, false);
+  }
+
+  /**
+   * Constructs an AsyncFileWriterWithName given a File object. If the second argument is {@code
+   * true}, then characters will be written to the end of the file rather than the beginning.
+   *
+   * @param file a File object to write to
+   * @param append if {@code true}, then characters will be written to the end of the file rather
+   *     than the beginning
+   * @throws IOException if the file exists but is a directory rather than a regular file, does not
+   *     exist but cannot be created, or cannot be opened for any other reason
+   */
+  public AsyncFileWriterWithName(File file, boolean append) throws IOException {
+    this(file, append, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+  }
+
+  /**
+   * Constructs an AsyncFileWriterWithName given a File object and the sizes of its buffers.
+   *
+   * @param file a File object to write to
+   * @param append if {@code true}, then characters will be written to the end of the file rather
+   *     than the beginning
+   * @param bufferSize the size of each buffer, in characters
+   * @param buffers the number of buffers; the client waits only when this many buffers are waiting
+   *     to be written
+   * @throws IOException if the file exists but is a directory rather than a regular file, does not
+   *     exist but cannot be created, or cannot be opened for any other reason
+   */
+  public AsyncFileWriterWithName(
+      File file, boolean append, @Positive int bufferSize, @Positive int buffers)
+      throws IOException {
+    this(new FileWriter(file, append), file.getAbsolutePath(), bufferSize, buffers);
+  }
+
+  /**
+   * Constructs an AsyncFileWriterWithName that writes to the given writer.
+   *
+   * @param out the writer for the file
+   * @param fileName the name of the file
+   * @param bufferSize the size of each buffer, in characters
+   * @param buffers the number of buffers
+   */
+  @SuppressWarnings("this-escape") // the thread is started after all fields are set
+  private AsyncFileWriterWithName(
+      FileWriter out, String fileName, @Positive int bufferSize, @Positive int buffers) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    if (buffers < 1) {
+      throw new IllegalArgumentException("buffers must be positive: " + buffers);
+    }
+    this.out = out;
+    this.fileName = fileName;
+    this.bufferSize = bufferSize;
+    // Room for every buffer, plus a barrier.
+    this.tasks = new ArrayBlockingQueue<>(buffers + 1);
+    this.freeBuffers = new ArrayBlockingQueue<>(buffers);
+    for (int i = 0; i < buffers; i++) {
+      freeBuffers.add(new char[bufferSize]);
+    }
+    this.writerThread = new Thread(this::writeTasks, "AsyncFileWriterWithName " + fileName);
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * Returns the name of the file being written by this.
+   *
+   * @return the name of the file being written by this
+   */
+  @SuppressWarnings(
+      "lock:lock.not.held") // Lock Checker bug? fileName is final, no lock is needed to access it
+  @Pure
+  public String getFileName(@GuardedByUnknown AsyncFileWriterWithName this) {
+    return fileName;
+  }
+
+  /**
+   * Returns the name of the file being written by this.
+   *
+   * @return the name of the file being written by this
+   */
+  @Pure
+  @Override
+  public String toString(@GuardedByUnknown AsyncFileWriterWithName this) {
+    return getFileName();
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Client side
+  //
+
+  @Override
+  public void write(int c) throws IOException {
+    synchronized (lock) {
+      char[] buf = currentBuffer();
+      buf[bufferLength++] = (char) c;
+      if (bufferLength == bufferSize) {
+        submitBuffer();
+      }
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    if ((off | len | (cbuf.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    synchronized (lock) {
+      while (len > 0) {
+        char[] buf = currentBuffer();
+        int n = Math.min(len, bufferSize - bufferLength);
+        System.arraycopy(cbuf, off, buf, bufferLength, n);
+        bufferLength += n;
+        off += n;
+        len -= n;
+        if (bufferLength == bufferSize) {
+          submitBuffer();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    if ((off | len | (str.length() - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    synchronized (lock) {
+      while (len > 0) {
+        char[] buf = currentBuffer();
+        int n = Math.min(len, bufferSize - bufferLength);
+        str.getChars(off, off + n, buf, bufferLength);
+        bufferLength += n;
+        off += n;
+        len -= n;
+        if (bufferLength == bufferSize) {
+          submitBuffer();
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits until everything written so far has been written to the file, and the file has been
+   * flushed.
+   *
+   * @throws IOException if this writer is closed, or the background thread encountered an error
+   */
+  @Override
+  public void flush() throws IOException {
+    synchronized (lock) {
+      ensureOpen();
+      CountDownLatch barrier = new CountDownLatch(1);
+      submitBuffer();
+      putTask(new Task(null, 0, barrier, false));
+      awaitBarrier(barrier);
+    }
+  }
+
+  /**
+   * Writes everything written so far to the file, closes the file, and stops the background
+   * thread. Has no effect if this writer is already closed.
+   *
+   * <p>If the calling thread is interrupted, this throws {@code InterruptedIOException} without
+   * waiting, but the background thread still writes everything, closes the file, and stops.
+   *
+   * @throws IOException if the background thread encountered an error, or if interrupted
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      // Hand over the close task even if interrupted, because a later call to close() does nothing.
+      boolean interrupted = false;
+      char[] buf = buffer;
+      if (buf != null) {
+        buffer = null;
+        interrupted = putTaskUninterruptibly(new Task(buf, bufferLength, null, false));
+        bufferLength = 0;
+      }
+      CountDownLatch barrier = new CountDownLatch(1);
+      interrupted |= putTaskUninterruptibly(new Task(null, 0, barrier, true));
+      closed = true;
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while closing " + fileName);
+      }
+      awaitBarrier(barrier);
+      try {
+        writerThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns the buffer that the client is filling, first obtaining one if necessary.
+   *
+   * @return the buffer that the client is filling, which has room for at least one character
+   * @throws IOException if this writer is closed, or the background thread encountered an error
+   */
+  private char[] currentBuffer() throws IOException {
+    ensureOpen();
+    char[] buf = buffer;
+    if (buf == null) {
+      try {
+        buf = freeBuffers.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while writing " + fileName);
+      }
+      buffer = buf;
+      bufferLength = 0;
+    }
+    return buf;
+  }
+
+  /**
+   * Hands the current buffer, if any, to the background thread.
+   *
+   * @throws IOException if interrupted
+   */
+  private void submitBuffer() throws IOException {
+    char[] buf = buffer;
+    if (buf == null) {
+      return;
+    }
+    buffer = null;
+    putTask(new Task(buf, bufferLength, null, false));
+    bufferLength = 0;
+  }
+
+  /**
+   * Waits for the background thread to reach the given barrier, and reports any error that the
+   * background thread encountered.
+   *
+   * @param barrier a barrier that has been handed to the background thread
+   * @throws IOException if the background thread encountered an error, or if interrupted
+   */
+  private void awaitBarrier(CountDownLatch barrier) throws IOException {
+    try {
+      barrier.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while flushing " + fileName);
+    }
+    checkError();
+  }
+
+  /**
+   * Adds a task to the queue, waiting for room if necessary.
+   *
+   * @param task the task
+   * @throws InterruptedIOException if interrupted
+   */
+  private void putTask(Task task) throws InterruptedIOException {
+    try {
+      tasks.put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while writing " + fileName);
+    }
+  }
+
+  /**
+   * Adds a task to the queue, waiting for room if necessary, even if interrupted. This does not
+   * wait forever, because the background thread keeps taking tasks until it is told to close.
+   *
+   * @param task the task
+   * @return true if the calling thread was interrupted
+   */
+  private boolean putTaskUninterruptibly(Task task) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        tasks.put(task);
+        return interrupted;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+  }
+
+  /**
+   * Throws an exception if this writer is closed or the background thread encountered an error.
+   *
+   * @throws IOException if this writer is closed or the background thread encountered an error
+   */
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed: " + fileName);
+    }
+    checkError();
+  }
+
+  /**
+   * Throws an exception if the background thread encountered an error.
+   *
+   * @throws IOException if the background thread encountered an error
+   */
+  private void checkError() throws IOException {
+    IOException e = error;
+    if (e != null) {
+      throw new IOException("Problem writing " + fileName, e);
+    }
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Background thread
+  //
+
+  /**
+   * Performs tasks until a task says to close the file. Runs on {@link #writerThread}. Flushes the
+   * file whenever no task is waiting, so that a burst of writes is flushed once.
+   */
+  private void writeTasks() {
+    boolean dirty = false;
+    while (true) {
+      Task task = tasks.poll();
+      if (task == null) {
+        if (dirty) {
+          try {
+            out.flush();
+          } catch (IOException e) {
+            recordError(e);
+          }
+          dirty = false;
+        }
+        try {
+          task = tasks.take();
+        } catch (InterruptedException e) {
+          // Nothing interrupts this thread, but if something does, keep going: the client is
+          // waiting for its tasks to be performed.
+          continue;
+        }
+      }
+
+      char[] data = task.data();
+      if (data != null) {
+        if (error == null) {
+          try {
+            out.write(data, 0, task.length());
+            dirty = true;
+          } catch (IOException e) {
+            recordError(e);
+          }
+        }
+        freeBuffers.add(data);
+      }
+
+      CountDownLatch barrier = task.barrier();
+      if (barrier != null) {
+        try {
+          if (task.close()) {
+            out.close();
+          } else if (error == null) {
+            out.flush();
+          }
+        } catch (IOException e) {
+          recordError(e);
+        }
+        dirty = false;
+        barrier.countDown();
+        if (task.close()) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Records an error encountered by the background thread, unless one has already been recorded.
+   *
+   * @param e the error
+   */
+  private void recordError(IOException e) {
+    if (error == null) {
+      error = e;
+    }
+  }
+}
@@ -6,12 +6,21 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import org.checkerframework.checker.interning.qual.Interned;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Deterministic versions of {@code java.lang.Class} methods, which return arrays in sorted order.
+ *
+ * <p>The sorted order is cached per class, so each method sorts a given class's members only once;
+ * later calls put the members in order in linear time. Like the methods of {@code java.lang.Class},
+ * each call returns a new array of new {@code Method}, {@code Field}, and {@code Constructor}
+ * objects.
  */
 public final class ClassDeterministic {
 
@@ -27,9 +36,7 @@ public final class ClassDeterministic {
    * @return the class's annotations
    */
   public static Annotation[] getAnnotations(Class<?> c) {
-    Annotation[] result = c.getAnnotations();
-    Arrays.sort(result, annotationComparator);
-    return result;
+    return cached(c, Kind.ANNOTATIONS, Class::getAnnotations, ClassDeterministic::sortAnnotations);
   }
 
   /**
@@ -40,9 +47,11 @@ public final class ClassDeterministic {
    * @return the class's declared annotations
    */
   public static Annotation[] getDeclaredAnnotations(Class<?> c) {
-    Annotation[] result = c.getDeclaredAnnotations();
-    Arrays.sort(result, annotationComparator);
-    return result;
+    return cached(
+        c,
+        Kind.DECLARED_ANNOTATIONS,
+        Class::getDeclaredAnnotations,
+        ClassDeterministic::sortAnnotations);
   }
 
   /**
@@ -52,9 +61,7 @@ public final class ClassDeterministic {
    * @return the class's member classes
    */
   public static Class<?>[] getClasses(Class<?> c) {
-    Class<?>[] result = c.getClasses();
-    Arrays.sort(result, classComparator);
-    return result;
+    return cached(c, Kind.CLASSES, Class::getClasses, ClassDeterministic::sortClasses);
   }
 
   /**
@@ -64,9 +71,8 @@ public final class ClassDeterministic {
    * @return the class's declared member classes
    */
   public static Class<?>[] getDeclaredClasses(Class<?> c) {
-    Class<?>[] result = c.getDeclaredClasses();
-    Arrays.sort(result, classComparator);
-    return result;
+    return cached(
+        c, Kind.DECLARED_CLASSES, Class::getDeclaredClasses, ClassDeterministic::sortClasses);
   }
 
   /**
@@ -78,12 +84,14 @@ public final class ClassDeterministic {
    * @return the class's enum constants, or null if the argument is not an enum class
    */
   public static <@Interned T> T @Nullable [] getEnumConstants(Class<T> c) {
-    @NonNull T[] result = c.getEnumConstants();
-    if (result == null) {
+    if (!c.isEnum()) {
       return null;
     }
-    Arrays.sort(result, toStringComparator);
-    return result;
+    return cached(
+        c,
+        Kind.ENUM_CONSTANTS,
+        ClassDeterministic::enumConstants,
+        ClassDeterministic::sortEnumConstants);
   }
 
   /**
@@ -93,9 +101,8 @@ public final class ClassDeterministic {
    * @return the class's constructors
    */
   public static Constructor<?>[] getConstructors(Class<?> c) {
-    Constructor<?>[] result = c.getConstructors();
-    Arrays.sort(result, constructorComparator);
-    return result;
+    return cached(
+        c, Kind.CONSTRUCTORS, Class::getConstructors, ClassDeterministic::sortConstructors);
   }
 
   /**
@@ -106,9 +113,11 @@ public final class ClassDeterministic {
    * @return the class's declared constructors
    */
   public static Constructor<?>[] getDeclaredConstructors(Class<?> c) {
-    Constructor<?>[] result = c.getDeclaredConstructors();
-    Arrays.sort(result, constructorComparator);
-    return result;
+    return cached(
+        c,
+        Kind.DECLARED_CONSTRUCTORS,
+        Class::getDeclaredConstructors,
+        ClassDeterministic::sortConstructors);
   }
 
   /**
@@ -118,9 +127,7 @@ public final class ClassDeterministic {
    * @return the class's fields
    */
   public static Field[] getFields(Class<?> c) {
-    Field[] result = c.getFields();
-    Arrays.sort(result, fieldComparator);
-    return result;
+    return cached(c, Kind.FIELDS, Class::getFields, ClassDeterministic::sortFields);
   }
 
   /**
@@ -130,9 +137,8 @@ public final class ClassDeterministic {
    * @return the class's declared fields
    */
   public static Field[] getDeclaredFields(Class<?> c) {
-    Field[] result = c.getDeclaredFields();
-    Arrays.sort(result, fieldComparator);
-    return result;
+    return cached(
+        c, Kind.DECLARED_FIELDS, Class::getDeclaredFields, ClassDeterministic::sortFields);
   }
 
   /**
@@ -142,9 +148,7 @@ public final class ClassDeterministic {
    * @return the class's methods
    */
   public static Method[] getMethods(Class<?> c) {
-    Method[] result = c.getMethods();
-    Arrays.sort(result, methodComparator);
-    return result;
+    return cached(c, Kind.METHODS, Class::getMethods, ClassDeterministic::sortMethods);
   }
 
   /**
@@ -154,43 +158,259 @@ public final class ClassDeterministic {
    * @return the class's declared methods
    */
   public static Method[] getDeclaredMethods(Class<?> c) {
-    Method[] result = c.getDeclaredMethods();
-    Arrays.sort(result, methodComparator);
-    return result;
+    return cached(
+        c, Kind.DECLARED_METHODS, Class::getDeclaredMethods, ClassDeterministic::sortMethods);
   }
 
   // Helper routines
 
-  // /**
-  //  * Creates a sorted list from an array of elements using the given classComparator.
-  //  *
-  //  * @param array the array of elements to be sorted
-  //  * @param comparator the classComparator over the element type
-  //  * @param <T> the element type
-  //  * @return the sorted list of elements of the given array
-  //  */
-  // private <T> List<T> toSortedList(T[] array, Comparator<T> comparator) {
-  //   List<T> list = new ArrayList<>();
-  //   Collections.addAll(list, array);
-  //   Collections.sort(list, comparator);
-  //   return list;
-  // }
-
-  /** Compares Annotation objects by type name. */
-  private static AnnotationComparator annotationComparator = new AnnotationComparator();
-
-  /** Compares Annotation objects by type name. */
-  private static class AnnotationComparator implements Comparator<Annotation> {
-
-    /** Create a new AnnotationComparator. */
-    public AnnotationComparator() {}
+  /** The kinds of arrays whose sorted order is cached for each class. */
+  private enum Kind {
+    /** The result of {@link #getAnnotations}. */
+    ANNOTATIONS,
+    /** The result of {@link #getDeclaredAnnotations}. */
+    DECLARED_ANNOTATIONS,
+    /** The result of {@link #getClasses}. */
+    CLASSES,
+    /** The result of {@link #getDeclaredClasses}. */
+    DECLARED_CLASSES,
+    /** The result of {@link #getEnumConstants}. */
+    ENUM_CONSTANTS,
+    /** The result of {@link #getConstructors}. */
+    CONSTRUCTORS,
+    /** The result of {@link #getDeclaredConstructors}. */
+    DECLARED_CONSTRUCTORS,
+    /** The result of {@link #getFields}. */
+    FIELDS,
+    /** The result of {@link #getDeclaredFields}. */
+    DECLARED_FIELDS,
+    /** The result of {@link #getMethods}. */
+    METHODS,
+    /** The result of {@link #getDeclaredMethods}. */
+    DECLARED_METHODS
+  }
+
+  /** The number of kinds of arrays. */
+  private static final int NUM_KINDS = Kind.values().length;
 
-    @Override
-    public int compare(Annotation a1, Annotation a2) {
-      return classComparator.compare(a1.annotationType(), a2.annotationType());
+  /**
+   * For each class, the sorted orders that have been computed for it, indexed by {@link
+   * Kind#ordinal}. An element is null until that array is first requested.
+   */
+  private static final ClassValue<AtomicReferenceArray<@Nullable SortOrder>> sortOrders =
+      new ClassValue<AtomicReferenceArray<@Nullable SortOrder>>() {
+        @Override
+        protected AtomicReferenceArray<@Nullable SortOrder> computeValue(Class<?> c) {
+          return new AtomicReferenceArray<>(NUM_KINDS);
+        }
+      };
+
+  /**
+   * How to sort an array returned by a method of {@code java.lang.Class}, assuming that the method
+   * returns the same elements in the same order each time, as the JDK does in practice.
+   *
+   * @param sorted the elements in sorted order, for checking that assumption; never returned to a
+   *     client
+   * @param permutation for each index i into the sorted array, the index of its element in the
+   *     unsorted array
+   */
+  private static record SortOrder(Object[] sorted, int[] permutation) {
+
+    /**
+     * Returns the order that takes {@code unsorted} to {@code sorted}.
+     *
+     * @param unsorted an array
+     * @param sorted the same elements as {@code unsorted}, in sorted order
+     * @return the order that takes {@code unsorted} to {@code sorted}
+     */
+    static SortOrder of(Object[] unsorted, Object[] sorted) {
+      IdentityHashMap<Object, Integer> positions = new IdentityHashMap<>(unsorted.length);
+      for (int i = 0; i < unsorted.length; i++) {
+        positions.put(unsorted[i], i);
+      }
+      int[] permutation = new int[sorted.length];
+      for (int i = 0; i < sorted.length; i++) {
+        @SuppressWarnings("nullness") // sorted[i] is an element of unsorted
+        int position = positions.get(sorted[i]);
+        permutation[i] = position;
+      }
+      return new SortOrder(sorted.clone(), permutation);
+    }
+
+    /**
+     * Returns a new array containing the elements of {@code unsorted} in sorted order, or null if
+     * {@code unsorted} does not contain the same elements in the same order as the array from
+     * which this was computed.
+     *
+     * @param <T> the type of the array elements
+     * @param unsorted an array returned by a method of {@code java.lang.Class}
+     * @return the elements of {@code unsorted} in sorted order, or null
+     */
+    @SuppressWarnings("index") // permutation and sorted have the same length as unsorted
+    <T> T @Nullable [] reorder(T[] unsorted) {
+      if (unsorted.length != permutation.length) {
+        return null;
+      }
+      T[] result = unsorted.clone();
+      for (int i = 0; i < result.length; i++) {
+        T element = unsorted[permutation[i]];
+        // Class objects and enum constants are canonical; members are equal but not identical.
+        if (element != sorted[i] && !element.equals(sorted[i])) {
+          return null;
+        }
+        result[i] = element;
+      }
+      return result;
     }
   }
 
+  /**
+   * Returns the array of the given kind for the given class, in sorted order. Fetches a new
+   * unsorted array and puts it in the cached sorted order, computing and caching the order if
+   * necessary.
+   *
+   * @param <T> the type of the array elements
+   * @param <C> the type of the class
+   * @param c the class whose array to return
+   * @param kind which array to return
+   * @param fetch returns a new unsorted array for the class
+   * @param sort sorts an array in place and returns it
+   * @return a new array of the given kind for {@code c}, in sorted order
+   */
+  private static <T, C extends Class<?>> T[] cached(
+      C c, Kind kind, Function<C, T[]> fetch, UnaryOperator<T[]> sort) {
+    AtomicReferenceArray<@Nullable SortOrder> orders = sortOrders.get(c);
+    T[] unsorted = fetch.apply(c);
+    SortOrder order = orders.get(kind.ordinal());
+    if (order != null) {
+      T[] result = order.reorder(unsorted);
+      if (result != null) {
+        return result;
+      }
+    }
+    T[] result = sort.apply(unsorted.clone());
+    orders.set(kind.ordinal(), SortOrder.of(unsorted, result));
+    return result;
+  }
+
+  /**
+   * Sorts annotations by type name.
+   *
+   * @param annotations the annotations to sort; it is side-effected
+   * @return the annotations, sorted by type name
+   */
+  private static Annotation[] sortAnnotations(Annotation[] annotations) {
+    CollectionsP.sortByKey(Arrays.asList(annotations), a -> a.annotationType().getName());
+    return annotations;
+  }
+
+  /**
+   * Sorts classes by fully-qualified name.
+   *
+   * @param classes the classes to sort; it is side-effected
+   * @return the classes, sorted by fully-qualified name
+   */
+  private static Class<?>[] sortClasses(Class<?>[] classes) {
+    Arrays.sort(classes, classComparator);
+    return classes;
+  }
+
+  /**
+   * Sorts constructors by signature, as described at {@link ConstructorKey}.
+   *
+   * @param constructors the constructors to sort; it is side-effected
+   * @return the constructors, sorted by signature
+   */
+  private static Constructor<?>[] sortConstructors(Constructor<?>[] constructors) {
+    CollectionsP.sortByKey(Arrays.asList(constructors), ConstructorKey::new);
+    return constructors;
+  }
+
+  /**
+   * Returns the enum constants of the given class.
+   *
+   * @param <T> the class's type parameter
+   * @param c an enum class
+   * @return the class's enum constants
+   */
+  private static <@Interned T> T[] enumConstants(Class<T> c) {
+    @SuppressWarnings("nullness") // c is an enum class, so getEnumConstants() is non-null
+    @NonNull T[] constants = c.getEnumConstants();
+    return constants;
+  }
+
+  /**
+   * Sorts enum constants by the result of toString().
+   *
+   * @param <T> the type of the enum constants
+   * @param constants the enum constants to sort; it is side-effected
+   * @return the enum constants, sorted by the result of toString()
+   */
+  private static <@Interned T> T[] sortEnumConstants(T[] constants) {
+    CollectionsP.sortByKey(Arrays.asList(constants), Object::toString);
+    return constants;
+  }
+
+  /**
+   * Sorts fields by declaring class and name.
+   *
+   * @param fields the fields to sort; it is side-effected
+   * @return the fields, sorted by declaring class and name
+   */
+  private static Field[] sortFields(Field[] fields) {
+    Arrays.sort(fields, fieldComparator);
+    return fields;
+  }
+
+  /**
+   * Sorts methods by signature, as described at {@link MethodKey}.
+   *
+   * @param methods the methods to sort; it is side-effected
+   * @return the methods, sorted by signature
+   */
+  private static Method[] sortMethods(Method[] methods) {
+    CollectionsP.sortByKey(Arrays.asList(methods), MethodKey::new);
+    return methods;
+  }
+
+  /**
+   * Returns the names of the given classes.
+   *
+   * @param classes some classes
+   * @return the fully-qualified names of the classes
+   */
+  private static String[] names(Class<?>[] classes) {
+    String[] result = new String[classes.length];
+    for (int i = 0; i < classes.length; i++) {
+      result[i] = classes[i].getName();
+    }
+    return result;
+  }
+
+  /**
+   * Compares two arrays of names: first by length, then lexicographically.
+   *
+   * @param names1 an array of names
+   * @param names2 another array of names
+   * @return the comparison of {@code names1} and {@code names2}
+   */
+  private static int compareNames(String[] names1, String[] names2) {
+    int result = names1.length - names2.length;
+    if (result != 0) {
+      return result;
+    }
+    assert names1.length == names2.length
+        : "@AssumeAssertion(index): difference of lengths is 0;"
+            + " https://github.com/kelloggm/checker-framework/issues/231";
+    for (int i = 0; i < names1.length; i++) {
+      result = names1[i].compareTo(names2[i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
   /** Compares Class objects by fully-qualified name. */
   private static ClassComparator classComparator = new ClassComparator();
 
@@ -207,95 +427,88 @@ public final class ClassDeterministic {
   }
 
   /**
-   * Compares Method objects by signature: compares name, number of parameters, parameter type
-   * names, declaring class, and return type (which is necessary to distinguish bridge methods).
-   */
-  private static MethodComparator methodComparator = new MethodComparator();
-
-  /**
-   * Compares Method objects by signature: compares name, number of parameters, parameter type
-   * names, declaring class, and return type (which is necessary to distinguish bridge methods).
+   * The sort key of a Method. Compares by signature: compares name, number of parameters,
+   * parameter type names, declaring class, and return type (which is necessary to distinguish
+   * bridge methods).
    */
-  private static class MethodComparator implements Comparator<Method> {
-
-    /** Create a new MethodComparator. */
-    public MethodComparator() {}
+  private static final class MethodKey implements Comparable<MethodKey> {
+
+    /** The method's name. */
+    private final String name;
+
+    /** The names of the method's parameter types. */
+    private final String[] parameterTypes;
+
+    /** The name of the method's declaring class. */
+    private final String declaringClass;
+
+    /** The name of the method's return type. */
+    private final String returnType;
+
+    /**
+     * Creates the sort key of a method.
+     *
+     * @param m a method
+     */
+    MethodKey(Method m) {
+      this.name = m.getName();
+      this.parameterTypes = names(m.getParameterTypes());
+      this.declaringClass = m.getDeclaringClass().getName();
+      this.returnType = m.getReturnType().getName();
+    }
 
     @Override
-    public int compare(Method m1, Method m2) {
+    public int compareTo(MethodKey other) {
       int result;
-      result = m1.getName().compareTo(m2.getName());
+      result = name.compareTo(other.name);
       if (result != 0) {
         return result;
       }
-      Class<?>[] ptypes1 = m1.getParameterTypes();
-      Class<?>[] ptypes2 = m2.getParameterTypes();
-      result = ptypes1.length - ptypes2.length;
+      result = compareNames(parameterTypes, other.parameterTypes);
       if (result != 0) {
         return result;
       }
-      assert ptypes1.length == ptypes2.length
-          : "@AssumeAssertion(index): difference of lengths is 0;"
-              + " https://github.com/kelloggm/checker-framework/issues/231";
-      for (int i = 0; i < ptypes1.length; i++) {
-        result = classComparator.compare(ptypes1[i], ptypes2[i]);
-        if (result != 0) {
-          return result;
-        }
-      }
       // Consider the declaring class last.  This minimizes differences in order when overriding
       // relationships in a library have changed.
-      result = classComparator.compare(m1.getDeclaringClass(), m2.getDeclaringClass());
+      result = declaringClass.compareTo(other.declaringClass);
       if (result != 0) {
         return result;
       }
       // Two methods in a classfile can have the same name and argument types
       // if one is a bridge method.  Distinguish them by their return type.
-      result = classComparator.compare(m1.getReturnType(), m2.getReturnType());
-      if (result != 0) {
-        return result;
-      }
-      return result;
+      return returnType.compareTo(other.returnType);
     }
   }
 
   /**
-   * Compares Constructor objects by signature: compares name, number of parameters, and parameter
-   * type names.
-   */
-  private static ConstructorComparator constructorComparator = new ConstructorComparator();
-
-  /**
-   * Compares Constructor objects by signature: compares name, number of parameters, and parameter
-   * type names.
+   * The sort key of a Constructor. Compares by signature: compares declaring class, number of
+   * parameters, and parameter type names.
    */
-  private static class ConstructorComparator implements Comparator<Constructor<?>> {
-
-    /** Create a new ConstructorComparator. */
-    public ConstructorComparator() {}
+  private static final class ConstructorKey implements Comparable<ConstructorKey> {
+
+    /** The name of the constructor's declaring class. */
+    private final String declaringClass;
+
+    /** The names of the constructor's parameter types. */
+    private final String[] parameterTypes;
+
+    /**
+     * Creates the sort key of a constructor.
+     *
+     * @param c a constructor
+     */
+    ConstructorKey(Constructor<?> c) {
+      this.declaringClass = c.getDeclaringClass().getName();
+      this.parameterTypes = names(c.getParameterTypes());
+    }
 
     @Override
-    public int compare(Constructor<?> c1, Constructor<?> c2) {
-      int result = classComparator.compare(c1.getDeclaringClass(), c2.getDeclaringClass());
-      if (result != 0) {
-        return result;
-      }
-      Class<?>[] ptypes1 = c1.getParameterTypes();
-      Class<?>[] ptypes2 = c2.getParameterTypes();
-      result = ptypes1.length - ptypes2.length;
+    public int compareTo(ConstructorKey other) {
+      int result = declaringClass.compareTo(other.declaringClass);
       if (result != 0) {
         return result;
       }
-      assert ptypes1.length == ptypes2.length
-          : "@AssumeAssertion(index): difference of lengths is 0;"
-              + " https://github.com/kelloggm/checker-framework/issues/231";
-      for (int i = 0; i < ptypes1.length; i++) {
-        result = classComparator.compare(ptypes1[i], ptypes2[i]);
-        if (result != 0) {
-          return result;
-        }
-      }
-      return result;
+      return compareNames(parameterTypes, other.parameterTypes);
     }
   }
 
@@ -317,19 +530,4 @@ public final class ClassDeterministic {
       return f1.getName().compareTo(f2.getName());
     }
   }
-
-  /** Compares objects by the result of toString(). */
-  private static ToStringComparator toStringComparator = new ToStringComparator();
-
-  /** Compares objects by the result of toString(). */
-  private static class ToStringComparator implements Comparator<Object> {
-
-    /** Create a new ToStringComparator. */
-    public ToStringComparator() {}
-
-    @Override
-    public int compare(Object o1, Object o2) {
-      return o1.toString().compareTo(o2.toString());
-    }
-  }
 }
@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Random;
@@ -255,6 +256,103 @@ public final class CollectionsP {
     return result;
   }
 
+  /**
+   * Sorts the list by the keys of its elements. This is like {@code
+   * list.sort(Comparator.comparing(keyFunction))}, but it computes each element's key once, rather
+   * than twice per comparison. Use it when keys are expensive to compute, as {@code toString()}
+   * often is. The sort is stable.
+   *
+   * @param <T> the type of the list elements
+   * @param <K> the type of the keys
+   * @param list the list to sort; it is side-effected
+   * @param keyFunction computes the key of an element
+   * @see ToStringComparator#sort
+   */
+  public static <T extends @Nullable Object, K extends Comparable<? super K>> void sortByKey(
+      List<T> list, Function<? super T, ? extends K> keyFunction) {
+    sortByKey(list, keyFunction, Comparator.naturalOrder(), false);
+  }
+
+  /**
+   * Sorts the list by the keys of its elements. This is like {@code
+   * list.sort(Comparator.comparing(keyFunction, keyComparator))}, but it computes each element's
+   * key once, rather than twice per comparison. Use it when keys are expensive to compute, as
+   * {@code toString()} often is. The sort is stable.
+   *
+   * @param <T> the type of the list elements
+   * @param <K> the type of the keys
+   * @param list the list to sort; it is side-effected
+   * @param keyFunction computes the key of an element
+   * @param keyComparator compares keys
+   */
+  public static <T extends @Nullable Object, K extends @Nullable Object> void sortByKey(
+      List<T> list,
+      Function<? super T, ? extends K> keyFunction,
+      Comparator<? super K> keyComparator) {
+    sortByKey(list, keyFunction, keyComparator, false);
+  }
+
+  /**
+   * Like {@link #sortByKey(List, Function, Comparator)}, but computes the keys and sorts them using
+   * multiple threads, as {@link Arrays#parallelSort} does. This is faster only for large lists (at
+   * least tens of thousands of elements) or expensive keys. {@code keyFunction} must be safe to
+   * call from multiple threads at once.
+   *
+   * @param <T> the type of the list elements
+   * @param <K> the type of the keys
+   * @param list the list to sort; it is side-effected
+   * @param keyFunction computes the key of an element
+   * @param keyComparator compares keys
+   */
+  public static <T extends @Nullable Object, K extends @Nullable Object> void parallelSortByKey(
+      List<T> list,
+      Function<? super T, ? extends K> keyFunction,
+      Comparator<? super K> keyComparator) {
+    sortByKey(list, keyFunction, keyComparator, true);
+  }
+
+  /**
+   * Sorts the list by the keys of its elements, computing each element's key once.
+   *
+   * @param <T> the type of the list elements
+   * @param <K> the type of the keys
+   * @param list the list to sort; it is side-effected
+   * @param keyFunction computes the key of an element
+   * @param keyComparator compares keys
+   * @param parallel if true, compute the keys and sort them using multiple threads
+   */
+  @SuppressWarnings({
+    "unchecked", // list.toArray() contains only elements of list
+    "index" // keyed and elements have the same length
+  })
+  private static <T extends @Nullable Object, K extends @Nullable Object> void sortByKey(
+      List<T> list,
+      Function<? super T, ? extends K> keyFunction,
+      Comparator<? super K> keyComparator,
+      boolean parallel) {
+    if (list.size() < 2) {
+      return;
+    }
+    T[] elements = (T[]) list.toArray();
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+    IPair<K, T>[] keyed = new IPair[elements.length];
+    Comparator<IPair<K, T>> pairComparator = (p1, p2) -> keyComparator.compare(p1.first, p2.first);
+    if (parallel) {
+      Arrays.parallelSetAll(keyed, i -> IPair.of(keyFunction.apply(elements[i]), elements[i]));
+      Arrays.parallelSort(keyed, pairComparator);
+    } else {
+      for (int i = 0; i < elements.length; i++) {
+        keyed[i] = IPair.of(keyFunction.apply(elements[i]), elements[i]);
+      }
+      Arrays.sort(keyed, pairComparator);
+    }
+    ListIterator<T> itor = list.listIterator();
+    for (IPair<K, T> pair : keyed) {
+      itor.next();
+      itor.set(pair.second);
+    }
+  }
+
   /**
    * Returns true if the given collection is sorted.
    *
@@ -1649,6 +1747,111 @@ public final class CollectionsP {
     }
   }
 
+  /**
+   * Returns an iterator that merges sorted iterators into one sorted iterator. Equal elements are
+   * returned in the order of the inputs that contain them, so the merge is stable.
+   *
+   * @param <T> the type of elements of the iterator
+   * @param itors the inputs, each sorted according to the natural ordering of its elements
+   * @return an iterator that returns the elements of all the inputs, in sorted order
+   * @see OrderedGroupIterator
+   */
+  public static <T extends Comparable<? super T>> Iterator<T> sortedMergedIterator(
+      List<? extends Iterator<? extends T>> itors) {
+    return new SortedMergedIterator<T>(itors, Comparator.naturalOrder(), false);
+  }
+
+  /**
+   * Returns an iterator that merges sorted iterators into one sorted iterator. Equal elements are
+   * returned in the order of the inputs that contain them, so the merge is stable.
+   *
+   * @param <T> the type of elements of the iterator
+   * @param itors the inputs, each sorted according to {@code comparator}
+   * @param comparator the sort order of the inputs and the result
+   * @return an iterator that returns the elements of all the inputs, in sorted order
+   * @see OrderedGroupIterator
+   */
+  public static <T> Iterator<T> sortedMergedIterator(
+      List<? extends Iterator<? extends T>> itors, Comparator<? super T> comparator) {
+    return new SortedMergedIterator<T>(itors, comparator, false);
+  }
+
+  /**
+   * Returns an iterator that merges sorted iterators into one sorted iterator, optionally removing
+   * duplicates. Equal elements are returned in the order of the inputs that contain them, so the
+   * merge is stable.
+   *
+   * @param <T> the type of elements of the iterator
+   * @param itors the inputs, each sorted according to {@code comparator}
+   * @param comparator the sort order of the inputs and the result
+   * @param removeDuplicates if true, return only the first of each run of elements that are equal
+   *     according to {@code comparator}, whether they come from the same input or from different
+   *     inputs
+   * @return an iterator that returns the elements of all the inputs, in sorted order
+   * @see OrderedGroupIterator
+   */
+  public static <T> Iterator<T> sortedMergedIterator(
+      List<? extends Iterator<? extends T>> itors,
+      Comparator<? super T> comparator,
+      boolean removeDuplicates) {
+    return new SortedMergedIterator<T>(itors, comparator, removeDuplicates);
+  }
+
+  /**
+   * An Iterator that merges sorted iterators. It keeps the inputs in a heap ordered by their next
+   * elements, so each element takes time O(log k), where k is the number of inputs. Merging the
+   * inputs pairwise instead would take time O(k) per element, or O(log k) with extra copying.
+   *
+   * @param <T> the type of elements of the iterator
+   */
+  private static final class SortedMergedIterator<T> implements Iterator<T> {
+
+    /** The inputs, in a heap ordered by their next elements. */
+    private final SortedIteratorHeap<T> heap;
+
+    /** If true, skip elements that equal the previously returned one. */
+    private final boolean removeDuplicates;
+
+    /**
+     * Create an iterator that merges the given sorted iterators.
+     *
+     * @param itors the inputs, each sorted according to {@code comparator}
+     * @param comparator the sort order of the inputs
+     * @param removeDuplicates if true, skip elements that equal the previously returned one
+     */
+    SortedMergedIterator(
+        List<? extends Iterator<? extends T>> itors,
+        Comparator<? super T> comparator,
+        boolean removeDuplicates) {
+      this.heap = new SortedIteratorHeap<>(itors, comparator);
+      this.removeDuplicates = removeDuplicates;
+    }
+
+    @Override
+    public boolean hasNext(@GuardSatisfied SortedMergedIterator<T> this) {
+      return !heap.isEmpty();
+    }
+
+    @Override
+    public T next(@GuardSatisfied SortedMergedIterator<T> this) {
+      if (heap.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      T result = heap.next();
+      if (removeDuplicates) {
+        while (!heap.isEmpty() && heap.compare(heap.head(heap.top()), result) == 0) {
+          heap.next();
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public void remove(@GuardSatisfied SortedMergedIterator<T> this) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   /**
    * Returns an iterator that only returns elements of {@code itor} that match the given predicate.
    *
@@ -0,0 +1,98 @@
+package org.plumelib.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.mustcall.qual.MustCallAlias;
+
+/**
+ * A compression format, such as gzip. {@link FilesP} uses the codec that is registered for a file's
+ * extension to read and write the file; see {@link FilesP#setCompressionCodec}.
+ */
+public interface CompressionCodec {
+
+  /**
+   * Returns a stream that decompresses the data read from the given stream.
+   *
+   * @param in a stream of compressed data
+   * @return a stream of the decompressed data; closing it closes {@code in}
+   * @throws IOException if there is trouble reading {@code in}
+   */
+  @MustCallAlias InputStream decompress(@MustCallAlias InputStream in) throws IOException;
+
+  /**
+   * Returns a stream that compresses the data written to it and writes the result to the given
+   * stream.
+   *
+   * @param out the stream to write compressed data to
+   * @return a stream that compresses data; closing it finishes compression and closes {@code out}
+   * @throws IOException if there is trouble writing {@code out}
+   */
+  @MustCallAlias OutputStream compress(@MustCallAlias OutputStream out) throws IOException;
+
+  /** The gzip format, compressed and decompressed on the calling thread, with 64 KiB buffers. */
+  CompressionCodec GZIP = gzip(1 << 16);
+
+  /**
+   * Returns a codec for the gzip format, which is compressed and decompressed on the calling
+   * thread.
+   *
+   * @param bufferSize the size of the buffers used for compression and decompression
+   * @return a codec for the gzip format
+   */
+  static CompressionCodec gzip(@Positive int bufferSize) {
+    return new CompressionCodec() {
+      @Override
+      public @MustCallAlias InputStream decompress(@MustCallAlias InputStream in)
+          throws IOException {
+        return new GZIPInputStream(in, bufferSize);
+      }
+
+      @Override
+      public @MustCallAlias OutputStream compress(@MustCallAlias OutputStream out)
+          throws IOException {
+        return new GZIPOutputStream(out, bufferSize);
+      }
+
+      @Override
+      public String toString() {
+        return "CompressionCodec.gzip(" + bufferSize + ")";
+      }
+    };
+  }
+
+  /**
+   * Returns a codec for the gzip format that uses multiple threads. It compresses with a {@link
+   * ParallelGZIPOutputStream}. It decompresses on a separate thread, which reads ahead of the
+   * client by means of a {@link ReadAheadInputStream}.
+   *
+   * @param threads the number of threads that compress blocks
+   * @param blockSize the size of each uncompressed block, for compression, and of each chunk that
+   *     is read ahead, for decompression
+   * @return a codec for the gzip format that uses multiple threads
+   */
+  static CompressionCodec parallelGzip(@Positive int threads, @Positive int blockSize) {
+    return new CompressionCodec() {
+      @Override
+      public @MustCallAlias InputStream decompress(@MustCallAlias InputStream in)
+          throws IOException {
+        return new ReadAheadInputStream(
+            new GZIPInputStream(in, blockSize), blockSize, ReadAheadInputStream.DEFAULT_CHUNKS);
+      }
+
+      @Override
+      public @MustCallAlias OutputStream compress(@MustCallAlias OutputStream out)
+          throws IOException {
+        return new ParallelGZIPOutputStream(out, threads, blockSize);
+      }
+
+      @Override
+      public String toString() {
+        return "CompressionCodec.parallelGzip(" + threads + ", " + blockSize + ")";
+      }
+    };
+  }
+}
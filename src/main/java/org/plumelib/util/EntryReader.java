@@ -227,7 +227,7 @@ public class EntryReader extends LineNumberReader implements Iterable<String>, I
     if (includeRegexString == null) {
       includeRegex = null;
     } else {
-      includeRegex = Pattern.compile(includeRegexString);
+      includeRegex = RegexUtil.compileCached(includeRegexString);
     }
   }
 
@@ -1128,8 +1128,8 @@ public class EntryReader extends LineNumberReader implements Iterable<String>, I
         boolean twoBlankLines,
         boolean supportsFences) {
       this(
-          entryStartRegex == null ? null : Pattern.compile(entryStartRegex),
-          entryStopRegex == null ? null : Pattern.compile(entryStopRegex),
+          entryStartRegex == null ? null : RegexUtil.compileCached(entryStartRegex),
+          entryStopRegex == null ? null : RegexUtil.compileCached(entryStopRegex),
           twoBlankLines,
           supportsFences);
     }
@@ -1219,9 +1219,9 @@ public class EntryReader extends LineNumberReader implements Iterable<String>, I
         @Nullable @Regex String multilineCommentStart,
         @Nullable @Regex String multilineCommentEnd) {
       this(
-          lineCommentStart == null ? null : Pattern.compile(lineCommentStart),
-          multilineCommentStart == null ? null : Pattern.compile(multilineCommentStart),
-          multilineCommentEnd == null ? null : Pattern.compile(multilineCommentEnd));
+          lineCommentStart == null ? null : RegexUtil.compileCached(lineCommentStart),
+          multilineCommentStart == null ? null : RegexUtil.compileCached(multilineCommentStart),
+          multilineCommentEnd == null ? null : RegexUtil.compileCached(multilineCommentEnd));
     }
 
     /**
@@ -1230,7 +1230,7 @@ public class EntryReader extends LineNumberReader implements Iterable<String>, I
      * @param lineCommentStart regular expression that matches a single-line comment
      */
     public CommentFormat(@Nullable @Regex String lineCommentStart) {
-      this(lineCommentStart == null ? null : Pattern.compile(lineCommentStart), null, null);
+      this(lineCommentStart == null ? null : RegexUtil.compileCached(lineCommentStart), null, null);
     }
 
     /**
@@ -11,7 +11,6 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -25,18 +24,24 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileAttribute;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.checkerframework.checker.index.qual.Positive;
 import org.checkerframework.checker.mustcall.qual.Owning;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -56,6 +61,9 @@ public final class FilesP {
   /** The system-specific line separator string. */
   private static final String lineSep = System.lineSeparator();
 
+  /** The size, in bytes or characters, of buffers used to read or copy an entire stream. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
   /**
    * An array of options for appending to a file, creating the file if it does not exist. CREATE is
    * necessary because {@code Files.newOutputStream} implies CREATE only when no option is given.
@@ -71,13 +79,76 @@ public final class FilesP {
    */
   private static final StandardOpenOption[] TRUNCATE_OPTIONS = {CREATE, TRUNCATE_EXISTING};
 
+  // //////////////////////////////////////////////////////////////////////
+  // Compression
+  //
+
+  /**
+   * Maps a file extension to the codec for files whose names end with the extension. Initially, it
+   * maps ".gz" to {@link CompressionCodec#GZIP}.
+   */
+  private static final Map<String, CompressionCodec> compressionCodecs = new ConcurrentHashMap<>();
+
+  static {
+    compressionCodecs.put(".gz", CompressionCodec.GZIP);
+  }
+
+  /**
+   * Sets the codec that the methods of this class use to read and write files whose names end with
+   * the given extension. For example, to compress ".gz" files using multiple threads, call
+   *
+   * <pre>{@code
+   * FilesP.setCompressionCodec(".gz", CompressionCodec.parallelGzip(threads, blockSize));
+   * }</pre>
+   *
+   * <p>If a file name ends with more than one registered extension, the longest one is used.
+   *
+   * @param extension a file extension, such as ".gz"
+   * @param codec the codec for files with the extension, or null if such files are not compressed
+   * @return the codec previously registered for the extension, or null if none was
+   */
+  public static @Nullable CompressionCodec setCompressionCodec(
+      String extension, @Nullable CompressionCodec codec) {
+    if (extension.isEmpty()) {
+      throw new IllegalArgumentException("empty extension");
+    }
+    if (codec == null) {
+      return compressionCodecs.remove(extension);
+    } else {
+      return compressionCodecs.put(extension, codec);
+    }
+  }
+
+  /**
+   * Returns the codec for the given file, or null if the file is not compressed. The codec is
+   * determined by the file's extension; see {@link #setCompressionCodec}.
+   *
+   * @param path a file
+   * @return the codec for the file, or null if the file is not compressed
+   */
+  @Pure
+  public static @Nullable CompressionCodec compressionCodec(Path path) {
+    String name = path.toString();
+    CompressionCodec result = null;
+    int resultLength = 0;
+    for (Map.Entry<String, CompressionCodec> entry : compressionCodecs.entrySet()) {
+      String extension = entry.getKey();
+      if (extension.length() > resultLength && name.endsWith(extension)) {
+        result = entry.getValue();
+        resultLength = extension.length();
+      }
+    }
+    return result;
+  }
+
   // //////////////////////////////////////////////////////////////////////
   // File readers
   //
 
   /**
    * Returns an InputStream for the file, accounting for the possibility that the file is
-   * compressed. (A file whose name ends with ".gz" is treated as compressed.)
+   * compressed. (A file whose name ends with ".gz", or with another extension registered by {@link
+   * #setCompressionCodec}, is treated as compressed.)
    *
    * @param path the possibly-compressed file to read
    * @return an InputStream for file
@@ -94,9 +165,10 @@ public final class FilesP {
   public static InputStream newFileInputStream(Path path) throws IOException {
     InputStream fis = Files.newInputStream(path);
     InputStream in;
-    if (path.toString().endsWith(".gz")) {
+    CompressionCodec codec = compressionCodec(path);
+    if (codec != null) {
       try {
-        in = new GZIPInputStream(fis);
+        in = codec.decompress(fis);
       } catch (IOException e) {
         fis.close();
         throw new IOException("Problem while reading " + path, e);
@@ -320,7 +392,8 @@ public final class FilesP {
 
   /**
    * Returns an OutputStream for the file, accounting for the possibility that the file is
-   * compressed. (A file whose name ends with ".gz" is treated as compressed.)
+   * compressed. (A file whose name ends with ".gz", or with another extension registered by {@link
+   * #setCompressionCodec}, is treated as compressed.)
    *
    * <p>If the file name ends with ".gz" and {@code append} is true, the result writes a new gzip
    * member rather than extending the gzip member that the file already contains. {@link
@@ -342,9 +415,10 @@ public final class FilesP {
   public static OutputStream newFileOutputStream(Path path, boolean append) throws IOException {
     OutputStream fos = Files.newOutputStream(path, append ? APPEND_OPTIONS : TRUNCATE_OPTIONS);
     OutputStream out;
-    if (path.toString().endsWith(".gz")) {
+    CompressionCodec codec = compressionCodec(path);
+    if (codec != null) {
       try {
-        out = new GZIPOutputStream(fos);
+        out = codec.compress(fos);
       } catch (IOException e) {
         fos.close();
         throw new IOException("Problem while writing " + path, e);
@@ -492,7 +566,7 @@ public final class FilesP {
   @Owning
   public static BufferedWriter newBufferedFileWriter(String filename, boolean append)
       throws IOException {
-    if (filename.endsWith(".gz")) {
+    if (compressionCodec(Paths.get(filename)) != null) {
       return new BufferedWriter(
           new OutputStreamWriter(newFileOutputStream(Paths.get(filename), append), UTF_8));
     } else {
@@ -530,11 +604,14 @@ public final class FilesP {
   //
 
   /**
-   * Counts the number of lines in the specified file.
+   * Counts the number of lines in the specified file. A line is terminated by lf, cr, or cr-lf; a
+   * final line that is not terminated also counts. The file may be compressed. (A file whose name
+   * ends with ".gz" is treated as compressed.)
    *
    * @param filename file whose size to count
    * @return number of lines in filename
    * @throws IOException if there is trouble reading the file
+   * @see #lineStatistics
    */
   @SuppressWarnings({
     "allcheckers:purity.not.sideeffectfree.call",
@@ -544,13 +621,61 @@ public final class FilesP {
   }) // side effect to local state
   @Pure
   public static long countLines(String filename) throws IOException {
-    long count = 0;
-    try (LineNumberReader reader = newLineNumberFileReader(filename)) {
-      while (reader.readLine() != null) {
-        count++;
+    return lineStatistics(Paths.get(filename)).lines();
+  }
+
+  /**
+   * The number of lines in a file, and the number of each kind of line separator.
+   *
+   * @param lines the number of lines, including a final line that is not terminated
+   * @param lf the number of lines terminated by lf alone
+   * @param cr the number of lines terminated by cr alone
+   * @param crlf the number of lines terminated by cr-lf
+   */
+  public static record LineStatistics(long lines, long lf, long cr, long crlf) {}
+
+  /**
+   * Returns the number of lines in the file and the number of each kind of line separator. The file
+   * is scanned once, as bytes: no characters are decoded. This is correct for any charset in which
+   * cr and lf are single bytes that are not part of any other character, such as UTF-8 and
+   * ISO-8859-1. The file may be compressed. (A file whose name ends with ".gz" is treated as
+   * compressed.)
+   *
+   * @param path the file to examine
+   * @return the number of lines and line separators in the file
+   * @throws IOException if there is trouble reading the file
+   */
+  public static LineStatistics lineStatistics(Path path) throws IOException {
+    long lf = 0;
+    long cr = 0;
+    long crlf = 0;
+    // The last byte that was read, as an unsigned value, or -1 if the file is empty so far.
+    int last = -1;
+    try (InputStream in = newFileInputStream(path)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer)) != -1) { // NOPMD
+        for (int i = 0; i < n; i++) {
+          byte b = buffer[i];
+          if (b == '\n') {
+            if (last == '\r') {
+              cr--;
+              crlf++;
+            } else {
+              lf++;
+            }
+          } else if (b == '\r') {
+            cr++;
+          }
+          last = b & 0xFF;
+        }
       }
     }
-    return count;
+    long lines = lf + cr + crlf;
+    if (last != -1 && last != '\n' && last != '\r') {
+      lines++;
+    }
+    return new LineStatistics(lines, lf, cr, crlf);
   }
 
   /**
@@ -570,7 +695,9 @@ public final class FilesP {
   }
 
   /**
-   * Tries to infer the line separator used in a file.
+   * Tries to infer the line separator used in a file: returns the most common line separator in
+   * the file. If the file contains no line separators, or in case of a tie that involves the line
+   * separator of the current system, returns the line separator of the current system.
    *
    * @param file the file to infer a line separator from
    * @return the inferred line separator used in filename
@@ -583,39 +710,23 @@ public final class FilesP {
   })
   @Pure
   public static @Regex String inferLineSeparator(File file) throws IOException {
-    try (BufferedReader r = newBufferedFileReader(file)) {
-      int unix = 0;
-      int dos = 0;
-      int mac = 0;
-      while (true) {
-        String s = r.readLine();
-        if (s == null) {
-          break;
-        }
-        if (s.endsWith("\r\n")) {
-          dos++;
-        } else if (s.endsWith("\r")) {
-          mac++;
-        } else if (s.endsWith("\n")) {
-          unix++;
-        } else {
-          // This can happen only if the last line is not terminated.
-        }
-      }
-      if ((dos > mac && dos > unix) || (lineSep.equals("\r\n") && dos >= unix && dos >= mac)) {
-        return "\r\n";
-      }
-      if ((mac > dos && mac > unix) || (lineSep.equals("\r") && mac >= dos && mac >= unix)) {
-        return "\r";
-      }
-      if ((unix > dos && unix > mac) || (lineSep.equals("\n") && unix >= dos && unix >= mac)) {
-        return "\n";
-      }
-      // The two non-preferred line endings are tied and have more votes than
-      // the preferred line ending.  Give up and return the line separator
-      // for the system on which Java is currently running.
-      return lineSep;
+    LineStatistics stats = lineStatistics(file.toPath());
+    long unix = stats.lf();
+    long dos = stats.crlf();
+    long mac = stats.cr();
+    if ((dos > mac && dos > unix) || (lineSep.equals("\r\n") && dos >= unix && dos >= mac)) {
+      return "\r\n";
+    }
+    if ((mac > dos && mac > unix) || (lineSep.equals("\r") && mac >= dos && mac >= unix)) {
+      return "\r";
     }
+    if ((unix > dos && unix > mac) || (lineSep.equals("\n") && unix >= dos && unix >= mac)) {
+      return "\n";
+    }
+    // The two non-preferred line endings are tied and have more votes than
+    // the preferred line ending.  Give up and return the line separator
+    // for the system on which Java is currently running.
+    return lineSep;
   }
 
   /**
@@ -631,18 +742,52 @@ public final class FilesP {
   }
 
   /**
-   * Returns true iff the files have the same contents.
+   * Returns true iff the files have the same contents. The files are compared line by line, so
+   * files that differ only in their line separators, or in whether the last line is terminated,
+   * are considered equal. Files whose names end with ".gz" are decompressed before comparison.
    *
    * @param file1 first file to compare
    * @param file2 second file to compare
    * @param trimLines if true, call String.trim on each line before comparing
    * @return true iff the files have the same contents
+   * @see #firstDifferentLine
    */
   @SuppressWarnings({"allcheckers:purity", "lock"}) // reads files, side effects local state
   @Pure
   public static boolean equalFiles(String file1, String file2, boolean trimLines) {
+    return firstDifferentLine(file1, file2, trimLines) == -1;
+  }
+
+  /**
+   * Returns the number of the first line that differs between the files, or -1 if they have the
+   * same contents in the sense of {@link #equalFiles(String, String, boolean)}. Lines are numbered
+   * from 1. If one file is a prefix of the other, the result is the number of the first line that
+   * only the longer file has.
+   *
+   * <p>Files that are byte-for-byte identical are recognized by comparing their sizes and then
+   * their contents in large blocks, without decoding them into lines. To find the first byte
+   * offset at which two files differ, use {@link Files#mismatch}.
+   *
+   * @param file1 first file to compare
+   * @param file2 second file to compare
+   * @param trimLines if true, call String.trim on each line before comparing
+   * @return the first line number at which the files differ, or -1 if they do not differ
+   */
+  @SuppressWarnings({"allcheckers:purity", "lock"}) // reads files, side effects local state
+  @Pure
+  public static long firstDifferentLine(String file1, String file2, boolean trimLines) {
+    try {
+      Path path1 = Paths.get(file1);
+      Path path2 = Paths.get(file2);
+      if (Files.size(path1) == Files.size(path2) && Files.mismatch(path1, path2) == -1) {
+        return -1;
+      }
+    } catch (IOException | InvalidPathException e) {
+      // Fall through; the line-by-line comparison reports the problem, if it persists.
+    }
     try (LineNumberReader reader1 = newLineNumberFileReader(file1);
         LineNumberReader reader2 = newLineNumberFileReader(file2); ) {
+      long lineNumber = 1;
       String line1 = reader1.readLine();
       String line2 = reader2.readLine();
       while (line1 != null && line2 != null) {
@@ -651,15 +796,16 @@ public final class FilesP {
           line2 = line2.trim();
         }
         if (!line1.equals(line2)) {
-          return false;
+          return lineNumber;
         }
+        lineNumber++;
         line1 = reader1.readLine();
         line2 = reader2.readLine();
       }
       if (line1 == null && line2 == null) {
-        return true;
+        return -1;
       }
-      return false;
+      return lineNumber;
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
@@ -970,14 +1116,16 @@ public final class FilesP {
   //
 
   /**
-   * Writes an Object to a File.
+   * Writes an Object to a File. The file is compressed if its name ends with ".gz" or another
+   * extension that has a {@link CompressionCodec}; see {@link #setCompressionCodec}.
    *
    * @param o the object to write
    * @param file the file to which to write the object
    * @throws IOException if there is trouble writing the file
    */
   public static void writeObject(Object o, File file) throws IOException {
-    try (OutputStream bytes = newBufferedFileOutputStream(file.toString(), false);
+    try (OutputStream bytes =
+            new BufferedOutputStream(newFileOutputStream(file.toPath(), false), BUFFER_SIZE);
         ObjectOutputStream objs = new ObjectOutputStream(bytes)) {
       objs.writeObject(o);
     }
@@ -988,6 +1136,9 @@ public final class FilesP {
    * it takes a {@link File} as an argument. Note that use of that method can lead to security
    * vulnerabilities. Only run the method on trusted files.
    *
+   * <p>The file is decompressed if its name ends with ".gz" or another extension that has a {@link
+   * CompressionCodec}; see {@link #setCompressionCodec}.
+   *
    * @param file the file from which to read
    * @return the object read from the file
    * @throws IOException if there is trouble reading the file
@@ -1001,8 +1152,7 @@ public final class FilesP {
   @SideEffectFree
   public static Object readObject(File file) throws IOException, ClassNotFoundException {
     try (InputStream fis = newFileInputStream(file);
-        // 8192 is the buffer size in BufferedReader
-        InputStream istream = new BufferedInputStream(fis, 8192);
+        InputStream istream = new BufferedInputStream(fis, BUFFER_SIZE);
         ObjectInputStream objs = new ObjectInputStream(istream)) {
       return objs.readObject();
     }
@@ -1018,9 +1168,10 @@ public final class FilesP {
   public static String readerContents(Reader r) {
     try {
       StringBuilder contents = new StringBuilder();
-      int ch;
-      while ((ch = r.read()) != -1) { // NOPMD
-        contents.append((char) ch);
+      char[] buffer = new char[BUFFER_SIZE];
+      int chars;
+      while ((chars = r.read(buffer)) != -1) { // NOPMD
+        contents.append(buffer, 0, chars);
       }
       r.close();
       return contents.toString();
@@ -1057,9 +1208,182 @@ public final class FilesP {
    * @param path the path to the file
    * @return the lines of the file
    */
+  @SuppressWarnings({
+    "allcheckers:purity.not.sideeffectfree.call", // side effect to local state
+  })
   @SideEffectFree
   public static List<String> readLinesRetainingSeparators(Path path) {
-    return StringsP.splitLinesRetainSeparators(readString(path));
+    List<String> result = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+      LinesRetainingSeparatorsIterator lines = new LinesRetainingSeparatorsIterator(reader);
+      while (lines.hasNext()) {
+        result.add(lines.next());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the lines of the file as a lazily-populated stream. Each line ends with a line
+   * separator (except perhaps the last line); the lines are the same as those returned by {@link
+   * #readLinesRetainingSeparators}. Unlike that method, this one does not read the entire file into
+   * memory, so it is suitable for large files.
+   *
+   * <p>The result must be closed, for example with a try-with-resources statement, to close the
+   * file. An IOException that occurs while reading is thrown as an {@link UncheckedIOException}
+   * from the stream method that caused the read.
+   *
+   * @param path the path to the file, which must be encoded in UTF-8
+   * @return the lines of the file
+   * @throws IOException if the file cannot be opened
+   */
+  public static Stream<String> linesRetainingSeparators(Path path) throws IOException {
+    BufferedReader reader = Files.newBufferedReader(path, UTF_8);
+    try {
+      Iterator<String> lines = new LinesRetainingSeparatorsIterator(reader);
+      return StreamSupport.stream(
+              Spliterators.spliteratorUnknownSize(
+                  lines, Spliterator.ORDERED | Spliterator.NONNULL),
+              false)
+          .onClose(
+              () -> {
+                try {
+                  reader.close();
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+    } catch (RuntimeException | Error e) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  /**
+   * An iterator over the lines of a Reader, each of which ends with its line separator (except
+   * perhaps the last line). Recognizes the same line separators as {@link
+   * StringsP#splitLinesRetainSeparators}. Reads the Reader in blocks rather than one character at a
+   * time.
+   */
+  private static final class LinesRetainingSeparatorsIterator implements Iterator<String> {
+
+    /** The Reader to read from. */
+    private final Reader reader;
+
+    /** Characters read from {@link #reader} but not yet returned. */
+    private final char[] buf = new char[8192];
+
+    /** The index in {@link #buf} of the next character to return. */
+    private int pos = 0;
+
+    /** The number of valid characters in {@link #buf}. */
+    private int limit = 0;
+
+    /** True if {@link #reader} is exhausted. */
+    private boolean eof = false;
+
+    /** The next line to return, or null if it has not yet been read. */
+    private @Nullable String nextLine = null;
+
+    /**
+     * Creates an iterator over the lines of the given Reader.
+     *
+     * @param reader the Reader to read from
+     */
+    LinesRetainingSeparatorsIterator(Reader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (nextLine == null) {
+        try {
+          nextLine = readLine();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return nextLine != null;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String result = nextLine;
+      nextLine = null;
+      return result;
+    }
+
+    /**
+     * Reads the next block of characters into {@link #buf}, if {@link #buf} is exhausted.
+     *
+     * @return true if there is a character to read; false at end of input
+     * @throws IOException if there is trouble reading
+     */
+    private boolean fill() throws IOException {
+      while (pos == limit && !eof) {
+        int n = reader.read(buf, 0, buf.length);
+        if (n == -1) {
+          eof = true;
+        } else {
+          pos = 0;
+          limit = n;
+        }
+      }
+      return pos < limit;
+    }
+
+    /**
+     * Returns the next line, including its line separator, or null at end of input.
+     *
+     * @return the next line, or null at end of input
+     * @throws IOException if there is trouble reading
+     */
+    private @Nullable String readLine() throws IOException {
+      StringBuilder sb = null;
+      while (fill()) {
+        int start = pos;
+        int i = start;
+        while (i < limit && !StringsP.isLineSeparatorChar(buf[i])) {
+          i++;
+        }
+        if (i == limit) {
+          // No line separator in the rest of the buffer.
+          if (sb == null) {
+            sb = new StringBuilder(limit - start + 80);
+          }
+          sb.append(buf, start, limit - start);
+          pos = limit;
+          continue;
+        }
+        char c = buf[i];
+        pos = i + 1;
+        if (c == '\r' && pos == limit) {
+          // The line separator may be cr-lf, with lf in the next block.
+          if (sb == null) {
+            sb = new StringBuilder(pos - start + 1);
+          }
+          sb.append(buf, start, pos - start);
+          if (fill() && buf[pos] == '\n') {
+            sb.append('\n');
+            pos++;
+          }
+          return sb.toString();
+        }
+        if (c == '\r' && buf[pos] == '\n') {
+          pos++;
+        }
+        if (sb == null) {
+          return new String(buf, start, pos - start);
+        }
+        return sb.append(buf, start, pos - start).toString();
+      }
+      return (sb == null) ? null : sb.toString();
+    }
   }
 
   /**
@@ -1100,22 +1424,17 @@ public final class FilesP {
   //
 
   /**
-   * Copies the contents of the input stream to the output stream.
+   * Copies the contents of the input stream to the output stream. When both streams are files
+   * (that is, a {@code FileInputStream} and a {@code FileOutputStream}), {@link
+   * InputStream#transferTo} has the operating system do the copy, without passing the bytes
+   * through a Java buffer.
    *
    * @param from input stream
    * @param to output stream
    */
   public static void streamCopy(InputStream from, OutputStream to) {
-    byte[] buffer = new byte[1024];
-    int bytes;
     try {
-      while (true) {
-        bytes = from.read(buffer);
-        if (bytes == -1) {
-          return;
-        }
-        to.write(buffer, 0, bytes);
-      }
+      from.transferTo(to);
     } catch (IOException e) {
       e.printStackTrace();
       throw new UncheckedIOException(e);
@@ -1123,16 +1442,19 @@ public final class FilesP {
   }
 
   /**
-   * Returns a String containing all the characters from the input stream.
+   * Returns a String containing all the characters from the input stream, which must be encoded in
+   * UTF-8.
    *
    * @param is input stream to read
    * @return a String containing all the characters from the input stream
    */
   public static String streamString(InputStream is) {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    streamCopy(is, baos);
-    String result = baos.toString(UTF_8);
-    return result;
+    try {
+      return new String(is.readAllBytes(), UTF_8);
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new UncheckedIOException(e);
+    }
   }
 
   /**
@@ -1171,10 +1493,13 @@ public final class FilesP {
    * Returns true if the first {@code readLimit} code points of the input stream consist only of
    * whitespace.
    *
-   * <p>This method resets the input stream to its original position before returning, even when
+   * <p>This method reads the input stream in blocks, so it is fast even for a large {@code
+   * readLimit}. It resets the input stream to its original position before returning, even when
    * this method throws an exception. If the reset fails, the input stream is left positioned after
-   * the bytes that this method consumed, which may be one byte beyond the code points that this
-   * method examined; see {@link #readCodePoint}.
+   * the bytes that this method read, which may extend beyond the code points that this method
+   * examined.
+   *
+   * <p>A malformed UTF-8 character is not whitespace; see {@link #readCodePoint}.
    *
    * @param is an input stream
    * @param readLimit how many code points to look ahead in the input stream
@@ -1188,22 +1513,59 @@ public final class FilesP {
     if (!is.markSupported()) {
       return null;
     }
+    // Each code point is at most 4 bytes, usually much less.  Defensively guard against overflow
+    // of the multiplication, which would pass a negative read limit to mark().  The guard has an
+    // effect only for absurdly large values of readLimit (more than 536870911).
+    int byteLimit = (int) Math.min((long) readLimit * 4, Integer.MAX_VALUE);
+    is.mark(byteLimit);
     try {
-      // Each code point is at most 4 bytes, usually much less.  Defensively guard against overflow
-      // of the multiplication, which would pass a negative read limit to mark().  The guard has an
-      // effect only for absurdly large values of readLimit (more than 536870911).
-      is.mark((int) Math.min((long) readLimit * 4, Integer.MAX_VALUE));
-      for (int codePointsRead = 0; codePointsRead < readLimit; codePointsRead++) {
-        int nextCodePoint = readCodePoint(is);
-        if (nextCodePoint == -1) {
+      byte[] buffer = new byte[Math.min(byteLimit, 8192)];
+      // The number of bytes read from the stream.
+      int bytesRead = 0;
+      // The number of bytes at the beginning of buffer that are left over from the previous block:
+      // the first bytes of a character that the previous block ended in the middle of.
+      int carried = 0;
+      int codePointsRemaining = readLimit;
+      while (true) {
+        int n = is.read(buffer, carried, Math.min(buffer.length - carried, byteLimit - bytesRead));
+        boolean atEof = (n <= 0);
+        int end = carried + (atEof ? 0 : n);
+        bytesRead += atEof ? 0 : n;
+        // Scan the complete characters in buffer[0, end).
+        int i = 0;
+        while (i < end) {
+          if (codePointsRemaining == 0) {
+            return true;
+          }
+          byte b = buffer[i];
+          if (b >= 0) {
+            if (!isAsciiWhitespace(b)) {
+              return false;
+            }
+            i++;
+            codePointsRemaining--;
+            continue;
+          }
+          int byteCount = getByteCount(b);
+          if (i + byteCount > end && !atEof) {
+            // The character continues in the next block.
+            break;
+          }
+          int codePoint = decodeUtf8(buffer, i, Math.min(byteCount, end - i), byteCount);
+          if (!Character.isWhitespace(codePoint)) {
+            return false;
+          }
+          i += byteCount;
+          codePointsRemaining--;
+        }
+        if (atEof || codePointsRemaining == 0 || bytesRead == byteLimit) {
           return true;
-        } else if (Character.isWhitespace(nextCodePoint)) {
-          // do nothing, continue loop
-        } else {
-          return false;
         }
+        carried = end - i;
+        System.arraycopy(buffer, i, buffer, 0, carried);
       }
-      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("input stream = " + is, e);
     } finally {
       try {
         is.reset();
@@ -1213,9 +1575,70 @@ public final class FilesP {
     }
   }
 
+  /**
+   * Returns true if the given ASCII character is whitespace, according to {@link
+   * Character#isWhitespace(int)}.
+   *
+   * @param b an ASCII character
+   * @return true if {@code b} is whitespace
+   */
+  @Pure
+  private static boolean isAsciiWhitespace(byte b) {
+    // Space, the controls tab through carriage return, and the separators 0x1c through 0x1f.
+    return b == ' ' || (b >= 0x09 && b <= 0x0d) || (b >= 0x1c && b <= 0x1f);
+  }
+
+  /**
+   * Decodes a multi-byte UTF-8 character in a byte array, without allocating.
+   *
+   * @param bytes the bytes to decode
+   * @param offset the index of the first byte of the character
+   * @param available the number of bytes of the character that are present, starting at {@code
+   *     offset}; fewer than {@code byteCount} if the input ends in the middle of the character
+   * @param byteCount the number of bytes in the character, according to its first byte
+   * @return the code point, or the replacement character {@code U+FFFD} if the bytes are not a
+   *     well-formed UTF-8 character
+   */
+  @Pure
+  private static int decodeUtf8(byte[] bytes, int offset, int available, int byteCount) {
+    if (available < byteCount) {
+      return 0xfffd;
+    }
+    int codePoint = bytes[offset] & (0x7f >> byteCount);
+    for (int i = 1; i < byteCount; i++) {
+      int b = bytes[offset + i];
+      if ((b & 0b11000000) != 0b10000000) {
+        return 0xfffd;
+      }
+      codePoint = (codePoint << 6) | (b & 0b00111111);
+    }
+    return wellFormedOrReplacement(codePoint, byteCount);
+  }
+
+  /**
+   * Returns the given code point if it is correctly encoded in the given number of UTF-8 bytes, and
+   * the replacement character {@code U+FFFD} if not. An encoding is incorrect if it is overlong
+   * (longer than necessary), or if the code point is a surrogate or is above {@code U+10FFFF}.
+   *
+   * @param codePoint a code point that was decoded from UTF-8
+   * @param byteCount the number of bytes that encoded it
+   * @return {@code codePoint}, or {@code U+FFFD} if {@code codePoint} was not encoded correctly
+   */
+  @Pure
+  private static int wellFormedOrReplacement(int codePoint, int byteCount) {
+    int min = (byteCount == 2) ? 0x80 : (byteCount == 3) ? 0x800 : 0x10000;
+    if (codePoint < min
+        || codePoint > Character.MAX_CODE_POINT
+        || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+      return 0xfffd;
+    }
+    return codePoint;
+  }
+
   // From https://stackoverflow.com/a/54513347 .
   /**
-   * Reads a Unicode code point from an input stream.
+   * Reads a Unicode code point from an input stream. This reads only the bytes of the code point,
+   * one at a time, so the input stream should be buffered.
    *
    * <p>If the stream ends in the middle of a multi-byte UTF-8 character, the truncated bytes are
    * decoded, which yields the replacement character {@code U+FFFD}.
@@ -1242,36 +1665,27 @@ public final class FilesP {
       if (nextByte == -1) {
         return -1;
       }
-      byte firstByte = (byte) nextByte;
-      int byteCount = getByteCount(firstByte);
+      int byteCount = getByteCount((byte) nextByte);
       if (byteCount == 1) {
         return nextByte;
       }
-      byte[] utf8Bytes = new byte[byteCount];
-      utf8Bytes[0] = firstByte;
+      int codePoint = nextByte & (0x7f >> byteCount);
       // Get any subsequent bytes for this UTF-8 character.
-      int bytesRead;
-      for (bytesRead = 1; bytesRead < byteCount; bytesRead++) {
+      for (int bytesRead = 1; bytesRead < byteCount; bytesRead++) {
         nextByte = is.read();
         if (nextByte == -1) {
-          // The stream ended in the middle of a multi-byte character; decode what was read.
-          break;
+          // The stream ended in the middle of a multi-byte character.
+          return 0xfffd;
         }
         if ((nextByte & 0b11000000) != 0b10000000) {
-          // The byte is not a continuation byte, so the multi-byte character is malformed.  Decode
-          // what was read.  The offending byte has already been consumed and an InputStream does
-          // not support pushback, so the character that the offending byte starts is lost.
-          break;
+          // The byte is not a continuation byte, so the multi-byte character is malformed.  The
+          // offending byte has already been consumed and an InputStream does not support pushback,
+          // so the character that the offending byte starts is lost.
+          return 0xfffd;
         }
-        utf8Bytes[bytesRead] = (byte) nextByte;
+        codePoint = (codePoint << 6) | (nextByte & 0b00111111);
       }
-      @SuppressWarnings({
-        "PMD.UnnecessaryFullyQualifiedName", // Cannot use just `StandardCharsets.UTF_8` because of
-        // Index Checker dependent types.
-        "index:argument" // bytesRead <= byteCount == utf8Bytes.length
-      })
-      int codePoint = new String(utf8Bytes, 0, bytesRead, StandardCharsets.UTF_8).codePointAt(0);
-      return codePoint;
+      return wellFormedOrReplacement(codePoint, byteCount);
     } catch (IOException e) {
       throw new UncheckedIOException("input stream = " + is, e);
     }
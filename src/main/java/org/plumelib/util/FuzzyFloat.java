@@ -26,7 +26,7 @@ import org.checkerframework.dataflow.qual.Pure;
 public class FuzzyFloat implements Serializable {
 
   /** Unique identifier for serialization. If you add or remove fields, change this number. */
-  private static final long serialVersionUID = 20250723L;
+  private static final long serialVersionUID = 20261019L;
 
   /** Default relative difference between two values such that this class considers them equal. */
   static final double DEFAULT_RELATIVE_RATIO = .0001;
@@ -37,6 +37,12 @@ public class FuzzyFloat implements Serializable {
   /** Maximum ratio between two floats, such that this class considers them equal. */
   double maxRatio;
 
+  /**
+   * A non-zero value whose magnitude is less than this is considered equal to zero. It is the
+   * square of the fuzzy ratio, computed once rather than in every call to {@link #eq}.
+   */
+  double zeroTolerance;
+
   /**
    * True if this class does approximate (fuzzy) arithmetic comparisons. If false, this class does
    * exact matching.
@@ -73,6 +79,8 @@ public class FuzzyFloat implements Serializable {
   public void setRelativeRatio(@UnknownInitialization FuzzyFloat this, double relativeRatio) {
     minRatio = 1 - relativeRatio;
     maxRatio = 1 + relativeRatio;
+    double excess = maxRatio - 1;
+    zeroTolerance = excess * excess;
     exactComparisons = (relativeRatio == 0.0);
     // System.out.println ("minRatio = " + minRatio + ", maxRatio = "
     //                    + maxRatio);
@@ -93,16 +101,8 @@ public class FuzzyFloat implements Serializable {
   @Pure
   public boolean eq(double d1, double d2) {
 
-    // NaNs are not considered equal.
-    if (Double.isNaN(d1) && Double.isNaN(d2)) {
-      return false;
-    }
-
-    // if zero was specified for a ratio, don't do the divide.  You might
-    // get slightly different answers.  And this should be faster.
-    if (exactComparisons) {
-      return d1 == d2;
-    }
+    // Every comparison involving NaN is false, so NaNs are never considered equal without a
+    // separate test for them.
 
     // slightly more efficient for matches and catches positive and negative
     // infinity (which match in this test, but not below)
@@ -110,21 +110,19 @@ public class FuzzyFloat implements Serializable {
       return true;
     }
 
+    // if zero was specified for a ratio, don't do the divide.  You might
+    // get slightly different answers.  And this should be faster.
+    if (exactComparisons) {
+      return false;
+    }
+
     // When one number is 0, require that the other is less than the square of the fuzzy ratio.
     // This heuristic accommodates roundoff errors in floating-point values.
-
-    if (d1 == 0.0 || d2 == 0.0) {
-
-      double zeroTolerance = Math.pow((maxRatio - 1), 2);
-
-      if (d1 == 0.0) {
-
-        return Math.abs(d2) < zeroTolerance;
-
-      } else {
-
-        return Math.abs(d1) < zeroTolerance;
-      }
+    if (d1 == 0.0) {
+      return Math.abs(d2) < zeroTolerance;
+    }
+    if (d2 == 0.0) {
+      return Math.abs(d1) < zeroTolerance;
     }
 
     double ratio = d1 / d2;
@@ -212,9 +210,38 @@ public class FuzzyFloat implements Serializable {
    */
   @Pure
   public int indexOf(double[] a, double elt) {
-    for (int i = 0; i < a.length; i++) {
-      if (eq(elt, a[i])) {
-        return i;
+    // Each loop below specializes eq(elt, a[i]) to the given elt, so that the tests that depend
+    // only on elt are done once rather than once per element.
+    if (exactComparisons || Double.isNaN(elt)) {
+      for (int i = 0; i < a.length; i++) {
+        if (a[i] == elt) {
+          return i;
+        }
+      }
+    } else if (elt == 0.0) {
+      for (int i = 0; i < a.length; i++) {
+        double d = a[i];
+        if (d == 0.0 || Math.abs(d) < zeroTolerance) {
+          return i;
+        }
+      }
+    } else {
+      boolean eltIsNearZero = Math.abs(elt) < zeroTolerance;
+      for (int i = 0; i < a.length; i++) {
+        double d = a[i];
+        if (d == elt) {
+          return i;
+        }
+        if (d == 0.0) {
+          if (eltIsNearZero) {
+            return i;
+          }
+        } else {
+          double ratio = elt / d;
+          if ((ratio >= minRatio) && (ratio <= maxRatio)) {
+            return i;
+          }
+        }
       }
     }
     return -1;
@@ -270,41 +297,7 @@ public class FuzzyFloat implements Serializable {
     Arrays.sort(a1);
     Arrays.sort(a2);
 
-    // look for elements of a2 in a1
-    int start = 0;
-    outer1:
-    for (double val : a2) {
-      for (int j = start; j < a1.length; j++) {
-        if (eq(val, a1[j])) {
-          start = j;
-          continue outer1;
-        }
-        if (val < a1[j]) {
-          // System.out.println ("isElemMatch: " + val + " " + a1[j]);
-          return false;
-        }
-      }
-      // System.out.println ("isElemMatch: " + i);
-      return false;
-    }
-
-    // look for elements of a1 in a2
-    start = 0;
-    outer2:
-    for (double val : a1) {
-      for (int j = start; j < a2.length; j++) {
-        if (eq(val, a2[j])) {
-          start = j;
-          continue outer2;
-        }
-        if (val < a2[j]) {
-          return false;
-        }
-      }
-      return false;
-    }
-
-    return true;
+    return isSortedSubset(a2, a1) && isSortedSubset(a1, a2);
   }
 
   /** Lexically compares two double arrays. */
@@ -338,6 +331,194 @@ public class FuzzyFloat implements Serializable {
     }
   }
 
+  /**
+   * An index over an array of doubles that answers fuzzy membership queries in logarithmic time.
+   * It uses the comparison of the enclosing FuzzyFloat: {@code index.indexOf(d)} returns the same
+   * value as {@code indexOf(values, d)}, but without scanning all of {@code values}.
+   *
+   * <p>A query takes time O(log n + k), where k is the number of indexed values that are
+   * approximately equal to the argument. Values are stored in sorted order, and a query examines
+   * only those between {@code d/maxRatio} and {@code d/minRatio}, plus the zeros if {@code d} is
+   * near zero.
+   */
+  public class SortedIndex {
+
+    /** The indexed values, sorted according to {@link Double#compare}. */
+    private final double[] sorted;
+
+    /** For each element of {@link #sorted}, its index in the array passed to the constructor. */
+    private final int[] originalIndex;
+
+    /**
+     * Creates an index over the given values. Later changes to the array do not affect the index.
+     *
+     * @param values the values to index
+     */
+    public SortedIndex(double[] values) {
+      Integer[] order = new Integer[values.length];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+      }
+      // The sort is stable, so equal values remain in order of their original index.
+      Arrays.sort(order, (i1, i2) -> Double.compare(values[i1], values[i2]));
+      sorted = new double[values.length];
+      originalIndex = new int[values.length];
+      for (int i = 0; i < order.length; i++) {
+        sorted[i] = values[order[i]];
+        originalIndex[i] = order[i];
+      }
+    }
+
+    /**
+     * Returns true if some indexed value is approximately equal to d, according to {@link #eq}.
+     *
+     * @param d the value to search for
+     * @return true if some indexed value is approximately equal to d
+     */
+    @Pure
+    public boolean contains(double d) {
+      return find(d, true) != -1;
+    }
+
+    /**
+     * Returns the index, in the array passed to the constructor, of the first value that is
+     * approximately equal to d according to {@link #eq}.
+     *
+     * @param d the value to search for
+     * @return the first index of a value approximately equal to d, or -1 if there is none
+     * @see FuzzyFloat#indexOf(double[], double)
+     */
+    @Pure
+    public int indexOf(double d) {
+      return find(d, false);
+    }
+
+    /**
+     * Returns true if every element of {@code values} is approximately equal to some indexed value.
+     * This is equivalent to {@code isSubset(values, indexedValues)}.
+     *
+     * @param values the values to search for
+     * @return true if every element of values is approximately equal to some indexed value
+     * @see FuzzyFloat#isSubset(double[], double[])
+     */
+    @Pure
+    public boolean containsAll(double[] values) {
+      for (double d : values) {
+        if (!contains(d)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Searches for an indexed value that is approximately equal to d.
+     *
+     * @param d the value to search for
+     * @param anyMatch if true, return the original index of any match; if false, return the least
+     *     original index of a match
+     * @return the original index of a value approximately equal to d, or -1 if there is none
+     */
+    @Pure
+    private int find(double d, boolean anyMatch) {
+      if (Double.isNaN(d)) {
+        return -1;
+      }
+      if (exactComparisons || Double.isInfinite(d)) {
+        // Only values == d match.  0.0 == -0.0, though Double.compare distinguishes them.
+        return d == 0.0 ? find(d, -0.0, 0.0, anyMatch) : find(d, d, d, anyMatch);
+      }
+      if (d == 0.0) {
+        return find(d, -zeroTolerance, zeroTolerance, anyMatch);
+      }
+      if (minRatio <= 0) {
+        // A ratio of either sign may match, so every value is a candidate.
+        return find(d, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, anyMatch);
+      }
+
+      // d/x is within [minRatio, maxRatio] exactly if x is within [d/maxRatio, d/minRatio].  Widen
+      // the interval slightly to account for rounding; find() rejects the extra candidates.
+      double magnitude = Math.abs(d);
+      double low = magnitude / maxRatio * (1 - 0x1p-50);
+      if (low < Double.MIN_NORMAL) {
+        low = Double.MIN_VALUE;
+      }
+      double high = magnitude / minRatio * (1 + 0x1p-50);
+      int result = d > 0 ? find(d, low, high, anyMatch) : find(d, -high, -low, anyMatch);
+      if (magnitude < zeroTolerance && (result == -1 || !anyMatch)) {
+        result = leastIndex(result, find(d, -0.0, 0.0, anyMatch));
+      }
+      return result;
+    }
+
+    /**
+     * Searches the indexed values between low and high, inclusive, for one that is approximately
+     * equal to d.
+     *
+     * @param d the value to search for
+     * @param low the least candidate value, according to {@link Double#compare}
+     * @param high the greatest candidate value, according to {@link Double#compare}
+     * @param anyMatch if true, return the original index of any match; if false, return the least
+     *     original index of a match
+     * @return the original index of a value approximately equal to d, or -1 if there is none
+     */
+    @Pure
+    private int find(double d, double low, double high, boolean anyMatch) {
+      int result = -1;
+      for (int i = lowerBound(low);
+          i < sorted.length && Double.compare(sorted[i], high) <= 0;
+          i++) {
+        if (eq(d, sorted[i])) {
+          if (anyMatch) {
+            return originalIndex[i];
+          }
+          result = leastIndex(result, originalIndex[i]);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the index of the first element of {@link #sorted} that is not less than key,
+     * according to {@link Double#compare}.
+     *
+     * @param key the value to search for
+     * @return the index of the first element that is not less than key, or the length of the array
+     */
+    @Pure
+    private int lowerBound(double key) {
+      int low = 0;
+      int high = sorted.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (Double.compare(sorted[mid], key) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  /**
+   * Returns the lesser of two indices, where -1 means "no index".
+   *
+   * @param i1 an index, or -1
+   * @param i2 an index, or -1
+   * @return the lesser of the indices that are not -1, or -1 if both are -1
+   */
+  @Pure
+  private static int leastIndex(int i1, int i2) {
+    if (i1 == -1) {
+      return i2;
+    }
+    if (i2 == -1) {
+      return i1;
+    }
+    return Math.min(i1, i2);
+  }
+
   /**
    * Returns true if smaller is a subset of bigger. Element comparison uses {@link #eq}.
    *
@@ -360,22 +541,47 @@ public class FuzzyFloat implements Serializable {
     Arrays.sort(smaller);
     Arrays.sort(bigger);
 
-    // look for elements of smaller in bigger
-    int start = 0;
-    outer1:
+    return isSortedSubset(smaller, bigger);
+  }
+
+  /**
+   * Returns true if smaller is a subset of bigger, where both arrays are sorted. Element comparison
+   * uses {@link #eq}. This merges the two arrays in a single pass, so it takes time linear in their
+   * lengths.
+   *
+   * @param smaller the possibly-smaller subset; must be sorted
+   * @param bigger the possibly-larger set; must be sorted
+   * @return true if smaller is a subset (each element of smaller is also an element of bigger) of
+   *     bigger, false otherwise
+   */
+  @Pure
+  private boolean isSortedSubset(double[] smaller, double[] bigger) {
+    // A value near zero matches a zero in bigger, even if a non-matching element lies between them
+    // in sorted order.
+    boolean biggerHasZero =
+        !exactComparisons
+            && (Arrays.binarySearch(bigger, 0.0) >= 0 || Arrays.binarySearch(bigger, -0.0) >= 0);
+    int j = 0;
     for (double val : smaller) {
-      for (int j = start; j < bigger.length; j++) {
-        if (eq(val, bigger[j])) {
-          start = j;
-          continue outer1;
+      if (biggerHasZero && Math.abs(val) < zeroTolerance) {
+        continue;
+      }
+      // Advance j to the first element of bigger that matches val.  It is not advanced past the
+      // match, because the next element of smaller may match the same element of bigger.
+      while (true) {
+        if (j == bigger.length) {
+          return false;
+        }
+        double elt = bigger[j];
+        if (eq(val, elt)) {
+          break;
         }
-        if (val < bigger[j]) {
+        if (val < elt) {
           return false;
         }
+        j++;
       }
-      return false;
     }
-
     return true;
   }
 }
@@ -0,0 +1,1224 @@
+package org.plumelib.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.checkerframework.checker.index.qual.GTENegativeOne;
+import org.checkerframework.checker.index.qual.IndexOrHigh;
+import org.checkerframework.checker.index.qual.LTEqLengthOf;
+import org.checkerframework.checker.index.qual.LessThan;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.SameLen;
+import org.checkerframework.checker.lock.qual.GuardSatisfied;
+import org.checkerframework.checker.nullness.qual.EnsuresKeyFor;
+import org.checkerframework.checker.nullness.qual.KeyFor;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.nullness.qual.PolyNull;
+import org.checkerframework.checker.signedness.qual.PolySigned;
+import org.checkerframework.checker.signedness.qual.UnknownSignedness;
+import org.checkerframework.dataflow.qual.Pure;
+import org.checkerframework.dataflow.qual.SideEffectFree;
+
+/**
+ * A map backed by two arrays. It uses object identity (==), not {@code equals}, to compare keys and
+ * to compare values. It permits null keys and values, and its iterator has deterministic ordering.
+ *
+ * <p>Compared to IdentityHashMap: For very small maps, this uses much less space, has comparable
+ * performance, and (like a LinkedHashMap) is deterministic, with mappings returned in the order
+ * their keys were inserted. IdentityHashMap iterates in an order that depends on identity hash
+ * codes, which differ from run to run.
+ *
+ * <p>A small map searches its array of keys linearly. Once its size exceeds the index threshold (by
+ * default, {@value #DEFAULT_INDEX_THRESHOLD}), the map also maintains a hash index of its keys, so
+ * {@code get}, {@code containsKey}, and {@code put} take constant time rather than linear time.
+ * Removing a mapping still takes time linear in the size of the map, and {@code containsValue}
+ * always does.
+ *
+ * <p>Like IdentityHashMap, this class is not a general-purpose Map implementation: it violates the
+ * general contract of Map, which mandates the use of the {@code equals} method when comparing
+ * objects.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see ArrayMap
+ * @see IdentityArraySet
+ */
+@SuppressWarnings({
+  "index", // TODO
+  "keyfor", // https://tinyurl.com/cfissue/4558
+  "lock", // not yet annotated for the Lock Checker
+  "nullness" // temporary; nullness is tricky because of null-padded arrays
+})
+public class IdentityArrayMap<
+        K extends @UnknownSignedness Object, V extends @UnknownSignedness Object>
+    extends AbstractMap<K, V> implements Cloneable {
+
+  /** The default size past which a map maintains a hash index of its keys. */
+  public static final int DEFAULT_INDEX_THRESHOLD = IdentityIndex.DEFAULT_THRESHOLD;
+
+  // An alternate internal representation would be a list of Map.Entry objects (e.g.,
+  // AbstractMap.SimpleEntry) instead of two arrays for keys and values.  That is a bad idea
+  // because it both uses more memory and makes some operations more expensive.
+
+  /** The keys. Null if capacity=0. */
+  private @Nullable K @Nullable @SameLen("values") [] keys;
+
+  /** The values. Null if capacity=0. */
+  private @Nullable V @Nullable @SameLen("keys") [] values;
+
+  /** The number of used mappings in the representation of this. */
+  private @NonNegative @LessThan("keys.length + 1") @IndexOrHigh({"keys", "values"}) int size = 0;
+
+  /** The size past which this map maintains {@link #hashIndex}. */
+  private final int indexThreshold;
+
+  /** A hash index of {@link #keys}, or null if this map is not larger than its threshold. */
+  private @Nullable IdentityIndex hashIndex = null;
+
+  /**
+   * The number of times this map's size has been modified by adding or removing an element
+   * (changing the value associated with a key does not count as a change). This field is used to
+   * make view iterators fail-fast.
+   */
+  transient int sizeModificationCount = 0;
+
+  // Constructors
+
+  /**
+   * Constructs an empty {@code IdentityArrayMap} with the specified initial capacity.
+   *
+   * @param initialCapacity the initial capacity
+   * @throws IllegalArgumentException if the initial capacity is negative
+   */
+  @SideEffectFree
+  public IdentityArrayMap(int initialCapacity) {
+    this(initialCapacity, DEFAULT_INDEX_THRESHOLD);
+  }
+
+  /**
+   * Constructs an empty {@code IdentityArrayMap} with the specified initial capacity and index
+   * threshold.
+   *
+   * @param initialCapacity the initial capacity
+   * @param indexThreshold the size past which the map maintains a hash index of its keys; use
+   *     {@code Integer.MAX_VALUE} for a map that always searches linearly
+   * @throws IllegalArgumentException if the initial capacity or the index threshold is negative
+   */
+  @SuppressWarnings({
+    "unchecked", // generic array cast
+    "samelen:assignment", // initialization
+  })
+  @SideEffectFree
+  public IdentityArrayMap(int initialCapacity, int indexThreshold) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+    }
+    if (indexThreshold < 0) {
+      throw new IllegalArgumentException("Illegal index threshold: " + indexThreshold);
+    }
+    this.indexThreshold = indexThreshold;
+    if (initialCapacity == 0) {
+      this.keys = null;
+      this.values = null;
+    } else {
+      this.keys = (K[]) new Object[initialCapacity];
+      this.values = (V[]) new Object[initialCapacity];
+    }
+  }
+
+  /** Constructs an empty {@code IdentityArrayMap} with the default initial capacity. */
+  @SideEffectFree
+  public IdentityArrayMap() {
+    this(4);
+  }
+
+  /**
+   * Private constructor. Installs the given objects in this as its representation, without making
+   * defensive copies.
+   *
+   * @param keys the keys
+   * @param values the values
+   * @param size the number of used items in the arrays; may be less than their lengths
+   * @param indexThreshold the size past which the map maintains a hash index of its keys
+   */
+  @SideEffectFree
+  private IdentityArrayMap(
+      K @Nullable @SameLen("values") [] keys,
+      V @Nullable @SameLen("keys") [] values,
+      @LTEqLengthOf({"keys", "values"}) int size,
+      int indexThreshold) {
+    this.keys = keys;
+    this.values = values;
+    this.size = size;
+    this.indexThreshold = indexThreshold;
+    if (size > indexThreshold) {
+      this.hashIndex = new IdentityIndex(keys, size);
+    }
+  }
+
+  /**
+   * Constructs a new {@code IdentityArrayMap} with the same mappings as the given {@code Map}.
+   *
+   * @param m the map whose mappings are to be placed in this map
+   * @throws NullPointerException if the given map is null
+   */
+  @SuppressWarnings({
+    "allcheckers:purity", // initializes `this`
+    "lock:method.guarantee.violated", // initializes `this`
+    "nullness:method.invocation", // inference failure;
+    // https://github.com/typetools/checker-framework/issues/979 ?
+    "PMD.ConstructorCallsOverridableMethod",
+  })
+  @SideEffectFree
+  public IdentityArrayMap(Map<? extends K, ? extends V> m) {
+    this(m.size());
+    putAll(m);
+  }
+
+  // Private helper functions
+
+  /**
+   * Adds a (key, value) mapping to this.
+   *
+   * @param index the index of {@code key} in {@code keys}. If -1, add a new mapping. Otherwise,
+   *     replace the mapping at {@code index}.
+   * @param key the key
+   * @param value the value
+   */
+  @SuppressWarnings({
+    "InvalidParam", // Error Prone stupidly warns about field `keys`
+    "keyfor:contracts.postcondition" // insertion in keys array suffices
+  })
+  @EnsuresKeyFor(value = "#2", map = "this")
+  private void put(@GTENegativeOne int index, K key, V value) {
+    if (index == -1) {
+      // Add a new mapping.
+      grow();
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      sizeModificationCount++;
+      if (hashIndex != null) {
+        hashIndex.add(key);
+      } else if (size > indexThreshold) {
+        hashIndex = new IdentityIndex(keys, size);
+      }
+    } else {
+      // Replace an existing mapping.
+      assertIndexInBounds(index, "put");
+      values[index] = value;
+    }
+  }
+
+  /**
+   * Returns the capacity of this map.
+   *
+   * @return the capacity of this map
+   */
+  @Pure
+  private int capacity() {
+    if (keys == null) {
+      return 0;
+    } else {
+      return keys.length;
+    }
+  }
+
+  /**
+   * Throws an IndexOutOfBoundsException if the index is invalid.
+   *
+   * @param index an index into this
+   * @param method the method that will use the index
+   */
+  @SideEffectFree
+  private void assertIndexInBounds(int index, String method) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(
+          method + "(" + index + ",...) called on IdentityArrayMap of size " + size);
+    }
+  }
+
+  /** Increases the capacity of the arrays, if necessary. */
+  @SuppressWarnings({"unchecked"}) // generic array cast
+  private void grow() {
+    int capacity = capacity();
+    if (capacity == 0) {
+      this.keys = (K[]) new Object[4];
+      this.values = (V[]) new Object[4];
+    } else if (size == capacity) {
+      int newCapacity = 2 * capacity;
+      keys = Arrays.copyOf(keys, newCapacity);
+      values = Arrays.copyOf(values, newCapacity);
+    }
+  }
+
+  /**
+   * Remove the mapping at the given index. Does nothing if index is -1.
+   *
+   * @param index the index of the mapping to remove
+   * @return true if this map was modified
+   */
+  private boolean removeIndex(@GTENegativeOne int index) {
+    if (index == -1) {
+      return false;
+    }
+    assertIndexInBounds(index, "removeIndex");
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(values, index + 1, values, index, size - index - 1);
+    size--;
+    // Clear the now-unused slot so it does not retain references.
+    keys[size] = null;
+    values[size] = null;
+    sizeModificationCount++;
+    if (hashIndex != null) {
+      hashIndex.remove(index);
+    }
+    return true;
+  }
+
+  // Query Operations
+
+  @Pure
+  @Override
+  public @NonNegative int size() {
+    return size;
+  }
+
+  @Pure
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the index of the given key, or -1 if it does not appear. Uses {@code ==} for
+   * comparison.
+   *
+   * @param key a key to find
+   * @return the index of the given key, or -1 if it does not appear
+   */
+  @SuppressWarnings("interning:not.interned") // object identity comparison
+  @Pure
+  private int indexOfKey(@GuardSatisfied @Nullable @UnknownSignedness Object key) {
+    if (keys == null) {
+      return -1;
+    }
+    if (hashIndex != null) {
+      return hashIndex.find(key, keys);
+    }
+    // Comparing references is as cheap as comparing hash codes, so there is no need to compute the
+    // hash code of `key`.
+    for (int i = 0; i < size; i++) {
+      if (key == keys[i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the given value, or -1 if it does not appear. Uses {@code ==} for
+   * comparison.
+   *
+   * @param value a value to find
+   * @return the index of the given value, or -1 if it does not appear
+   */
+  @SuppressWarnings("interning:not.interned") // object identity comparison
+  @Pure
+  private int indexOfValue(@GuardSatisfied @Nullable @UnknownSignedness Object value) {
+    if (keys == null) {
+      return -1;
+    }
+    for (int i = 0; i < size; i++) {
+      if (value == values[i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Pure
+  @Override
+  @SuppressWarnings("keyfor:contracts.conditional.postcondition") // delegate test to `keys` field
+  public boolean containsKey(@GuardSatisfied @Nullable @UnknownSignedness Object key) {
+    return indexOfKey(key) != -1;
+  }
+
+  @Pure
+  @Override
+  public boolean containsValue(@GuardSatisfied @Nullable @UnknownSignedness Object value) {
+    return indexOfValue(value) != -1;
+  }
+
+  /**
+   * Returns true if this map contains the given mapping. Uses {@code ==} for comparison.
+   *
+   * @param key the key
+   * @param value the value
+   * @return true if this map contains the given mapping
+   */
+  @SuppressWarnings("interning:not.interned") // object identity comparison
+  @Pure
+  private boolean containsEntry(
+      @GuardSatisfied @Nullable @UnknownSignedness Object key,
+      @GuardSatisfied @Nullable @UnknownSignedness Object value) {
+    int index = indexOfKey(key);
+    return index != -1 && value == values[index];
+  }
+
+  @Pure
+  @Override
+  public @Nullable V get(@GuardSatisfied @Nullable @UnknownSignedness Object key) {
+    int index = indexOfKey(key);
+    return getOrNull(index);
+  }
+
+  /**
+   * Returns the value at the given index, or null if the index is -1.
+   *
+   * @param index the index
+   * @return the value at the given index, or null if the index is -1
+   */
+  @Pure
+  private @Nullable V getOrNull(@GTENegativeOne int index) {
+    if (index == -1) {
+      return null;
+    }
+    assertIndexInBounds(index, "getOrNull");
+    return values[index];
+  }
+
+  // Modification Operations
+
+  @Override
+  public @Nullable V put(K key, V value) {
+    int index = indexOfKey(key);
+    V currentValue = getOrNull(index);
+    put(index, key, value);
+    return currentValue;
+  }
+
+  @Override
+  public @Nullable V remove(@GuardSatisfied @Nullable @UnknownSignedness Object key) {
+    int index = indexOfKey(key);
+    // cannot use removeIndex because it has the wrong return type
+    if (index == -1) {
+      return null;
+    }
+    V currentValue = values[index];
+    removeIndex(index);
+    return currentValue;
+  }
+
+  // Bulk Operations
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    if (m.isEmpty()) {
+      return;
+    }
+    for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public void clear() {
+    if (size != 0) {
+      // Clear the slots so they do not retain references.  A nonzero size implies that the arrays
+      // are non-null.
+      Arrays.fill(keys, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+      hashIndex = null;
+      sizeModificationCount++;
+    }
+  }
+
+  // Views
+
+  /** A view of the keys. */
+  transient @MonotonicNonNull Set<@KeyFor("this") K> keySet = null;
+
+  // Behavior is undefined if the map is changed while the sets are being iterated through, so these
+  // implementations can assume there are no concurrent side effects.
+  @Pure
+  @SuppressWarnings("allcheckers:purity") // update cache
+  @Override
+  public Set<@KeyFor("this") K> keySet() {
+    if (keySet == null) {
+      keySet = new KeySet();
+    }
+    return keySet;
+  }
+
+  /** Represents a view of the keys. */
+  final class KeySet extends AbstractSet<@KeyFor("this") K> {
+
+    /** Creates a new KeySet. */
+    public KeySet() {}
+
+    @Pure
+    @Override
+    public final @NonNegative int size() {
+      return IdentityArrayMap.this.size();
+    }
+
+    @Override
+    public final void clear() {
+      IdentityArrayMap.this.clear();
+    }
+
+    @Override
+    public final Iterator<@KeyFor("this") K> iterator() {
+      return new KeyIterator();
+    }
+
+    @Pure
+    @Override
+    public final boolean contains(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+      return containsKey(o);
+    }
+
+    @Override
+    public final boolean remove(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+      int index = indexOfKey(o);
+      return removeIndex(index);
+    }
+
+    @SideEffectFree
+    @Override
+    public @PolySigned Object[] toArray() {
+      // toArray must return a new array because clients are permitted to modify it.
+      if (keys == null) {
+        return new @PolySigned Object[0];
+      }
+      return (@PolySigned Object[]) Arrays.copyOf(keys, size);
+    }
+
+    @SuppressWarnings({
+      "unchecked", // generic array cast
+      "nullness", // Nullness Checker special-cases toArray
+      // `toArray(T[])` is inherited as @SideEffectFree, but its specification requires writing
+      // into the caller-supplied array.
+      "allcheckers:purity.not.sideeffectfree.assign.array",
+    })
+    @Override
+    public <T> @Nullable T[] toArray(@PolyNull T[] a) {
+      T[] result;
+      if (a.length >= size) {
+        result = a;
+      } else {
+        result = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+      }
+      if (keys != null) {
+        System.arraycopy(keys, 0, result, 0, size);
+      }
+      if (a.length > size) {
+        result[size] = null;
+      }
+      return result;
+    }
+
+    @Override
+    public final void forEach(Consumer<? super K> action) {
+      if (keys == null) {
+        return;
+      }
+      int oldSizeModificationCount = sizeModificationCount;
+      for (int i = 0; i < size; i++) {
+        K key = keys[i];
+        action.accept(key);
+      }
+      if (oldSizeModificationCount != sizeModificationCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  /** The view of the values. */
+  transient @MonotonicNonNull Collection<V> valuesCollection = null;
+
+  @Pure
+  @SuppressWarnings("allcheckers:purity")
+  @Override
+  public Collection<V> values() {
+    if (valuesCollection == null) {
+      valuesCollection = new Values();
+    }
+    return valuesCollection;
+  }
+
+  /** Represents a view of the values. */
+  final class Values extends AbstractCollection<V> {
+
+    /** Creates a new Values. */
+    public Values() {}
+
+    @Pure
+    @Override
+    public final @NonNegative int size() {
+      return IdentityArrayMap.this.size();
+    }
+
+    @Override
+    public final void clear() {
+      IdentityArrayMap.this.clear();
+    }
+
+    @Override
+    public final Iterator<V> iterator() {
+      return new ValueIterator();
+    }
+
+    @Pure
+    @Override
+    public final boolean contains(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+      return containsValue(o);
+    }
+
+    @SuppressWarnings({"nullness:override.return"}) // polymorphism problem
+    @SideEffectFree
+    @Override
+    public @Nullable @PolySigned Object[] toArray() {
+      // toArray must return a new array because clients are permitted to modify it.
+      if (values == null) {
+        return new @Nullable @PolySigned Object[0];
+      }
+      return (@Nullable @PolySigned Object[]) Arrays.copyOf(values, size);
+    }
+
+    @SuppressWarnings({
+      "unchecked", // generic array cast
+      "nullness", // Nullness Checker special-cases toArray
+      // `toArray(T[])` is inherited as @SideEffectFree, but its specification requires writing
+      // into the caller-supplied array.
+      "allcheckers:purity.not.sideeffectfree.assign.array",
+    })
+    @Override
+    public <T> @Nullable T[] toArray(@PolyNull T[] a) {
+      T[] result;
+      if (a.length >= size) {
+        result = a;
+      } else {
+        result = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+      }
+      if (values != null) {
+        System.arraycopy(values, 0, result, 0, size);
+      }
+      if (a.length > size) {
+        result[size] = null;
+      }
+      return result;
+    }
+
+    @Override
+    public final void forEach(Consumer<? super V> action) {
+      if (keys == null) {
+        return;
+      }
+      int oldSizeModificationCount = sizeModificationCount;
+      for (int i = 0; i < size; i++) {
+        action.accept(values[i]);
+      }
+      if (oldSizeModificationCount != sizeModificationCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  /** The view of the entries. */
+  transient @MonotonicNonNull Set<Map.Entry<@KeyFor("this") K, V>> entrySet = null;
+
+  @SuppressWarnings("allcheckers:purity")
+  @Pure
+  @Override
+  public Set<Map.Entry<@KeyFor("this") K, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  /** Represents a view of the entries. */
+  final class EntrySet extends AbstractSet<Map.Entry<@KeyFor("this") K, V>> {
+
+    /** Creates a new EntrySet. */
+    public EntrySet() {}
+
+    @Pure
+    @Override
+    public final @NonNegative int size() {
+      return IdentityArrayMap.this.size();
+    }
+
+    @Override
+    public final void clear() {
+      IdentityArrayMap.this.clear();
+    }
+
+    @Override
+    public final Iterator<Map.Entry<@KeyFor("IdentityArrayMap.this") K, V>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Pure
+    @Override
+    public final boolean contains(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+      Object key = e.getKey();
+      Object value = e.getValue();
+      return containsEntry(key, value);
+    }
+
+    @Override
+    public final boolean remove(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+      if (o instanceof Map.Entry) {
+        Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+        Object key = e.getKey();
+        Object value = e.getValue();
+        return IdentityArrayMap.this.remove(key, value);
+      }
+      return false;
+    }
+
+    // toArray() and toArray(T[] a) are inherited.
+
+    @SuppressWarnings({
+      "interning:argument", // TODO: investigate later
+      "signature:argument", // TODO: investigate later
+    })
+    @Override
+    public final void forEach(
+        Consumer<? super Map.Entry<@KeyFor("IdentityArrayMap.this") K, V>> action) {
+      int oldSizeModificationCount = sizeModificationCount;
+      for (int index = 0; index < size(); index++) {
+        action.accept(new Entry(index));
+      }
+      if (oldSizeModificationCount != sizeModificationCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // iterators
+
+  /**
+   * An iterator over the IdentityArrayMap.
+   *
+   * @param <T> the type of the iteration value
+   */
+  @SuppressWarnings(
+      "AbstractClassWithoutAbstractMethod" // next() is generic but this class need not be
+  )
+  abstract class IdentityArrayMapIterator<T> implements Iterator<T> {
+    /** The first unread index; the index of the next value to return. */
+    @NonNegative int index;
+
+    /** True if remove() has been called since the last call to next(). */
+    boolean removed;
+
+    /** The modification count when the iterator is created, for fail-fast. */
+    int initialSizeModificationCount;
+
+    /** Creates a new IdentityArrayMapIterator. */
+    @SideEffectFree
+    IdentityArrayMapIterator() {
+      index = 0;
+      removed = true; // can't remove until next() has been called
+      initialSizeModificationCount = sizeModificationCount;
+    }
+
+    /**
+     * Returns true if this has another element.
+     *
+     * @return true if this has another element
+     */
+    @Pure
+    @Override
+    public final boolean hasNext() {
+      return index < size();
+    }
+
+    @Override
+    public abstract T next();
+
+    /** Removes the previously-returned element. */
+    @Override
+    public final void remove() {
+      if (removed) {
+        throw new IllegalStateException(
+            "Called remove() on IdentityArrayMapIterator without calling next() first.");
+      }
+      if (initialSizeModificationCount != sizeModificationCount) {
+        throw new ConcurrentModificationException();
+      }
+      // Remove the previously returned element, so use index-1.
+      @SuppressWarnings("lowerbound:assignment") // removed==false, so index>0.
+      @NonNegative int newIndex = index - 1;
+      index = newIndex;
+      IdentityArrayMap.this.removeIndex(index);
+      initialSizeModificationCount = sizeModificationCount;
+      removed = true;
+    }
+  }
+
+  /** An iterator over the keys. */
+  final class KeyIterator extends IdentityArrayMapIterator<@KeyFor("this") K> {
+    /** Creates a new KeyIterator. */
+    @SideEffectFree
+    KeyIterator() {}
+
+    @Override
+    public final @KeyFor("IdentityArrayMap.this") K next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      removed = false;
+      return keys[index++];
+    }
+  }
+
+  /** An iterator over the values. */
+  final class ValueIterator extends IdentityArrayMapIterator<V> {
+    /** Creates a new ValueIterator. */
+    @SideEffectFree
+    ValueIterator() {}
+
+    @Override
+    public final V next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      removed = false;
+      return values[index++];
+    }
+  }
+
+  /** An iterator over the entries. */
+  final class EntryIterator extends IdentityArrayMapIterator<Map.Entry<K, V>> {
+    /** Creates a new EntryIterator. */
+    @SideEffectFree
+    EntryIterator() {}
+
+    @Override
+    public final Map.Entry<K, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      removed = false;
+      return new Entry(index++);
+    }
+  }
+
+  // An alternate representation would be a triple of index, key, and value.
+  //  * That would make Entry objects a bit larger (more allocation would be necessary, though the
+  //    same *number* of objects), and would take a tiny bit more computation to create.
+  //  * That would make calling getKey and getValue slightly cheaper if they are called multiple
+  //    times (a local lookup instead of calling an ArrayList method).
+  //  * That would provide less surprising results for some illegal client code.  Removing from the
+  //    entrySet iterator and then calling any entry method (getKey, getValue, setValue) has
+  //    undefined behavior, but clients might try to do it.  This could issue
+  //    ConcurrentModificationException in that case, by checking that the values in the array still
+  //    match those stored in the entry.
+
+  // Per the specification of Map.Entry, a map entry is meaningful only during the execution of the
+  // iteration over the entry set, and only if the backing map has not been modified except through
+  // calling {@code setValue} on the map entry.
+  /** An entrySet() entry. Tracks the containing list and the index. */
+  final class Entry implements Map.Entry<K, V> {
+    /** The index. */
+    @NonNegative int index;
+
+    /**
+     * Creates a new map entry.
+     *
+     * @param index the index
+     */
+    @SuppressWarnings("allcheckers:purity") // initializes `this`
+    @Pure
+    public Entry(@NonNegative int index) {
+      this.index = index;
+    }
+
+    @Pure
+    @Override
+    public K getKey() {
+      return keys[index];
+    }
+
+    @Pure
+    @Override
+    public V getValue() {
+      return values[index];
+    }
+
+    @Override
+    public V setValue(V value) {
+      // Do not increment sizeModificationCount.
+      values[index] = value;
+      return value;
+    }
+
+    /**
+     * Returns the IdentityArrayMap associated with this entry.
+     *
+     * @return the IdentityArrayMap associated with this entry
+     */
+    @Pure
+    private IdentityArrayMap<K, V> theIdentityArrayMap() {
+      return IdentityArrayMap.this;
+    }
+
+    // Per the specification of Map.Entry, this does not compare the underlying list and index.
+    @Pure
+    @Override
+    public boolean equals(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o instanceof IdentityArrayMap.Entry) {
+        @SuppressWarnings("unchecked")
+        Entry otherEntry = (Entry) o;
+        @SuppressWarnings({"interning:not.interned", "ReferenceEquality"}) // fast special case test
+        boolean result =
+            this.index == otherEntry.index
+                && this.theIdentityArrayMap() == otherEntry.theIdentityArrayMap();
+        if (result) {
+          return true;
+        }
+        // else fall through
+      }
+      if (o instanceof Map.Entry) {
+        @SuppressWarnings("unchecked")
+        Map.Entry<K, V> otherEntry = (Map.Entry<K, V>) o;
+        @SuppressWarnings({"interning:not.interned", "ReferenceEquality"}) // object identity
+        boolean result =
+            this.getKey() == otherEntry.getKey() && this.getValue() == otherEntry.getValue();
+        return result;
+      }
+      return false;
+    }
+
+    @Pure
+    @Override
+    public int hashCode(IdentityArrayMap<K, V>.Entry this) {
+      // Like Map.Entry.hashCode(), but using identity hash codes, as IdentityHashMap does.
+      return System.identityHashCode(getKey()) ^ System.identityHashCode(getValue());
+    }
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Comparison and hashing:  hashCode is inherited from AbstractMap.  It sums the hash codes of the
+  // entries, which are identity hash codes.
+
+  /**
+   * Compares the given object with this map for equality. If the given object is also an {@code
+   * IdentityArrayMap}, the two maps are equal if they contain the same mappings according to
+   * object identity, as for IdentityHashMap. Otherwise, this uses the general contract of Map.
+   *
+   * @param o the object to compare with this map
+   * @return true if the given object is equal to this map
+   */
+  @Pure
+  @Override
+  public boolean equals(@GuardSatisfied @Nullable @UnknownSignedness Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof IdentityArrayMap<?, ?> other) {
+      if (other.size() != size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (!other.containsEntry(keys[i], values[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return super.equals(o);
+  }
+
+  @Pure
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  // Defaultable methods
+
+  @SideEffectFree
+  @Override
+  public V getOrDefault(@GuardSatisfied @Nullable @UnknownSignedness Object key, V defaultValue) {
+    int index = indexOfKey(key);
+    if (index != -1) {
+      return values[index];
+    } else {
+      return defaultValue;
+    }
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    Objects.requireNonNull(action);
+    if (keys == null) {
+      return;
+    }
+    int oldSizeModificationCount = sizeModificationCount;
+    for (int index = 0; index < size; index++) {
+      K k;
+      V v;
+      try {
+        k = keys[index];
+        v = values[index];
+      } catch (IndexOutOfBoundsException e) {
+        throw new ConcurrentModificationException(e);
+      }
+      action.accept(k, v);
+    }
+    if (oldSizeModificationCount != sizeModificationCount) {
+      throw new ConcurrentModificationException();
+    }
+  }
+
+  @Override
+  public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+    Objects.requireNonNull(function);
+    if (keys == null) {
+      return;
+    }
+    int oldSizeModificationCount = sizeModificationCount;
+    int size = size();
+    for (int index = 0; index < size; index++) {
+      K k;
+      V v;
+      try {
+        k = keys[index];
+        v = values[index];
+      } catch (IndexOutOfBoundsException e) {
+        throw new ConcurrentModificationException(e);
+      }
+      v = function.apply(k, v);
+
+      try {
+        values[index] = v;
+        // Do not increment sizeModificationCount.
+      } catch (IndexOutOfBoundsException e) {
+        throw new ConcurrentModificationException(e);
+      }
+    }
+    if (oldSizeModificationCount != sizeModificationCount) {
+      throw new ConcurrentModificationException();
+    }
+  }
+
+  @Override
+  public @Nullable V putIfAbsent(K key, V value) {
+    int index = indexOfKey(key);
+    if (index == -1 || values[index] == null) {
+      put(index, key, value);
+      return null;
+    } else {
+      return values[index];
+    }
+  }
+
+  @Override
+  public boolean remove(
+      @GuardSatisfied @Nullable @UnknownSignedness Object key,
+      @GuardSatisfied @Nullable @UnknownSignedness Object value) {
+    int index = indexOfKey(key);
+    if (index == -1) {
+      return false;
+    }
+    @SuppressWarnings("interning:not.interned") // object identity comparison
+    boolean same = values[index] == value;
+    if (!same) {
+      return false;
+    }
+    removeIndex(index);
+    return true;
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    int index = indexOfKey(key);
+    if (index == -1) {
+      return false;
+    }
+    @SuppressWarnings("interning:not.interned") // object identity comparison
+    boolean same = values[index] == oldValue;
+    if (!same) {
+      return false;
+    }
+    values[index] = newValue;
+    // Do not increment sizeModificationCount.
+    return true;
+  }
+
+  @Override
+  public @Nullable V replace(K key, V value) {
+    int index = indexOfKey(key);
+    if (index == -1) {
+      return null;
+    }
+    V currentValue = values[index];
+    values[index] = value;
+    // Do not increment sizeModificationCount.
+    return currentValue;
+  }
+
+  @Override
+  public @PolyNull V computeIfAbsent(
+      K key, Function<? super K, ? extends @PolyNull V> mappingFunction) {
+    Objects.requireNonNull(mappingFunction);
+    int index = indexOfKey(key);
+    if (index != -1) {
+      V currentValue = values[index];
+      if (currentValue != null) {
+        return currentValue;
+      }
+    }
+    // either index == -1, or values[index]==null.
+    int oldSizeModificationCount = sizeModificationCount;
+    V newValue = mappingFunction.apply(key);
+    if (oldSizeModificationCount != sizeModificationCount) {
+      throw new ConcurrentModificationException();
+    }
+    if (newValue != null) {
+      put(index, key, newValue);
+    }
+    return newValue;
+  }
+
+  @Override
+  public @PolyNull V computeIfPresent(
+      K key, BiFunction<? super K, ? super V, ? extends @PolyNull V> remappingFunction) {
+    Objects.requireNonNull(remappingFunction);
+    int index = indexOfKey(key);
+    if (index == -1) {
+      @SuppressWarnings("nullness:assignment")
+      @PolyNull V result = null;
+      return result;
+    }
+    V oldValue = values[index];
+    if (oldValue == null) {
+      @SuppressWarnings("nullness:assignment")
+      @PolyNull V result = null;
+      return result;
+    }
+    // index != -1  and  values[index] != null.
+    int oldSizeModificationCount = sizeModificationCount;
+    V newValue = remappingFunction.apply(key, oldValue);
+    if (oldSizeModificationCount != sizeModificationCount) {
+      throw new ConcurrentModificationException();
+    }
+    if (newValue != null) {
+      values[index] = newValue;
+      // Do not increment sizeModificationCount.
+      return newValue;
+    } else {
+      removeIndex(index);
+      return null;
+    }
+  }
+
+  @Override
+  public @PolyNull V compute(
+      K key, BiFunction<? super K, ? super @Nullable V, ? extends @PolyNull V> remappingFunction) {
+    Objects.requireNonNull(remappingFunction);
+    int index = indexOfKey(key);
+    V oldValue = getOrNull(index);
+    int oldSizeModificationCount = sizeModificationCount;
+    V newValue = remappingFunction.apply(key, oldValue);
+    if (oldSizeModificationCount != sizeModificationCount) {
+      throw new ConcurrentModificationException();
+    }
+    if (newValue == null) {
+      removeIndex(index);
+      return null;
+    } else {
+      put(index, key, newValue);
+      return newValue;
+    }
+  }
+
+  @Override
+  public @PolyNull V merge(
+      K key,
+      @NonNull V value,
+      BiFunction<? super V, ? super V, ? extends @PolyNull V> remappingFunction) {
+    Objects.requireNonNull(remappingFunction);
+    Objects.requireNonNull(value);
+    int index = indexOfKey(key);
+    V oldValue = getOrNull(index);
+    int oldSizeModificationCount = sizeModificationCount;
+    @PolyNull V newValue;
+    if (oldValue == null) {
+      newValue = value;
+    } else {
+      newValue = remappingFunction.apply(oldValue, value);
+    }
+    if (oldSizeModificationCount != sizeModificationCount) {
+      throw new ConcurrentModificationException();
+    }
+    if (newValue == null) {
+      removeIndex(index);
+    } else {
+      put(index, key, newValue);
+    }
+    return newValue;
+  }
+
+  /**
+   * Returns a copy of this.
+   *
+   * @return a copy of this
+   */
+  @SuppressWarnings({"unchecked", "PMD.ProperCloneImplementation"})
+  @SideEffectFree
+  @Override
+  public IdentityArrayMap<K, V> clone() {
+    if (keys == null) {
+      return new IdentityArrayMap<>(null, null, 0, indexThreshold);
+    } else {
+      return new IdentityArrayMap<>(
+          Arrays.copyOf(keys, size), Arrays.copyOf(values, size), size, indexThreshold);
+    }
+  }
+
+  /**
+   * Returns the internal representation, printed.
+   *
+   * @return the internal representation, printed
+   */
+  @SideEffectFree
+  /* package-private */ String repr() {
+    return String.format(
+        "size=%d capacity=%d indexed=%s %s %s",
+        size,
+        (keys == null ? 0 : keys.length),
+        hashIndex != null,
+        Arrays.toString(keys),
+        Arrays.toString(values));
+  }
+}
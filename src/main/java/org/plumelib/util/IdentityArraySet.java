@@ -26,8 +26,12 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
  *
  * <p>Compared to a set built on IdentityHashMap: For very small sets, this uses much less space,
  * has comparable performance, and (like a LinkedHashSet) is deterministic, with elements returned
- * in the order they were inserted. For large sets, this is significantly less performant than other
- * set implementations.
+ * in the order they were inserted.
+ *
+ * <p>A small set searches its array linearly. Once its size exceeds the index threshold (by
+ * default, {@value #DEFAULT_INDEX_THRESHOLD}), the set also maintains a hash index of its elements,
+ * so {@code contains} and {@code add} take constant time rather than linear time. Removing an
+ * element still takes time linear in the size of the set.
  *
  * @param <E> the type of the set elements
  */
@@ -40,13 +44,20 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 public class IdentityArraySet<E extends @UnknownSignedness Object> extends AbstractSet<E>
     implements Cloneable {
 
+  /** The default size past which a set maintains a hash index of its elements. */
+  public static final int DEFAULT_INDEX_THRESHOLD = IdentityIndex.DEFAULT_THRESHOLD;
+
   /** The values. Null if capacity=0. */
   private @Nullable E[] values;
 
   /** The number of used slots in the representation of this. */
   private @NonNegative @LessThan("values.length + 1") @IndexOrHigh({"values"}) int size = 0;
 
-  // An alternate representation would also store the hash code of each key, for quicker querying.
+  /** The size past which this set maintains {@link #hashIndex}. */
+  private final int indexThreshold;
+
+  /** A hash index of {@link #values}, or null if this set is not larger than its threshold. */
+  private @Nullable IdentityIndex hashIndex = null;
 
   /**
    * The number of times this set's size has been modified by adding or removing an element. This
@@ -62,6 +73,20 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
    * @param initialCapacity the initial capacity
    * @throws IllegalArgumentException if the initial capacity is negative
    */
+  @SideEffectFree
+  public IdentityArraySet(int initialCapacity) {
+    this(initialCapacity, DEFAULT_INDEX_THRESHOLD);
+  }
+
+  /**
+   * Constructs an empty {@code IdentityArraySet} with the specified initial capacity and index
+   * threshold.
+   *
+   * @param initialCapacity the initial capacity
+   * @param indexThreshold the size past which the set maintains a hash index of its elements; use
+   *     {@code Integer.MAX_VALUE} for a set that always searches linearly
+   * @throws IllegalArgumentException if the initial capacity or the index threshold is negative
+   */
   @SuppressWarnings({
     "unchecked", // generic array cast
     "samelen:assignment", // initialization
@@ -69,10 +94,14 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
     "allcheckers:purity.not.sideeffectfree.call" // calls `super`
   })
   @SideEffectFree
-  public IdentityArraySet(int initialCapacity) {
+  public IdentityArraySet(int initialCapacity, int indexThreshold) {
     if (initialCapacity < 0) {
       throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
     }
+    if (indexThreshold < 0) {
+      throw new IllegalArgumentException("Illegal index threshold: " + indexThreshold);
+    }
+    this.indexThreshold = indexThreshold;
     if (initialCapacity == 0) {
       this.values = null;
     } else {
@@ -92,6 +121,7 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
    *
    * @param values the values
    * @param size the number of used items in the array; may be less than its length
+   * @param indexThreshold the size past which the set maintains a hash index of its elements
    */
   @SuppressWarnings({
     "samelen:assignment", // initialization
@@ -99,9 +129,14 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
     "allcheckers:purity.not.sideeffectfree.call" // calls `super`
   })
   @SideEffectFree
-  private IdentityArraySet(E[] values, @LTEqLengthOf({"values"}) int size) {
+  private IdentityArraySet(
+      E @Nullable [] values, @LTEqLengthOf({"values"}) int size, int indexThreshold) {
     this.values = values;
     this.size = size;
+    this.indexThreshold = indexThreshold;
+    if (size > indexThreshold) {
+      this.hashIndex = new IdentityIndex(values, size);
+    }
   }
 
   /**
@@ -144,6 +179,11 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
     values[size] = value;
     size++;
     sizeModificationCount++;
+    if (hashIndex != null) {
+      hashIndex.add(value);
+    } else if (size > indexThreshold) {
+      hashIndex = new IdentityIndex(values, size);
+    }
     return true;
   }
 
@@ -201,7 +241,12 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
     assertIndexInBounds(index, "removeIndex");
     System.arraycopy(values, index + 1, values, index, size - index - 1);
     size--;
+    // Clear the now-unused slot so it does not retain a reference.
+    values[size] = null;
     sizeModificationCount++;
+    if (hashIndex != null) {
+      hashIndex.remove(index);
+    }
     return true;
   }
 
@@ -232,6 +277,11 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
     if (values == null) {
       return -1;
     }
+    if (hashIndex != null) {
+      return hashIndex.find(value, values);
+    }
+    // Comparing references is as cheap as comparing hash codes, so there is no need to compute the
+    // hash code of `value`.
     for (int i = 0; i < size; i++) {
       if (value == values[i]) {
         return i;
@@ -283,7 +333,11 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
   @Override
   public void clear() {
     if (size != 0) {
+      // Clear the slots so they do not retain references.  A nonzero size implies that the array
+      // is non-null.
+      Arrays.fill(values, 0, size, null);
       size = 0;
+      hashIndex = null;
       sizeModificationCount++;
     }
   }
@@ -391,9 +445,9 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
   @Override
   public IdentityArraySet<E> clone() {
     if (values == null) {
-      return new IdentityArraySet<>(null, 0);
+      return new IdentityArraySet<>(null, 0, indexThreshold);
     } else {
-      return new IdentityArraySet<>(Arrays.copyOf(values, size), size);
+      return new IdentityArraySet<>(Arrays.copyOf(values, size), size, indexThreshold);
     }
   }
 
@@ -405,7 +459,7 @@ public class IdentityArraySet<E extends @UnknownSignedness Object> extends Abstr
   @SideEffectFree
   /* package-private */ String repr() {
     return String.format(
-        "size=%d capacity=%s %s",
-        size, (values == null ? 0 : values.length), Arrays.toString(values));
+        "size=%d capacity=%s indexed=%s %s",
+        size, (values == null ? 0 : values.length), hashIndex != null, Arrays.toString(values));
   }
 }
@@ -0,0 +1,157 @@
+package org.plumelib.util;
+
+import java.util.Arrays;
+import org.checkerframework.checker.index.qual.GTENegativeOne;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.qual.Pure;
+
+/**
+ * A hash index from objects, compared by identity ({@code ==}), to their positions in an array.
+ * {@link IdentityArraySet} and {@link IdentityArrayMap} scan their arrays linearly while they are
+ * small, and build an IdentityIndex when they grow past a threshold.
+ *
+ * <p>The index does not store the objects; the client passes its array to {@link #find}. The index
+ * stores the identity hash code of each object, so that it never recomputes one when it grows or
+ * when an object moves within the array. The table uses open addressing with linear probing, and
+ * it is at most half full.
+ */
+@SuppressWarnings("index") // positions are bounded by the size of the client's array
+final class IdentityIndex {
+
+  /** The default size past which a client builds an index. */
+  static final int DEFAULT_THRESHOLD = 8;
+
+  /** The identity hash code of each indexed object, by its position in the client's array. */
+  private int[] hashes;
+
+  /** The number of indexed objects, which occupy positions 0 through size-1. */
+  private @NonNegative int size;
+
+  /**
+   * The hash table. Each slot is 1 plus the position of an object, or 0 if the slot is empty. Its
+   * length is a power of 2 that is at least twice {@link #size}.
+   */
+  private int[] table;
+
+  /**
+   * Creates an index of the first {@code size} elements of the given array.
+   *
+   * @param elements the client's array
+   * @param size the number of elements to index; the elements must be distinct
+   */
+  IdentityIndex(@Nullable Object[] elements, @NonNegative int size) {
+    this.hashes = new int[Math.max(elements.length, 4)];
+    for (int i = 0; i < size; i++) {
+      hashes[i] = System.identityHashCode(elements[i]);
+    }
+    this.size = size;
+    this.table = new int[tableLength(size)];
+    fillTable();
+  }
+
+  /**
+   * Returns the length of a table for the given number of objects.
+   *
+   * @param size a number of objects
+   * @return a power of 2 that is at least {@code 2 * size}
+   */
+  @Pure
+  private static int tableLength(int size) {
+    int length = 16;
+    while (length < 2 * size) {
+      length *= 2;
+    }
+    return length;
+  }
+
+  /**
+   * Scrambles an identity hash code, so that its low bits can index the table.
+   *
+   * @param hash an identity hash code
+   * @return the index of the first table slot to probe, before masking
+   */
+  @Pure
+  private static int spread(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** Inserts every indexed position into {@link #table}, which must be empty. */
+  private void fillTable() {
+    for (int i = 0; i < size; i++) {
+      insert(i);
+    }
+  }
+
+  /**
+   * Inserts a position into {@link #table}.
+   *
+   * @param position a position whose hash code is in {@link #hashes}
+   */
+  private void insert(@NonNegative int position) {
+    int mask = table.length - 1;
+    int i = spread(hashes[position]) & mask;
+    while (table[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    table[i] = position + 1;
+  }
+
+  /**
+   * Returns the position of the given object in the client's array, or -1 if it does not appear.
+   * Compares hash codes before comparing references.
+   *
+   * @param key the object to find
+   * @param elements the client's array, which this indexes
+   * @return the position of {@code key} in {@code elements}, or -1 if it does not appear
+   */
+  @SuppressWarnings("interning:not.interned") // object identity comparison
+  @Pure
+  @GTENegativeOne int find(@Nullable Object key, @Nullable Object[] elements) {
+    int hash = System.identityHashCode(key);
+    int mask = table.length - 1;
+    for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+      int slot = table[i];
+      if (slot == 0) {
+        return -1;
+      }
+      int position = slot - 1;
+      if (hashes[position] == hash && elements[position] == key) {
+        return position;
+      }
+    }
+  }
+
+  /**
+   * Indexes an object that the client has appended to its array, at position {@code size}.
+   *
+   * @param element the object that was appended
+   */
+  void add(@Nullable Object element) {
+    if (size == hashes.length) {
+      hashes = Arrays.copyOf(hashes, 2 * size);
+    }
+    hashes[size] = System.identityHashCode(element);
+    size++;
+    if (2 * size > table.length) {
+      table = new int[tableLength(size)];
+      fillTable();
+    } else {
+      insert(size - 1);
+    }
+  }
+
+  /**
+   * Updates this index after the client removes the object at the given position and shifts the
+   * later objects down by one. Takes time linear in the size of the index.
+   *
+   * @param position the position of the removed object
+   */
+  void remove(@NonNegative int position) {
+    System.arraycopy(hashes, position + 1, hashes, position, size - position - 1);
+    size--;
+    Arrays.fill(table, 0);
+    fillTable();
+  }
+}
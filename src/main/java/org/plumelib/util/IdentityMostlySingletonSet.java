@@ -2,16 +2,17 @@ package org.plumelib.util;
 
 import java.util.Collections;
 import java.util.IdentityHashMap;
-import org.checkerframework.checker.interning.qual.FindDistinct;
+import java.util.Set;
 import org.checkerframework.checker.lock.qual.GuardSatisfied;
 import org.checkerframework.checker.signedness.qual.UnknownSignedness;
 
 /**
- * An arbitrary-size set that is very efficient (more efficient than HashSet) for 0 and 1 elements.
- * Uses object identity for object comparison.
+ * An arbitrary-size set that is very efficient (more efficient than HashSet) for 0 and 1 elements,
+ * and compact for a few more. Uses object identity for object comparison. Once it has more than
+ * {@link #SMALL_CAPACITY} elements, it uses a set backed by an {@link IdentityHashMap}.
  *
- * <p>Usually, you should use {@link IdentityArraySet} instead. The advantage of this over {@link
- * IdentityArraySet} is that this is efficient for large sets.
+ * <p>Usually, you should use {@link IdentityArraySet} instead. This class is appropriate when most
+ * sets have 0 or 1 elements.
  *
  * @param <T> the type of elements of the set
  */
@@ -33,52 +34,14 @@ public final class IdentityMostlySingletonSet<T extends Object>
     super(State.SINGLETON, value);
   }
 
+  @SuppressWarnings("interning:not.interned") // this class uses object identity
   @Override
-  public boolean add(@GuardSatisfied IdentityMostlySingletonSet<T> this, @FindDistinct T e) {
-    return switch (state) {
-      case EMPTY -> {
-        state = State.SINGLETON;
-        value = e;
-        yield true;
-      }
-      case SINGLETON -> {
-        if (value == e) {
-          yield false;
-        }
-        makeNonSingleton();
-        assert set != null : "@AssumeAssertion(nullness): set initialized before";
-        yield set.add(e);
-      }
-      case ANY -> {
-        assert set != null : "@AssumeAssertion(nullness): set initialized before";
-        yield set.add(e);
-      }
-      default -> throw new IllegalStateException("Unhandled state " + state);
-    };
-  }
-
-  /** Switch the representation of this from SINGLETON to ANY. */
-  private void makeNonSingleton(@GuardSatisfied IdentityMostlySingletonSet<T> this) {
-    state = State.ANY;
-    set = Collections.newSetFromMap(new IdentityHashMap<>(4));
-    assert value != null : "@AssumeAssertion(nullness): previous add is non-null";
-    set.add(value);
-    value = null;
+  protected boolean isSame(T element, @GuardSatisfied @UnknownSignedness Object o) {
+    return element == o;
   }
 
-  @SuppressWarnings("interning:not.interned") // this class uses object identity
   @Override
-  public boolean contains(
-      @GuardSatisfied IdentityMostlySingletonSet<T> this,
-      @GuardSatisfied @UnknownSignedness Object o) {
-    return switch (state) {
-      case EMPTY -> false;
-      case SINGLETON -> o == value;
-      case ANY -> {
-        assert set != null : "@AssumeAssertion(nullness): set initialized before";
-        yield set.contains(o);
-      }
-      default -> throw new IllegalStateException("Unhandled state " + state);
-    };
+  protected Set<T> newLargeSet(int capacity) {
+    return Collections.newSetFromMap(new IdentityHashMap<>(capacity));
   }
 }
@@ -1,5 +1,9 @@
 package org.plumelib.util;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
@@ -30,19 +34,19 @@ import org.checkerframework.dataflow.qual.SideEffectFree;
 //   @Deprecated
 public class LimitedSizeLongSet implements Serializable, Cloneable {
   /** Unique identifier for serialization. If you add or remove fields, change this number. */
-  static final long serialVersionUID = 20031021L;
+  static final long serialVersionUID = 20261019L;
 
   // The size is not separately stored, because that would take extra space.
   /**
    * If null, then at least {@link #numValues} distinct values have been seen (and {@link
    * #numValues} equals the {@code maxValues} argument to the constructor).
    */
-  protected long @Nullable @MinLen(1) [] values;
+  protected transient long @Nullable @MinLen(1) [] values;
 
   /** The number of active elements (equivalently, the first unused index). */
   // The Index Checker annotation is not @IndexOrHigh("values"), because the invariant is broken
   // when the values field is set to null. Warnings are suppressed when breaking the invariant.
-  protected @IndexOrHigh("values") int numValues;
+  protected transient @IndexOrHigh("values") int numValues;
 
   /**
    * Creates a new LimitedSizeLongSet that can hold maxValues values.
@@ -197,6 +201,60 @@ public class LimitedSizeLongSet implements Serializable, Cloneable {
     values = null;
   }
 
+  /**
+   * Writes this set. Only the elements in use are written, not the unused part of the array.
+   *
+   * @param out the stream to write to
+   * @serialData the capacity ({@link #maxSize()} - 1), or -1 if the representation has been
+   *     nulled; then {@link #numValues}; then the elements, if the representation is not nulled
+   * @throws IOException if there is trouble writing
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    long[] values = this.values;
+    out.writeInt(values == null ? -1 : values.length);
+    out.writeInt(numValues);
+    if (values != null) {
+      for (int i = 0; i < numValues; i++) {
+        out.writeLong(values[i]);
+      }
+    }
+  }
+
+  /**
+   * Reads a set that was written by {@link #writeObject}.
+   *
+   * @param in the stream to read from
+   * @throws IOException if there is trouble reading, or the data is malformed
+   * @throws ClassNotFoundException if a class of a serialized object cannot be found
+   */
+  @SuppressWarnings({
+    "index", // the capacity and size are checked against each other
+    "allcheckers:purity.not.sideeffectfree.assign.field" // deserialization initializes fields
+  })
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int capacity = in.readInt();
+    int size = in.readInt();
+    if (capacity == -1) {
+      if (size < 2) {
+        throw new InvalidObjectException("bad size for a nulled representation: " + size);
+      }
+      values = null;
+      numValues = size;
+      return;
+    }
+    if (capacity < 1 || size < 0 || size > capacity) {
+      throw new InvalidObjectException("bad capacity " + capacity + " or size " + size);
+    }
+    long[] values = new long[capacity];
+    for (int i = 0; i < size; i++) {
+      values[i] = in.readLong();
+    }
+    this.values = values;
+    numValues = size;
+  }
+
   @SuppressWarnings(
       "allcheckers:purity.not.sideeffectfree.assign.field") // side effect to local state (clone)
   @SideEffectFree
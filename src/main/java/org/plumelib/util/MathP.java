@@ -1,10 +1,9 @@
 package org.plumelib.util;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import org.checkerframework.checker.index.qual.IndexFor;
 import org.checkerframework.checker.index.qual.LessThan;
 import org.checkerframework.checker.index.qual.NonNegative;
@@ -576,8 +575,35 @@ public final class MathP {
   @Pure
   @StaticallyExecutable
   public static int gcd(int a, int b) {
+    if (a == Integer.MIN_VALUE || b == Integer.MIN_VALUE) {
+      // `Math.abs` cannot make MIN_VALUE positive, so use Euclid's method, which defines the
+      // result for such operands.
+      return gcdEuclid(a, b);
+    }
+    a = Math.abs(a);
+    b = Math.abs(b);
+    if (a == 0) {
+      return b;
+    }
+    if (b == 0) {
+      return a;
+    }
+    int shift = Integer.numberOfTrailingZeros(a | b);
+    a >>>= Integer.numberOfTrailingZeros(a);
+    b >>>= Integer.numberOfTrailingZeros(b);
+    return gcdOdd(a, b) << shift;
+  }
 
-    // Euclid's method
+  /**
+   * Returns the greatest common divisor of the two arguments, computed by Euclid's method. Unlike
+   * {@link #gcd(int,int)}, this does not special-case MIN_VALUE.
+   *
+   * @param a first operand
+   * @param b second operand
+   * @return greatest common divisor of a and b
+   */
+  @Pure
+  private static int gcdEuclid(int a, int b) {
     if (b == 0) {
       return Math.abs(a);
     }
@@ -591,6 +617,48 @@ public final class MathP {
     return a;
   }
 
+  /**
+   * Returns the greatest common divisor of two positive odd numbers, computed by Stein's binary
+   * method. Each iteration removes at least one bit, and no iteration divides.
+   *
+   * @param a first operand; must be positive and odd
+   * @param b second operand; must be positive and odd
+   * @return greatest common divisor of a and b
+   */
+  @Pure
+  private static int gcdOdd(int a, int b) {
+    while (a != b) {
+      if (a > b) {
+        a -= b;
+        a >>>= Integer.numberOfTrailingZeros(a);
+      } else {
+        b -= a;
+        b >>>= Integer.numberOfTrailingZeros(b);
+      }
+    }
+    return a;
+  }
+
+  /**
+   * Returns the multiplicative inverse of an odd number, modulo 2^32. For odd {@code d} and any
+   * non-negative {@code n}, {@code d} divides {@code n} if and only if {@code n * inverseOdd(d)}
+   * is, as an unsigned number, at most {@code Integer.divideUnsigned(-1, d)}.
+   *
+   * @param d an odd number
+   * @return the inverse of d, modulo 2^32
+   */
+  @Pure
+  private static int inverseOdd(int d) {
+    // Every odd d is its own inverse modulo 8, and each Newton iteration doubles the number of
+    // correct low-order bits.
+    int inverse = d;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    return inverse;
+  }
+
   /**
    * Returns the greatest common divisor of the elements of int array a.
    *
@@ -604,11 +672,44 @@ public final class MathP {
       return 0;
     }
     int result = a[0];
-    for (int i = 1; i < a.length; i++) {
+    int i = 1;
+    while (i < a.length) {
       result = gcd(a[i], result);
+      i++;
       if ((result == 1) || (result == 0)) {
         return result;
       }
+      if (result > 0) {
+        // Keep the running gcd as an odd part and a power of two.  Usually the odd part divides the
+        // next element, which a multiplication by its inverse detects without dividing; only
+        // otherwise does the binary gcd run.
+        int shift = Integer.numberOfTrailingZeros(result);
+        int odd = result >>> shift;
+        int oddInverse = inverseOdd(odd);
+        int oddLimit = Integer.divideUnsigned(-1, odd);
+        for (; i < a.length; i++) {
+          int elt = a[i];
+          if (elt == 0) {
+            continue;
+          }
+          if (elt == Integer.MIN_VALUE) {
+            break;
+          }
+          elt = Math.abs(elt);
+          int eltShift = Integer.numberOfTrailingZeros(elt);
+          shift = Math.min(shift, eltShift);
+          elt >>>= eltShift;
+          if (Integer.compareUnsigned(elt * oddInverse, oddLimit) > 0) {
+            odd = gcdOdd(odd, elt);
+            oddInverse = inverseOdd(odd);
+            oddLimit = Integer.divideUnsigned(-1, odd);
+          }
+          if (odd == 1 && shift == 0) {
+            return 1;
+          }
+        }
+        result = odd << shift;
+      }
     }
     return result;
   }
@@ -627,11 +728,44 @@ public final class MathP {
       return 0;
     }
     int result = a[1] - a[0];
-    for (int i = 2; i < a.length; i++) {
+    int i = 2;
+    while (i < a.length) {
       result = gcd(a[i] - a[i - 1], result);
+      i++;
       if ((result == 1) || (result == 0)) {
         return result;
       }
+      if (result > 0) {
+        // Keep the running gcd as an odd part and a power of two.  Usually the odd part divides the
+        // next difference, which a multiplication by its inverse detects without dividing; only
+        // otherwise does the binary gcd run.
+        int shift = Integer.numberOfTrailingZeros(result);
+        int odd = result >>> shift;
+        int oddInverse = inverseOdd(odd);
+        int oddLimit = Integer.divideUnsigned(-1, odd);
+        for (; i < a.length; i++) {
+          int diff = a[i] - a[i - 1];
+          if (diff == 0) {
+            continue;
+          }
+          if (diff == Integer.MIN_VALUE) {
+            break;
+          }
+          diff = Math.abs(diff);
+          int diffShift = Integer.numberOfTrailingZeros(diff);
+          shift = Math.min(shift, diffShift);
+          diff >>>= diffShift;
+          if (Integer.compareUnsigned(diff * oddInverse, oddLimit) > 0) {
+            odd = gcdOdd(odd, diff);
+            oddInverse = inverseOdd(odd);
+            oddLimit = Integer.divideUnsigned(-1, odd);
+          }
+          if (odd == 1 && shift == 0) {
+            return 1;
+          }
+        }
+        result = odd << shift;
+      }
     }
     return result;
   }
@@ -648,8 +782,35 @@ public final class MathP {
   @Pure
   @StaticallyExecutable
   public static long gcd(long a, long b) {
+    if (a == Long.MIN_VALUE || b == Long.MIN_VALUE) {
+      // `Math.abs` cannot make MIN_VALUE positive, so use Euclid's method, which defines the
+      // result for such operands.
+      return gcdEuclid(a, b);
+    }
+    a = Math.abs(a);
+    b = Math.abs(b);
+    if (a == 0) {
+      return b;
+    }
+    if (b == 0) {
+      return a;
+    }
+    int shift = Long.numberOfTrailingZeros(a | b);
+    a >>>= Long.numberOfTrailingZeros(a);
+    b >>>= Long.numberOfTrailingZeros(b);
+    return gcdOdd(a, b) << shift;
+  }
 
-    // Euclid's method
+  /**
+   * Returns the greatest common divisor of the two arguments, computed by Euclid's method. Unlike
+   * {@link #gcd(long,long)}, this does not special-case MIN_VALUE.
+   *
+   * @param a first operand
+   * @param b second operand
+   * @return greatest common divisor of a and b
+   */
+  @Pure
+  private static long gcdEuclid(long a, long b) {
     if (b == 0) {
       return Math.abs(a);
     }
@@ -663,6 +824,49 @@ public final class MathP {
     return a;
   }
 
+  /**
+   * Returns the greatest common divisor of two positive odd numbers, computed by Stein's binary
+   * method. Each iteration removes at least one bit, and no iteration divides.
+   *
+   * @param a first operand; must be positive and odd
+   * @param b second operand; must be positive and odd
+   * @return greatest common divisor of a and b
+   */
+  @Pure
+  private static long gcdOdd(long a, long b) {
+    while (a != b) {
+      if (a > b) {
+        a -= b;
+        a >>>= Long.numberOfTrailingZeros(a);
+      } else {
+        b -= a;
+        b >>>= Long.numberOfTrailingZeros(b);
+      }
+    }
+    return a;
+  }
+
+  /**
+   * Returns the multiplicative inverse of an odd number, modulo 2^64. For odd {@code d} and any
+   * non-negative {@code n}, {@code d} divides {@code n} if and only if {@code n * inverseOdd(d)}
+   * is, as an unsigned number, at most {@code Long.divideUnsigned(-1, d)}.
+   *
+   * @param d an odd number
+   * @return the inverse of d, modulo 2^64
+   */
+  @Pure
+  private static long inverseOdd(long d) {
+    // Every odd d is its own inverse modulo 8, and each Newton iteration doubles the number of
+    // correct low-order bits.
+    long inverse = d;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    inverse *= 2 - d * inverse;
+    return inverse;
+  }
+
   /**
    * Returns the greatest common divisor of the elements of long array a.
    *
@@ -676,11 +880,44 @@ public final class MathP {
       return 0;
     }
     long result = a[0];
-    for (int i = 1; i < a.length; i++) {
+    int i = 1;
+    while (i < a.length) {
       result = gcd(a[i], result);
+      i++;
       if ((result == 1) || (result == 0)) {
         return result;
       }
+      if (result > 0) {
+        // Keep the running gcd as an odd part and a power of two.  Usually the odd part divides the
+        // next element, which a multiplication by its inverse detects without dividing; only
+        // otherwise does the binary gcd run.
+        int shift = Long.numberOfTrailingZeros(result);
+        long odd = result >>> shift;
+        long oddInverse = inverseOdd(odd);
+        long oddLimit = Long.divideUnsigned(-1, odd);
+        for (; i < a.length; i++) {
+          long elt = a[i];
+          if (elt == 0) {
+            continue;
+          }
+          if (elt == Long.MIN_VALUE) {
+            break;
+          }
+          elt = Math.abs(elt);
+          int eltShift = Long.numberOfTrailingZeros(elt);
+          shift = Math.min(shift, eltShift);
+          elt >>>= eltShift;
+          if (Long.compareUnsigned(elt * oddInverse, oddLimit) > 0) {
+            odd = gcdOdd(odd, elt);
+            oddInverse = inverseOdd(odd);
+            oddLimit = Long.divideUnsigned(-1, odd);
+          }
+          if (odd == 1 && shift == 0) {
+            return 1;
+          }
+        }
+        result = odd << shift;
+      }
     }
     return result;
   }
@@ -699,11 +936,44 @@ public final class MathP {
       return 0;
     }
     long result = a[1] - a[0];
-    for (int i = 2; i < a.length; i++) {
+    int i = 2;
+    while (i < a.length) {
       result = gcd(a[i] - a[i - 1], result);
+      i++;
       if ((result == 1) || (result == 0)) {
         return result;
       }
+      if (result > 0) {
+        // Keep the running gcd as an odd part and a power of two.  Usually the odd part divides the
+        // next difference, which a multiplication by its inverse detects without dividing; only
+        // otherwise does the binary gcd run.
+        int shift = Long.numberOfTrailingZeros(result);
+        long odd = result >>> shift;
+        long oddInverse = inverseOdd(odd);
+        long oddLimit = Long.divideUnsigned(-1, odd);
+        for (; i < a.length; i++) {
+          long diff = a[i] - a[i - 1];
+          if (diff == 0) {
+            continue;
+          }
+          if (diff == Long.MIN_VALUE) {
+            break;
+          }
+          diff = Math.abs(diff);
+          int diffShift = Long.numberOfTrailingZeros(diff);
+          shift = Math.min(shift, diffShift);
+          diff >>>= diffShift;
+          if (Long.compareUnsigned(diff * oddInverse, oddLimit) > 0) {
+            odd = gcdOdd(odd, diff);
+            oddInverse = inverseOdd(odd);
+            oddLimit = Long.divideUnsigned(-1, odd);
+          }
+          if (odd == 1 && shift == 0) {
+            return 1;
+          }
+        }
+        result = odd << shift;
+      }
     }
     return result;
   }
@@ -1362,6 +1632,9 @@ public final class MathP {
    * non-empty) but in the argument's range; that is, bigger than its argument's minimum value and
    * smaller than its argument's maximum value. The result contains no duplicates and is in order.
    *
+   * <p>The result may be very large when the argument is sparse. Consider {@link
+   * #missingRanges(int[])} or {@link #missingNumbersIterator(int[])} instead.
+   *
    * @param nums numbers to be excluded; length &gt; 0; may contain duplicates
    * @return the set: [min(nums)..max(nums)] - nums
    */
@@ -1369,28 +1642,110 @@ public final class MathP {
   @Pure
   @StaticallyExecutable
   public static int[] missingNumbers(int @MinLen(1) [] nums) {
+    int[] ranges = missingRanges(nums);
+    long size = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      size += (long) ranges[i + 1] - ranges[i] + 1;
+    }
+    int[] result = new int[Math.toIntExact(size)];
+    int resultIndex = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      for (int val = ranges[i]; val <= ranges[i + 1]; val++) {
+        result[resultIndex++] = val;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the numbers <b>not</b> in its argument array (which must be non-empty) but in the
+   * argument's range, as a sequence of maximal ranges. The result has the form {@code [lo1, hi1,
+   * lo2, hi2, ...]}, where each range {@code [lo..hi]} is inclusive and the ranges are in order.
+   * Its size is proportional to the number of gaps, not to the number of missing values.
+   *
+   * @param nums numbers to be excluded; length &gt; 0; may contain duplicates
+   * @return the set [min(nums)..max(nums)] - nums, as pairs of inclusive bounds
+   */
+  @SuppressWarnings({"allcheckers:purity", "lock"})
+  @Pure
+  @StaticallyExecutable
+  public static int[] missingRanges(int @MinLen(1) [] nums) {
     // avoid modifying parameter
     nums = nums.clone();
     Arrays.sort(nums);
-    int min = nums[0];
-    int max = nums[nums.length - 1];
-    int sizeEstimate = max - min + 1 - nums.length;
-    List<Integer> resultList = new ArrayList<>(sizeEstimate < 1 ? 1 : sizeEstimate);
-    int val = min;
-    for (int elt : nums) {
-      while (val < elt) {
-        resultList.add(val);
-        val++;
-      }
-      if (val == elt) {
-        val++;
+    int[] ranges = new int[2 * (nums.length - 1)];
+    int size = 0;
+    for (int i = 1; i < nums.length; i++) {
+      int prev = nums[i - 1];
+      int elt = nums[i];
+      // Equivalent to `elt - prev > 1`, but without overflow.
+      if (elt > prev && elt - 1 != prev) {
+        ranges[size++] = prev + 1;
+        ranges[size++] = elt - 1;
       }
     }
-    int[] resultArray = new int[resultList.size()];
-    for (int i = 0; i < resultArray.length; i++) {
-      resultArray[i] = resultList.get(i);
+    return size == ranges.length ? ranges : Arrays.copyOf(ranges, size);
+  }
+
+  /**
+   * Returns an iterator over all the numbers <b>not</b> in its argument array (which must be
+   * non-empty) but in the argument's range. The iterator yields the same values, in the same order,
+   * as {@link #missingNumbers(int[])}, but it does not materialize them: its size is proportional
+   * to the number of gaps, and {@code nextInt()} does not allocate.
+   *
+   * @param nums numbers to be excluded; length &gt; 0; may contain duplicates
+   * @return an iterator over the set [min(nums)..max(nums)] - nums
+   */
+  public static PrimitiveIterator.OfInt missingNumbersIterator(int @MinLen(1) [] nums) {
+    return new MissingRangesIteratorInt(missingRanges(nums));
+  }
+
+  /**
+   * An iterator over the values in a sequence of inclusive ranges, as returned by {@code
+   * missingRanges}.
+   */
+  private static final class MissingRangesIteratorInt implements PrimitiveIterator.OfInt {
+
+    /** Pairs of inclusive bounds {@code [lo1, hi1, lo2, hi2, ...]}, in order. */
+    private final int[] ranges;
+
+    /** The index in {@link #ranges} of the lower bound of the current range. */
+    private int rangeIndex = 0;
+
+    /** The next value to return, if {@code rangeIndex < ranges.length}. */
+    private int nextValue;
+
+    /**
+     * Creates an iterator over the given ranges.
+     *
+     * @param ranges pairs of inclusive bounds, in order
+     */
+    MissingRangesIteratorInt(int[] ranges) {
+      this.ranges = ranges;
+      this.nextValue = ranges.length == 0 ? 0 : ranges[0];
+    }
+
+    @Override
+    public boolean hasNext(@GuardSatisfied MissingRangesIteratorInt this) {
+      return rangeIndex < ranges.length;
+    }
+
+    @Override
+    public int nextInt(@GuardSatisfied MissingRangesIteratorInt this) {
+      if (rangeIndex >= ranges.length) {
+        throw new NoSuchElementException();
+      }
+      int result = nextValue;
+      if (result == ranges[rangeIndex + 1]) {
+        rangeIndex += 2;
+        if (rangeIndex < ranges.length) {
+          nextValue = ranges[rangeIndex];
+        }
+      } else {
+        nextValue++;
+      }
+      return result;
     }
-    return resultArray;
   }
 
   /**
@@ -1700,6 +2055,9 @@ public final class MathP {
    * non-empty) but in the argument's range; that is, bigger than its argument's minimum value and
    * smaller than its argument's maximum value. The result contains no duplicates and is in order.
    *
+   * <p>The result may be very large when the argument is sparse. Consider {@link
+   * #missingRanges(long[])} or {@link #missingNumbersIterator(long[])} instead.
+   *
    * @param nums numbers to be excluded; length &gt; 0; may contain duplicates
    * @return the set: [min(nums)..max(nums)] - nums
    */
@@ -1707,29 +2065,110 @@ public final class MathP {
   @Pure
   @StaticallyExecutable
   public static long[] missingNumbers(long @MinLen(1) [] nums) {
+    long[] ranges = missingRanges(nums);
+    long size = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      size += ranges[i + 1] - ranges[i] + 1;
+    }
+    long[] result = new long[Math.toIntExact(size)];
+    int resultIndex = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      for (long val = ranges[i]; val <= ranges[i + 1]; val++) {
+        result[resultIndex++] = val;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the numbers <b>not</b> in its argument array (which must be non-empty) but in the
+   * argument's range, as a sequence of maximal ranges. The result has the form {@code [lo1, hi1,
+   * lo2, hi2, ...]}, where each range {@code [lo..hi]} is inclusive and the ranges are in order.
+   * Its size is proportional to the number of gaps, not to the number of missing values.
+   *
+   * @param nums numbers to be excluded; length &gt; 0; may contain duplicates
+   * @return the set [min(nums)..max(nums)] - nums, as pairs of inclusive bounds
+   */
+  @SuppressWarnings({"allcheckers:purity", "lock"})
+  @Pure
+  @StaticallyExecutable
+  public static long[] missingRanges(long @MinLen(1) [] nums) {
     // avoid modifying parameter
     nums = nums.clone();
     Arrays.sort(nums);
-    long min = nums[0];
-    long max = nums[nums.length - 1];
-    int sizeEstimate = ((int) (max - min + 1 - nums.length));
-    List<Long> resultList = new ArrayList<>(sizeEstimate < 1 ? 1 : sizeEstimate);
-    long val = min;
-    for (long elt : nums) {
-      while (val < elt) {
-        resultList.add(val);
-        val++;
-      }
-      if (val == elt) {
-        val++;
+    long[] ranges = new long[2 * (nums.length - 1)];
+    int size = 0;
+    for (int i = 1; i < nums.length; i++) {
+      long prev = nums[i - 1];
+      long elt = nums[i];
+      // Equivalent to `elt - prev > 1`, but without overflow.
+      if (elt > prev && elt - 1 != prev) {
+        ranges[size++] = prev + 1;
+        ranges[size++] = elt - 1;
       }
     }
+    return size == ranges.length ? ranges : Arrays.copyOf(ranges, size);
+  }
 
-    long[] resultArray = new long[resultList.size()];
-    for (int i = 0; i < resultArray.length; i++) {
-      resultArray[i] = resultList.get(i);
+  /**
+   * Returns an iterator over all the numbers <b>not</b> in its argument array (which must be
+   * non-empty) but in the argument's range. The iterator yields the same values, in the same order,
+   * as {@link #missingNumbers(long[])}, but it does not materialize them: its size is proportional
+   * to the number of gaps, and {@code nextLong()} does not allocate.
+   *
+   * @param nums numbers to be excluded; length &gt; 0; may contain duplicates
+   * @return an iterator over the set [min(nums)..max(nums)] - nums
+   */
+  public static PrimitiveIterator.OfLong missingNumbersIterator(long @MinLen(1) [] nums) {
+    return new MissingRangesIteratorLong(missingRanges(nums));
+  }
+
+  /**
+   * An iterator over the values in a sequence of inclusive ranges, as returned by {@code
+   * missingRanges}.
+   */
+  private static final class MissingRangesIteratorLong implements PrimitiveIterator.OfLong {
+
+    /** Pairs of inclusive bounds {@code [lo1, hi1, lo2, hi2, ...]}, in order. */
+    private final long[] ranges;
+
+    /** The index in {@link #ranges} of the lower bound of the current range. */
+    private int rangeIndex = 0;
+
+    /** The next value to return, if {@code rangeIndex < ranges.length}. */
+    private long nextValue;
+
+    /**
+     * Creates an iterator over the given ranges.
+     *
+     * @param ranges pairs of inclusive bounds, in order
+     */
+    MissingRangesIteratorLong(long[] ranges) {
+      this.ranges = ranges;
+      this.nextValue = ranges.length == 0 ? 0 : ranges[0];
+    }
+
+    @Override
+    public boolean hasNext(@GuardSatisfied MissingRangesIteratorLong this) {
+      return rangeIndex < ranges.length;
+    }
+
+    @Override
+    public long nextLong(@GuardSatisfied MissingRangesIteratorLong this) {
+      if (rangeIndex >= ranges.length) {
+        throw new NoSuchElementException();
+      }
+      long result = nextValue;
+      if (result == ranges[rangeIndex + 1]) {
+        rangeIndex += 2;
+        if (rangeIndex < ranges.length) {
+          nextValue = ranges[rangeIndex];
+        }
+      } else {
+        nextValue++;
+      }
+      return result;
     }
-    return resultArray;
   }
 
   /**
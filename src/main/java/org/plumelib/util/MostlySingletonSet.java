@@ -1,12 +1,14 @@
 package org.plumelib.util;
 
 import java.util.LinkedHashSet;
+import java.util.Set;
 import org.checkerframework.checker.lock.qual.GuardSatisfied;
 import org.checkerframework.checker.signedness.qual.UnknownSignedness;
 
 /**
- * A set that is more efficient than HashSet for 0 and 1 elements. Uses {@code Objects.equals} for
- * object comparison and a {@link LinkedHashSet} for backing storage.
+ * A set that is more efficient than HashSet for 0 and 1 elements, and compact for a few more. Uses
+ * {@code Objects.equals} for object comparison. Once it has more than {@link #SMALL_CAPACITY}
+ * elements, it uses a {@link LinkedHashSet} for backing storage.
  *
  * <p>Usually, you should use {@link ArraySet} instead. The advantage of this over {@link ArraySet}
  * is that this is efficient for large sets.
@@ -31,56 +33,12 @@ public final class MostlySingletonSet<T extends Object> extends AbstractMostlySi
   }
 
   @Override
-  @SuppressWarnings("lock:method.invocation") // #979?
-  public boolean add(@GuardSatisfied MostlySingletonSet<T> this, T e) {
-    return switch (state) {
-      case EMPTY -> {
-        state = State.SINGLETON;
-        value = e;
-        yield true;
-      }
-      case SINGLETON -> {
-        assert value != null : "@AssumeAssertion(nullness): SINGLETON => value != null";
-        if (value.equals(e)) {
-          yield false;
-        }
-        makeNonSingleton();
-        assert set != null : "@AssumeAssertion(nullness): set != null after makeNonSingleton";
-        yield set.add(e);
-      }
-      case ANY -> {
-        assert set != null : "@AssumeAssertion(nullness): ANY => set != null";
-        yield set.add(e);
-      }
-      default -> throw new IllegalStateException("Unhandled state " + state);
-    };
-  }
-
-  /** Switch the representation of this from SINGLETON to ANY. */
-  private void makeNonSingleton() {
-    state = State.ANY;
-    set = new LinkedHashSet<>();
-    assert value != null : "@AssumeAssertion(nullness): SINGLETON => value != null";
-    set.add(value);
-    value = null;
+  protected boolean isSame(T element, @GuardSatisfied @UnknownSignedness Object o) {
+    return element.equals(o);
   }
 
   @Override
-  public boolean contains(
-      @GuardSatisfied MostlySingletonSet<T> this, @GuardSatisfied @UnknownSignedness Object o) {
-    return switch (state) {
-      case EMPTY -> false;
-      case SINGLETON -> {
-        assert value != null : "@AssumeAssertion(nullness): SINGLETON => value != null";
-        yield value.equals(o);
-      }
-      case ANY -> {
-        assert set != null : "@AssumeAssertion(nullness): set initialized before";
-        yield set.contains(o);
-      }
-      default -> {
-        throw new IllegalStateException("Unhandled state " + state);
-      }
-    };
+  protected Set<T> newLargeSet(int capacity) {
+    return new LinkedHashSet<>(MapsP.mapCapacity(capacity));
   }
 }
@@ -0,0 +1,114 @@
+package org.plumelib.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.checkerframework.checker.lock.qual.GuardSatisfied;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Given any number of sorted iterators, this class returns a new iterator that groups equal
+ * elements of the inputs, according to the sort order or the given comparator. This generalizes
+ * {@link OrderedPairIterator} from two inputs to any number.
+ *
+ * <p>Each group is a list with one slot per input. Slot i holds the element of input i that belongs
+ * to the group, or null if input i has no such element. Groups are returned in sorted order, and
+ * each group takes at most one element from each input. For example, suppose that the inputs are
+ *
+ * <pre>
+ *   [1, 2, 3, 5],
+ *   [1, 3, 5, 7], and
+ *   [2, 3].
+ * </pre>
+ *
+ * <p>Then the output is
+ *
+ * <pre>
+ *   [[1, 1, null], [2, null, 2], [3, 3, 3], [5, 5, null], [null, 7, null]].
+ * </pre>
+ *
+ * <p>The inputs must not contain null. Each step takes time O(g log k), where k is the number of
+ * inputs and g is the size of the group.
+ *
+ * @param <T> the element type of each input iterator; this OrderedGroupIterator has elements of
+ *     type {@code List<@Nullable T>}
+ * @see CollectionsP#sortedMergedIterator
+ */
+public class OrderedGroupIterator<T> implements Iterator<List<@Nullable T>> {
+
+  /** The inputs, in a heap ordered by their next elements. */
+  private final SortedIteratorHeap<T> heap;
+
+  /** The inputs that contribute to the group being built; a scratch array for {@link #next}. */
+  private final int[] groupInputs;
+
+  /**
+   * Creates an iterator that groups equal elements of the given iterators, which are sorted
+   * according to their natural ordering.
+   *
+   * @param itors the inputs, each sorted according to the natural ordering of its elements
+   */
+  @SuppressWarnings("unchecked") // T is comparable, per the documentation
+  public OrderedGroupIterator(List<? extends Iterator<? extends T>> itors) {
+    this(itors, (Comparator<? super T>) Comparator.naturalOrder());
+  }
+
+  /**
+   * Creates an iterator that groups equal elements of the given iterators, which are sorted
+   * according to the comparator.
+   *
+   * @param itors the inputs, each sorted according to {@code comparator}
+   * @param comparator determines whether two elements are equal and should be grouped together
+   */
+  public OrderedGroupIterator(
+      List<? extends Iterator<? extends T>> itors, Comparator<? super T> comparator) {
+    this.heap = new SortedIteratorHeap<>(itors, comparator);
+    this.groupInputs = new int[heap.inputs()];
+  }
+
+  @Override
+  public boolean hasNext(@GuardSatisfied OrderedGroupIterator<T> this) {
+    return !heap.isEmpty();
+  }
+
+  @Override
+  public List<@Nullable T> next(@GuardSatisfied OrderedGroupIterator<T> this) {
+    if (heap.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    // Remove every input whose next element equals the least one, then advance them all.  Removing
+    // before advancing ensures that the group takes at most one element from each input.
+    T least = heap.head(heap.top());
+    int groupSize = 0;
+    do {
+      groupInputs[groupSize++] = heap.removeTop();
+    } while (!heap.isEmpty() && heap.compare(heap.head(heap.top()), least) == 0);
+
+    @Nullable T[] group = newArray(heap.inputs());
+    for (int i = 0; i < groupSize; i++) {
+      int input = groupInputs[i];
+      group[input] = heap.head(input);
+      heap.advance(input);
+    }
+    return Arrays.asList(group);
+  }
+
+  /**
+   * Returns a new array of nulls.
+   *
+   * @param <T> the type of the array elements
+   * @param length the length of the array
+   * @return a new array of nulls
+   */
+  @SuppressWarnings("unchecked") // generic array creation
+  private static <T> @Nullable T[] newArray(int length) {
+    return (@Nullable T[]) new Object[length];
+  }
+
+  @Override
+  public void remove(@GuardSatisfied OrderedGroupIterator<T> this) {
+    throw new UnsupportedOperationException();
+  }
+}
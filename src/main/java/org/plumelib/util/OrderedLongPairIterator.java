@@ -0,0 +1,223 @@
+package org.plumelib.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import org.checkerframework.checker.lock.qual.GuardSatisfied;
+import org.plumelib.util.OrderedPairIterator.JoinType;
+
+/**
+ * Like {@link OrderedPairIterator}, but for sorted sequences of longs. It does not box the longs,
+ * and it allocates nothing per step.
+ *
+ * <p>Rather than returning pairs, this is a cursor. Each call to {@link #advance} moves to the next
+ * pair. Then {@link #hasFirst} and {@link #hasSecond} tell which sides of the pair are present, and
+ * {@link #first} and {@link #second} return them. For example:
+ *
+ * <pre>{@code
+ * OrderedLongPairIterator itor = new OrderedLongPairIterator(a1, a2, JoinType.FULL_OUTER);
+ * while (itor.advance()) {
+ *   if (!itor.hasSecond()) {
+ *     System.out.println(itor.first() + " appears only in a1");
+ *   } else if (!itor.hasFirst()) {
+ *     System.out.println(itor.second() + " appears only in a2");
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>The {@link JoinType} determines which pairs are reported. A full outer join reports the same
+ * pairs as {@link OrderedPairIterator}. The other kinds of join omit some unmatched elements; they
+ * stop reading the inputs as soon as no more pairs can be reported.
+ *
+ * <p>Equal elements are paired one-to-one, in order, as by {@link OrderedPairIterator}. For
+ * example, if the inputs are [1, 1, 2] and [1, 2, 2], a full outer join reports (1,1), (1,-),
+ * (2,2), (-,2).
+ *
+ * @see OrderedIntPairIterator
+ */
+public class OrderedLongPairIterator {
+
+  /** The iterator for first elements of pairs. */
+  private final PrimitiveIterator.OfLong itor1;
+
+  /** The iterator for second elements of pairs. */
+  private final PrimitiveIterator.OfLong itor2;
+
+  /** Which pairs to report. */
+  private final JoinType joinType;
+
+  /** True if {@link #next1} is valid, i.e., if itor1 was not exhausted when it was read. */
+  private boolean hasNext1;
+
+  /** The next element to be read by itor1. */
+  private long next1;
+
+  /** True if {@link #next2} is valid, i.e., if itor2 was not exhausted when it was read. */
+  private boolean hasNext2;
+
+  /** The next element to be read by itor2. */
+  private long next2;
+
+  /** True if the current pair has a first element. */
+  private boolean hasFirst = false;
+
+  /** The first element of the current pair, if {@link #hasFirst} is true. */
+  private long first;
+
+  /** True if the current pair has a second element. */
+  private boolean hasSecond = false;
+
+  /** The second element of the current pair, if {@link #hasSecond} is true. */
+  private long second;
+
+  /**
+   * Creates a cursor over the pairs of equal elements of the given iterators.
+   *
+   * @param itor1 iterator for first elements of pairs, in ascending order
+   * @param itor2 iterator for second elements of pairs, in ascending order
+   * @param joinType which pairs to report
+   */
+  public OrderedLongPairIterator(
+      PrimitiveIterator.OfLong itor1, PrimitiveIterator.OfLong itor2, JoinType joinType) {
+    this.itor1 = itor1;
+    this.itor2 = itor2;
+    this.joinType = joinType;
+    setnext1();
+    setnext2();
+  }
+
+  /**
+   * Creates a cursor over the pairs of equal elements of the given arrays.
+   *
+   * @param a1 the first elements of pairs, in ascending order
+   * @param a2 the second elements of pairs, in ascending order
+   * @param joinType which pairs to report
+   */
+  public OrderedLongPairIterator(long[] a1, long[] a2, JoinType joinType) {
+    this(Arrays.stream(a1).iterator(), Arrays.stream(a2).iterator(), joinType);
+  }
+
+  /** Set the next1 and hasNext1 variables. */
+  private void setnext1(@GuardSatisfied OrderedLongPairIterator this) {
+    hasNext1 = itor1.hasNext();
+    if (hasNext1) {
+      next1 = itor1.nextLong();
+    }
+  }
+
+  /** Set the next2 and hasNext2 variables. */
+  private void setnext2(@GuardSatisfied OrderedLongPairIterator this) {
+    hasNext2 = itor2.hasNext();
+    if (hasNext2) {
+      next2 = itor2.nextLong();
+    }
+  }
+
+  /**
+   * Moves to the next pair to be reported, if any.
+   *
+   * @return true if there is another pair, false if the inputs are exhausted
+   */
+  public boolean advance(@GuardSatisfied OrderedLongPairIterator this) {
+    boolean reportFirst = joinType.reportsUnmatchedFirst();
+    boolean reportSecond = joinType.reportsUnmatchedSecond();
+    while (true) {
+      if (hasNext1 && hasNext2) {
+        if (next1 == next2) {
+          return setCurrent(true, next1, true, next2);
+        } else if (next1 < next2) {
+          if (reportFirst) {
+            return setCurrent(true, next1, false, 0);
+          }
+          setnext1();
+        } else {
+          if (reportSecond) {
+            return setCurrent(false, 0, true, next2);
+          }
+          setnext2();
+        }
+      } else if (hasNext1 && reportFirst) {
+        return setCurrent(true, next1, false, 0);
+      } else if (hasNext2 && reportSecond) {
+        return setCurrent(false, 0, true, next2);
+      } else {
+        // No more pairs can be reported.  Do not read the rest of the other input.
+        hasFirst = false;
+        hasSecond = false;
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Makes the given pair the current one, and reads past the elements it consumes.
+   *
+   * @param hasFirst true if the pair has a first element
+   * @param first the first element of the pair, if {@code hasFirst} is true
+   * @param hasSecond true if the pair has a second element
+   * @param second the second element of the pair, if {@code hasSecond} is true
+   * @return true
+   */
+  private boolean setCurrent(
+      @GuardSatisfied OrderedLongPairIterator this,
+      boolean hasFirst,
+      long first,
+      boolean hasSecond,
+      long second) {
+    this.hasFirst = hasFirst;
+    this.first = first;
+    this.hasSecond = hasSecond;
+    this.second = second;
+    if (hasFirst) {
+      setnext1();
+    }
+    if (hasSecond) {
+      setnext2();
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the current pair has a first element.
+   *
+   * @return true if the current pair has a first element
+   */
+  public boolean hasFirst(@GuardSatisfied OrderedLongPairIterator this) {
+    return hasFirst;
+  }
+
+  /**
+   * Returns the first element of the current pair.
+   *
+   * @return the first element of the current pair
+   * @throws NoSuchElementException if the current pair has no first element
+   */
+  public long first(@GuardSatisfied OrderedLongPairIterator this) {
+    if (!hasFirst) {
+      throw new NoSuchElementException();
+    }
+    return first;
+  }
+
+  /**
+   * Returns true if the current pair has a second element.
+   *
+   * @return true if the current pair has a second element
+   */
+  public boolean hasSecond(@GuardSatisfied OrderedLongPairIterator this) {
+    return hasSecond;
+  }
+
+  /**
+   * Returns the second element of the current pair.
+   *
+   * @return the second element of the current pair
+   * @throws NoSuchElementException if the current pair has no second element
+   */
+  public long second(@GuardSatisfied OrderedLongPairIterator this) {
+    if (!hasSecond) {
+      throw new NoSuchElementException();
+    }
+    return second;
+  }
+}
@@ -31,6 +31,10 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
  * <p>In some cases this is just the right abstraction. But in some cases it's appropriate to use
  * set intersection/difference instead.
  *
+ * <p>In the terminology of database joins, this is a full outer join. To join sorted sequences of
+ * ints or longs without boxing them, use {@link OrderedIntPairIterator} or {@link
+ * OrderedLongPairIterator}, which also support the other kinds of {@link JoinType join}.
+ *
  * @param <T> the element type of each component iterator; this OrderedPairIterator has elements of
  *     type {@code IPair<T,T>}
  */
@@ -39,6 +43,39 @@ import org.checkerframework.checker.nullness.qual.RequiresNonNull;
 public class OrderedPairIterator<T extends @Nullable Object>
     implements Iterator<IPair<@Nullable T, @Nullable T>> {
 
+  /**
+   * Which elements of two sorted sequences a join reports. Every kind of join reports pairs of
+   * equal elements; they differ in which unmatched elements they report.
+   */
+  public enum JoinType {
+    /** Report only pairs of equal elements. */
+    INNER,
+    /** Also report each unmatched element of the first sequence. */
+    LEFT_OUTER,
+    /** Also report each unmatched element of the second sequence. */
+    RIGHT_OUTER,
+    /** Also report each unmatched element of either sequence. */
+    FULL_OUTER;
+
+    /**
+     * Returns true if this kind of join reports unmatched elements of the first sequence.
+     *
+     * @return true if this kind of join reports unmatched elements of the first sequence
+     */
+    public boolean reportsUnmatchedFirst() {
+      return this == LEFT_OUTER || this == FULL_OUTER;
+    }
+
+    /**
+     * Returns true if this kind of join reports unmatched elements of the second sequence.
+     *
+     * @return true if this kind of join reports unmatched elements of the second sequence
+     */
+    public boolean reportsUnmatchedSecond() {
+      return this == RIGHT_OUTER || this == FULL_OUTER;
+    }
+  }
+
   /** The iterator for first elements of pairs. */
   Iterator<T> itor1;
 
@@ -0,0 +1,316 @@
+package org.plumelib.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.mustcall.qual.MustCallAlias;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An output stream that writes data in gzip format, compressing blocks of the data in parallel.
+ * The output is a standard single-member gzip file that {@link java.util.zip.GZIPInputStream} and
+ * the {@code gzip} program can read.
+ *
+ * <p>Like the {@code pigz} program, this splits its input into blocks, compresses each block on a
+ * separate thread, and writes the compressed blocks in order. Each block is compressed using the
+ * end of the previous block as a dictionary, so the compression ratio is nearly that of {@link
+ * java.util.zip.GZIPOutputStream}. This is faster than {@code GZIPOutputStream} when there is
+ * enough data to keep several threads busy; use it for large files.
+ *
+ * <p>Calling {@link #flush} compresses and writes all the data written so far, at a small cost in
+ * compression ratio. A ParallelGZIPOutputStream must be closed, to write the gzip trailer and to
+ * stop its threads.
+ *
+ * <p>A ParallelGZIPOutputStream is not safe for use by multiple threads.
+ */
+public final class ParallelGZIPOutputStream extends FilterOutputStream {
+
+  /** The default size of a block, in bytes. */
+  public static final int DEFAULT_BLOCK_SIZE = 1 << 17;
+
+  /** The size of the deflate window, and thus of the dictionary used for each block. */
+  private static final int DICTIONARY_SIZE = 1 << 15;
+
+  /** A gzip header, with no file name, modification time, or other optional fields. */
+  private static final byte[] HEADER = {
+    0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+  };
+
+  /** A final deflate block that contains no data: a fixed-Huffman block with just its end code. */
+  private static final byte[] EMPTY_FINAL_BLOCK = {0x03, 0x00};
+
+  /** The compression level. */
+  private final int level;
+
+  /** The size of each block, in bytes. */
+  private final @Positive int blockSize;
+
+  /** The threads that compress blocks. */
+  private final ExecutorService executor;
+
+  /** The maximum number of blocks that are being compressed or are waiting to be written. */
+  private final int maxPending;
+
+  /** The blocks that are being compressed or are waiting to be written, in order. */
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  /** The block currently being filled. */
+  private byte[] block;
+
+  /** The number of bytes in {@link #block}. */
+  private int blockLength = 0;
+
+  /** The previous block, whose end is the dictionary for the next block; null if none. */
+  private byte @Nullable [] previous = null;
+
+  /** The number of bytes in {@link #previous}. */
+  private int previousLength = 0;
+
+  /** The checksum of all the uncompressed data. */
+  private final CRC32 crc = new CRC32();
+
+  /** The number of uncompressed bytes written. */
+  private long totalIn = 0;
+
+  /** True if this stream has been closed. */
+  private boolean closed = false;
+
+  /**
+   * Creates a ParallelGZIPOutputStream that uses one thread per processor and the default block
+   * size and compression level.
+   *
+   * @param out the stream to write compressed data to
+   * @throws IOException if there is trouble writing the gzip header
+   */
+  public @MustCallAlias ParallelGZIPOutputStream(@MustCallAlias OutputStream out)
+      throws IOException {
+    this(out, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Creates a ParallelGZIPOutputStream with the default compression level.
+   *
+   * @param out the stream to write compressed data to
+   * @param threads the number of threads that compress blocks
+   * @param blockSize the number of uncompressed bytes in each block
+   * @throws IOException if there is trouble writing the gzip header
+   */
+  public @MustCallAlias ParallelGZIPOutputStream(
+      @MustCallAlias OutputStream out, @Positive int threads, @Positive int blockSize)
+      throws IOException {
+    this(out, threads, blockSize, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Creates a ParallelGZIPOutputStream.
+   *
+   * @param out the stream to write compressed data to
+   * @param threads the number of threads that compress blocks
+   * @param blockSize the number of uncompressed bytes in each block
+   * @param level the compression level, as for {@link Deflater#setLevel}
+   * @throws IOException if there is trouble writing the gzip header
+   */
+  @SuppressWarnings("this-escape") // the thread factory does not use `this`
+  public @MustCallAlias ParallelGZIPOutputStream(
+      @MustCallAlias OutputStream out, @Positive int threads, @Positive int blockSize, int level)
+      throws IOException {
+    super(out);
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+    }
+    if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+      throw new IllegalArgumentException("invalid compression level: " + level);
+    }
+    this.level = level;
+    this.blockSize = blockSize;
+    this.block = new byte[blockSize];
+    this.maxPending = 2 * threads;
+    // Write the header before creating the executor, so that a failed write leaks no threads.
+    out.write(HEADER);
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread t = new Thread(r, "ParallelGZIPOutputStream");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    block[blockLength++] = (byte) b;
+    if (blockLength == blockSize) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    if ((off | len | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      int n = Math.min(len, blockSize - blockLength);
+      System.arraycopy(b, off, block, blockLength, n);
+      blockLength += n;
+      off += n;
+      len -= n;
+      if (blockLength == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Compresses and writes all data written so far, then flushes the underlying stream.
+   *
+   * @throws IOException if there is trouble compressing or writing
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (blockLength > 0) {
+      submitBlock();
+    }
+    writePending(0);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (blockLength > 0) {
+        submitBlock();
+      }
+      writePending(0);
+      out.write(EMPTY_FINAL_BLOCK);
+      writeIntLE((int) crc.getValue());
+      writeIntLE((int) totalIn);
+      out.flush();
+    } finally {
+      executor.shutdownNow();
+      out.close();
+    }
+  }
+
+  /**
+   * Throws an exception if this stream has been closed.
+   *
+   * @throws IOException if this stream has been closed
+   */
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  /**
+   * Starts compressing the current block, and starts a new current block. Writes compressed blocks
+   * if too many are pending.
+   *
+   * @throws IOException if there is trouble compressing or writing
+   */
+  private void submitBlock() throws IOException {
+    byte[] data = block;
+    int length = blockLength;
+    byte[] dictionary = previous;
+    int dictionaryLength = previousLength;
+    crc.update(data, 0, length);
+    totalIn += length;
+    pending.addLast(
+        executor.submit(() -> deflateBlock(data, length, dictionary, dictionaryLength, level)));
+    previous = data;
+    previousLength = length;
+    block = new byte[blockSize];
+    blockLength = 0;
+    writePending(maxPending);
+  }
+
+  /**
+   * Writes compressed blocks, in order, until at most {@code remaining} are pending. Waits for
+   * blocks that are still being compressed.
+   *
+   * @param remaining the number of blocks that may remain pending
+   * @throws IOException if there is trouble compressing or writing
+   */
+  private void writePending(int remaining) throws IOException {
+    while (pending.size() > remaining) {
+      Future<byte[]> next = pending.removeFirst();
+      try {
+        out.write(next.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while compressing");
+      } catch (ExecutionException e) {
+        throw new IOException("Problem while compressing", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Compresses a block into a sequence of deflate blocks that ends at a byte boundary and that is
+   * not final, so that compressed blocks can be concatenated.
+   *
+   * @param data the uncompressed data
+   * @param length the number of bytes of {@code data} to compress
+   * @param dictionary the previous block, or null if this is the first block
+   * @param dictionaryLength the number of bytes in {@code dictionary}
+   * @param level the compression level
+   * @return the compressed data
+   */
+  private static byte[] deflateBlock(
+      byte[] data, int length, byte @Nullable [] dictionary, int dictionaryLength, int level) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (dictionary != null) {
+        int n = Math.min(dictionaryLength, DICTIONARY_SIZE);
+        deflater.setDictionary(dictionary, dictionaryLength - n, n);
+      }
+      deflater.setInput(data, 0, length);
+      ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+      byte[] buffer = new byte[Math.max(length / 2, 1 << 12)];
+      int n;
+      do {
+        n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        result.write(buffer, 0, n);
+      } while (n == buffer.length);
+      return result.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Writes a 32-bit integer in little-endian order, as the gzip trailer requires.
+   *
+   * @param i the integer to write
+   * @throws IOException if there is trouble writing
+   */
+  private void writeIntLE(int i) throws IOException {
+    out.write(i & 0xff);
+    out.write((i >>> 8) & 0xff);
+    out.write((i >>> 16) & 0xff);
+    out.write((i >>> 24) & 0xff);
+  }
+}
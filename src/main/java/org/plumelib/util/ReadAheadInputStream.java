@@ -0,0 +1,207 @@
+package org.plumelib.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.mustcall.qual.MustCallAlias;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An input stream that reads ahead from another input stream on a separate thread. This is useful
+ * when producing the data is expensive, as when the underlying stream decompresses it: the
+ * underlying stream produces the next chunks of data while the client processes the current one.
+ *
+ * <p>A ReadAheadInputStream must be closed, to stop its thread. Closing it waits for any read of
+ * the underlying stream that is in progress to finish, then closes the underlying stream.
+ *
+ * <p>A ReadAheadInputStream is not safe for use by multiple threads.
+ */
+public final class ReadAheadInputStream extends InputStream {
+
+  /** The default size of a chunk, in bytes. */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+  /** The default number of chunks to read ahead. */
+  public static final int DEFAULT_CHUNKS = 4;
+
+  /**
+   * Data read from the underlying stream, or an indication of end of file or of an error.
+   *
+   * @param data the data
+   * @param length the number of bytes of {@code data} that were read; -1 at end of file or error
+   * @param error the exception thrown by the underlying stream, or null
+   */
+  private static record Chunk(byte[] data, int length, @Nullable IOException error) {}
+
+  /** A chunk that indicates the end of the underlying stream. */
+  private static final Chunk EOF = new Chunk(new byte[0], -1, null);
+
+  /** The underlying stream. */
+  private final InputStream in;
+
+  /** Chunks read from the underlying stream but not yet returned by this. */
+  private final BlockingQueue<Chunk> queue;
+
+  /** The thread that reads from the underlying stream. */
+  private final Thread readerThread;
+
+  /** The chunk from which data is currently being returned. */
+  private Chunk current = new Chunk(new byte[0], 0, null);
+
+  /** The index in {@link #current} of the next byte to return. */
+  private int pos = 0;
+
+  /** True if this stream has been closed. */
+  private volatile boolean closed = false;
+
+  /**
+   * Creates a ReadAheadInputStream with the default chunk size and number of chunks.
+   *
+   * @param in the stream to read from
+   */
+  public @MustCallAlias ReadAheadInputStream(@MustCallAlias InputStream in) {
+    this(in, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNKS);
+  }
+
+  /**
+   * Creates a ReadAheadInputStream.
+   *
+   * @param in the stream to read from
+   * @param chunkSize the number of bytes to read from {@code in} at a time
+   * @param chunks the maximum number of chunks to read ahead
+   */
+  @SuppressWarnings("this-escape") // the thread is started after all fields are set
+  public @MustCallAlias ReadAheadInputStream(
+      @MustCallAlias InputStream in, @Positive int chunkSize, @Positive int chunks) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    if (chunks < 1) {
+      throw new IllegalArgumentException("chunks must be positive: " + chunks);
+    }
+    this.in = in;
+    this.queue = new ArrayBlockingQueue<>(chunks);
+    this.readerThread = new Thread(() -> readAhead(chunkSize), "ReadAheadInputStream");
+    readerThread.setDaemon(true);
+    readerThread.start();
+  }
+
+  /**
+   * Reads chunks from the underlying stream and puts them on the queue, until end of file, an
+   * error, or this stream is closed. Runs on {@link #readerThread}.
+   *
+   * @param chunkSize the number of bytes to read at a time
+   */
+  private void readAhead(int chunkSize) {
+    try {
+      while (!closed) {
+        byte[] data = new byte[chunkSize];
+        Chunk chunk;
+        try {
+          int n = in.readNBytes(data, 0, chunkSize);
+          chunk = (n == 0) ? EOF : new Chunk(data, n, null);
+        } catch (IOException e) {
+          chunk = new Chunk(data, -1, e);
+        }
+        queue.put(chunk);
+        if (chunk.length() < chunkSize) {
+          // End of file, or an error.
+          if (chunk.length() > 0) {
+            queue.put(EOF);
+          }
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // This stream was closed.
+    }
+  }
+
+  /**
+   * Makes {@link #current} have a byte to return, if possible.
+   *
+   * @return false at end of file, or after the underlying stream threw an exception
+   * @throws IOException if the underlying stream threw an exception
+   */
+  private boolean fill() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (current == EOF) {
+      return false;
+    }
+    while (pos == current.length()) {
+      Chunk next;
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while reading");
+      }
+      IOException error = next.error();
+      if (error != null) {
+        current = EOF;
+        throw new IOException("Problem while reading ahead", error);
+      }
+      current = next;
+      pos = 0;
+      if (next == EOF) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return current.data()[pos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if ((off | len | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int n = Math.min(len, current.length() - pos);
+    System.arraycopy(current.data(), pos, b, off, n);
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    return (current == EOF) ? 0 : current.length() - pos;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    readerThread.interrupt();
+    queue.clear();
+    try {
+      readerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package org.plumelib.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.regex.qual.Regex;
+import org.checkerframework.dataflow.qual.Pure;
+import org.checkerframework.dataflow.qual.SideEffectFree;
+
+/**
+ * A set of regular expressions, compiled once, that can be tested against a string in a single
+ * pass. A string is matched by the set if it is matched in its entirety (as by {@link
+ * java.util.regex.Matcher#matches}) by at least one of the regular expressions.
+ *
+ * <p>Use a RegexSet rather than a collection of regular expressions when the same regular
+ * expressions are tested against many strings, for example with {@link
+ * RegexUtil#matchesSomeRegex(Collection, RegexSet)}. Construction classifies each regular
+ * expression:
+ *
+ * <ul>
+ *   <li>A regular expression that contains no metacharacters is matched only by itself, so it is
+ *       looked up in a hash set.
+ *   <li>All other regular expressions are combined into a single alternation, which is matched
+ *       once per string rather than once per regular expression. If every such regular expression
+ *       starts with a literal prefix, a string that starts with none of those prefixes is rejected
+ *       without running the matcher at all.
+ *   <li>A regular expression that cannot safely be combined with others (because it contains a
+ *       backreference, whose group number would change) is matched on its own.
+ * </ul>
+ *
+ * <p>A RegexSet is immutable and may be shared among threads.
+ */
+public final class RegexSet {
+
+  /** The regular expressions in this set, in the order they were supplied. */
+  private final List<@Regex String> regexes;
+
+  /** The regular expressions that contain no metacharacters. */
+  private final Set<String> literals;
+
+  /**
+   * The alternation of the regular expressions that are neither literals nor in {@link
+   * #separate}, or null if there are no such regular expressions.
+   */
+  private final @Nullable Pattern combined;
+
+  /**
+   * The literal prefixes of the regular expressions in {@link #combined}, truncated to length
+   * {@link #prefixLength}. Null if some regular expression has no literal prefix.
+   */
+  private final @Nullable Set<String> prefixes;
+
+  /** The length of every string in {@link #prefixes}; 0 if {@link #prefixes} is null. */
+  private final int prefixLength;
+
+  /** Patterns that are matched one at a time. */
+  private final List<Pattern> separate;
+
+  /** The metacharacters of Java regular expressions. */
+  private static final String metacharacters = "\\^$.|?*+()[]{}";
+
+  /**
+   * Creates a RegexSet that matches a string iff some element of {@code regexes} matches it.
+   *
+   * @param regexes the regular expressions
+   */
+  @SuppressWarnings("regex") // the alternation of regular expressions is a regular expression
+  public RegexSet(Collection<@Regex String> regexes) {
+    this.regexes = Collections.unmodifiableList(new ArrayList<>(regexes));
+    Set<String> literals = new HashSet<>();
+    List<String> combinable = new ArrayList<>();
+    // The compiled forms of the elements of combinable.  Compiling each regular expression on its
+    // own rejects a malformed one, such as "a)|(?:b", that would otherwise balance the parentheses
+    // of the alternation.
+    List<Pattern> combinablePatterns = new ArrayList<>();
+    List<Pattern> separate = new ArrayList<>();
+    for (String regex : regexes) {
+      if (isLiteral(regex)) {
+        literals.add(regex);
+      } else if (hasBackreference(regex)) {
+        separate.add(Pattern.compile(regex));
+      } else {
+        combinablePatterns.add(Pattern.compile(regex));
+        combinable.add(regex);
+      }
+    }
+
+    Pattern combined = null;
+    if (combinable.size() == 1) {
+      combined = combinablePatterns.get(0);
+    } else if (!combinable.isEmpty()) {
+      StringJoiner alternation = new StringJoiner(")|(?:", "(?:", ")");
+      for (String regex : combinable) {
+        alternation.add(regex);
+      }
+      try {
+        combined = Pattern.compile(alternation.toString());
+      } catch (PatternSyntaxException e) {
+        // For example, two of the regular expressions define the same named group.
+        separate.addAll(combinablePatterns);
+        combinable.clear();
+      }
+    }
+
+    int prefixLength = Integer.MAX_VALUE;
+    for (String regex : combinable) {
+      prefixLength = Math.min(prefixLength, literalPrefix(regex).length());
+    }
+    Set<String> prefixes = null;
+    if (combined != null && prefixLength > 0) {
+      prefixes = new HashSet<>();
+      for (String regex : combinable) {
+        prefixes.add(literalPrefix(regex).substring(0, prefixLength));
+      }
+    } else {
+      prefixLength = 0;
+    }
+
+    this.literals = literals;
+    this.combined = combined;
+    this.prefixes = prefixes;
+    this.prefixLength = prefixLength;
+    this.separate = separate;
+  }
+
+  /**
+   * Returns true if some regular expression in this set matches the entire string.
+   *
+   * @param s the string to test
+   * @return true if some regular expression in this set matches {@code s}
+   */
+  @SuppressWarnings("allcheckers:purity") // creates a local Matcher
+  @Pure
+  public boolean matches(String s) {
+    if (literals.contains(s)) {
+      return true;
+    }
+    if (combined != null
+        && (prefixes == null
+            || (s.length() >= prefixLength
+                && prefixes.contains(s.substring(0, prefixLength))))
+        && combined.matcher(s).matches()) {
+      return true;
+    }
+    for (Pattern p : separate) {
+      if (p.matcher(s).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the regular expressions in this set, in the order they were supplied.
+   *
+   * @return the regular expressions in this set
+   */
+  @Pure
+  public List<@Regex String> regexes() {
+    return regexes;
+  }
+
+  /**
+   * Returns true if this set contains no regular expressions, so it matches no string.
+   *
+   * @return true if this set contains no regular expressions
+   */
+  @Pure
+  public boolean isEmpty() {
+    return regexes.isEmpty();
+  }
+
+  @SideEffectFree
+  @Override
+  public String toString() {
+    return "RegexSet" + regexes;
+  }
+
+  /**
+   * Returns true if the regular expression contains no metacharacters, so it matches only itself.
+   *
+   * @param regex a regular expression
+   * @return true if {@code regex} matches only the string {@code regex}
+   */
+  @Pure
+  private static boolean isLiteral(String regex) {
+    for (int i = 0; i < regex.length(); i++) {
+      if (metacharacters.indexOf(regex.charAt(i)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the regular expression might contain a backreference. This is conservative:
+   * it may return true for a regular expression that has no backreference.
+   *
+   * @param regex a regular expression
+   * @return true if {@code regex} might contain a backreference
+   */
+  @Pure
+  private static boolean hasBackreference(String regex) {
+    for (int i = regex.indexOf('\\'); i != -1; i = regex.indexOf('\\', i + 2)) {
+      if (i + 1 < regex.length()) {
+        char c = regex.charAt(i + 1);
+        if (('1' <= c && c <= '9') || c == 'k') {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a string that is a prefix of every string that the regular expression matches. The
+   * result consists of the leading characters of the regular expression that are not
+   * metacharacters and are not followed by a quantifier. Returns the empty string if the regular
+   * expression contains an alternation, which might not apply to the prefix.
+   *
+   * @param regex a regular expression
+   * @return a prefix of every string that {@code regex} matches
+   */
+  @SideEffectFree
+  private static String literalPrefix(String regex) {
+    if (regex.indexOf('|') != -1) {
+      return "";
+    }
+    int end = 0;
+    while (end < regex.length() && metacharacters.indexOf(regex.charAt(end)) == -1) {
+      end++;
+    }
+    if (end < regex.length() && end > 0) {
+      char next = regex.charAt(end);
+      if (next == '?' || next == '*' || next == '{') {
+        end--;
+      }
+    }
+    return regex.substring(0, end);
+  }
+}
@@ -6,6 +6,8 @@ package org.plumelib.util;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import org.checkerframework.checker.index.qual.GTENegativeOne;
@@ -157,20 +159,23 @@ public final class RegexUtil {
    */
   @SuppressWarnings({
     "regex", // RegexUtil
-    "allcheckers:purity.not.deterministic.catch" // catch block returns boolean
+    "allcheckers:purity.not.deterministic.catch", // catch block returns boolean
+    // compile() updates only the cache and its statistics, and its groupCount is deterministic
+    "allcheckers:purity.not.deterministic.call",
+    "allcheckers:purity.not.sideeffectfree.call"
   })
   @Pure
   // @EnsuresQualifierIf annotation is extraneous because this method is special-cased
   // in RegexTransfer.
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = Regex.class)
   public static boolean isRegex(String s, int groups) {
-    Pattern p;
+    CompiledRegex compiled;
     try {
-      p = Pattern.compile(s);
+      compiled = compile(s, 0);
     } catch (PatternSyntaxException e) {
       return false;
     }
-    return getGroupCount(p) >= groups;
+    return compiled.groupCount() >= groups;
   }
 
   /**
@@ -216,14 +221,16 @@ public final class RegexUtil {
    * @return its argument
    * @throws Error if argument is not a regex
    */
-  @SuppressWarnings("regex") // RegexUtil
+  @SuppressWarnings({
+    "regex", // RegexUtil
+    "allcheckers:purity.not.sideeffectfree.call" // compile() updates only cache statistics
+  })
   @SideEffectFree
   // The return type annotation is irrelevant; this method is special-cased by
   // RegexAnnotatedTypeFactory.
   public static @Regex String asRegex(String s, int groups) {
     try {
-      Pattern p = Pattern.compile(s);
-      int actualGroups = getGroupCount(p);
+      int actualGroups = compile(s, 0).groupCount();
       if (actualGroups < groups) {
         throw new Error(regexErrorMessage(s, groups, actualGroups));
       }
@@ -253,12 +260,15 @@ public final class RegexUtil {
    * @param groups number of groups expected
    * @return null, or a string describing why the argument is not a regex
    */
-  @SuppressWarnings({"regex", "not.sef"}) // RegexUtil;
+  @SuppressWarnings({
+    "regex", // RegexUtil
+    "not.sef",
+    "allcheckers:purity.not.sideeffectfree.call" // compile() updates only cache statistics
+  })
   @SideEffectFree
   public static @Nullable String regexError(String s, int groups) {
     try {
-      Pattern p = Pattern.compile(s);
-      int actualGroups = getGroupCount(p);
+      int actualGroups = compile(s, 0).groupCount();
       if (actualGroups < groups) {
         return regexErrorMessage(s, groups, actualGroups);
       }
@@ -289,12 +299,14 @@ public final class RegexUtil {
    * @param groups number of groups expected
    * @return null, or a PatternSyntaxException describing why the argument is not a regex
    */
-  @SuppressWarnings("regex") // RegexUtil
+  @SuppressWarnings({
+    "regex", // RegexUtil
+    "allcheckers:purity.not.sideeffectfree.call" // compile() updates only cache statistics
+  })
   @SideEffectFree
   public static @Nullable PatternSyntaxException regexException(String s, int groups) {
     try {
-      Pattern p = Pattern.compile(s);
-      int actualGroups = getGroupCount(p);
+      int actualGroups = compile(s, 0).groupCount();
       if (actualGroups < groups) {
         return new PatternSyntaxException(regexErrorMessage(s, groups, actualGroups), s, -1);
       }
@@ -336,6 +348,125 @@ public final class RegexUtil {
     return p.matcher("").groupCount();
   }
 
+  // //////////////////////////////////////////////////////////////////////
+  // Compiled-pattern cache
+  //
+
+  /** The maximum number of patterns in {@link #patternCache}. */
+  private static final int PATTERN_CACHE_SIZE = 512;
+
+  /**
+   * A compiled pattern and the number of its capturing groups.
+   *
+   * @param pattern the compiled pattern
+   * @param groupCount the number of capturing groups in the pattern
+   */
+  private static record CompiledRegex(Pattern pattern, int groupCount) {}
+
+  /**
+   * The key of {@link #patternCache}.
+   *
+   * @param regex the regular expression
+   * @param flags the flags passed to {@link Pattern#compile(String, int)}
+   */
+  private static record PatternKey(String regex, int flags) {}
+
+  /**
+   * Recently compiled patterns. Only syntactically valid regular expressions are cached. Access to
+   * the map must be synchronized on it.
+   */
+  private static final Map<PatternKey, CompiledRegex> patternCache =
+      MapsP.createLruCache(PATTERN_CACHE_SIZE);
+
+  /** The number of lookups in {@link #patternCache} that found a pattern. */
+  private static final AtomicLong patternCacheHits = new AtomicLong();
+
+  /** The number of lookups in {@link #patternCache} that compiled a pattern. */
+  private static final AtomicLong patternCacheMisses = new AtomicLong();
+
+  /**
+   * Returns the compiled form of the given regular expression. The result is shared with other
+   * callers that pass the same regular expression; this is safe because {@link Pattern} is
+   * immutable. Up to {@value #PATTERN_CACHE_SIZE} recently used patterns are cached, so it is cheap
+   * to validate a regular expression (for example, with {@link #isRegex(String)}) and then compile
+   * it with this method.
+   *
+   * @param regex the regular expression to compile
+   * @return the compiled pattern
+   * @throws PatternSyntaxException if the regular expression is not syntactically valid
+   */
+  public static Pattern compileCached(@Regex String regex) {
+    return compile(regex, 0).pattern();
+  }
+
+  /**
+   * Returns the compiled form of the given regular expression with the given flags. The result is
+   * shared with other callers that pass the same arguments; this is safe because {@link Pattern}
+   * is immutable.
+   *
+   * @param regex the regular expression to compile
+   * @param flags match flags, as for {@link Pattern#compile(String, int)}
+   * @return the compiled pattern
+   * @throws PatternSyntaxException if the regular expression is not syntactically valid
+   * @throws IllegalArgumentException if {@code flags} contains an undefined bit
+   * @see #compileCached(String)
+   */
+  public static Pattern compileCached(@Regex String regex, int flags) {
+    return compile(regex, flags).pattern();
+  }
+
+  /**
+   * Returns the number of calls that found their pattern in the cache used by {@link
+   * #compileCached} and by the regex validation methods such as {@link #isRegex(String)}.
+   *
+   * @return the number of pattern cache hits
+   */
+  public static long patternCacheHits() {
+    return patternCacheHits.get();
+  }
+
+  /**
+   * Returns the number of calls that compiled a pattern because it was not in the cache used by
+   * {@link #compileCached} and by the regex validation methods such as {@link #isRegex(String)}.
+   * This includes calls whose argument was not a valid regular expression.
+   *
+   * @return the number of pattern cache misses
+   */
+  public static long patternCacheMisses() {
+    return patternCacheMisses.get();
+  }
+
+  /**
+   * Compiles the given regular expression, using {@link #patternCache}. This is not
+   * side-effect-free, because it updates the cache and the counts returned by {@link
+   * #patternCacheHits} and {@link #patternCacheMisses}.
+   *
+   * @param s the regular expression to compile
+   * @param flags match flags, as for {@link Pattern#compile(String, int)}
+   * @return the compiled pattern and its number of capturing groups
+   * @throws PatternSyntaxException if {@code s} is not syntactically valid
+   */
+  @SuppressWarnings("regex") // RegexUtil
+  private static CompiledRegex compile(String s, int flags) {
+    PatternKey key = new PatternKey(s, flags);
+    CompiledRegex result;
+    synchronized (patternCache) {
+      result = patternCache.get(key);
+    }
+    if (result != null) {
+      patternCacheHits.incrementAndGet();
+      return result;
+    }
+    patternCacheMisses.incrementAndGet();
+    // Compile outside the lock; a concurrent miss on the same key compiles twice, harmlessly.
+    Pattern p = Pattern.compile(s, flags);
+    result = new CompiledRegex(p, getGroupCount(p));
+    synchronized (patternCache) {
+      patternCache.put(key, result);
+    }
+    return result;
+  }
+
   /**
    * Returns the strings such that any one of the regexes matches it.
    *
@@ -345,14 +476,21 @@ public final class RegexUtil {
    */
   public static List<String> matchesSomeRegex(
       Collection<String> strings, Collection<@Regex String> regexes) {
-    List<Pattern> patterns = CollectionsP.mapList(Pattern::compile, regexes);
+    return matchesSomeRegex(strings, new RegexSet(regexes));
+  }
+
+  /**
+   * Returns the strings such that any one of the regexes matches it.
+   *
+   * @param strings a collection of strings
+   * @param regexes a set of regular expressions
+   * @return the strings such that any one of the regexes matches it
+   */
+  public static List<String> matchesSomeRegex(Collection<String> strings, RegexSet regexes) {
     List<String> result = new ArrayList<>(strings.size());
     for (String s : strings) {
-      for (Pattern p : patterns) {
-        if (p.matcher(s).matches()) {
-          result.add(s);
-          break;
-        }
+      if (regexes.matches(s)) {
+        result.add(s);
       }
     }
     return result;
@@ -367,15 +505,22 @@ public final class RegexUtil {
    */
   public static boolean everyStringMatchesSomeRegex(
       Collection<String> strings, Collection<@Regex String> regexes) {
-    List<Pattern> patterns = CollectionsP.mapList(Pattern::compile, regexes);
-    outer:
+    return everyStringMatchesSomeRegex(strings, new RegexSet(regexes));
+  }
+
+  /**
+   * Returns true if every string is matched by at least one regex.
+   *
+   * @param strings a collection of strings
+   * @param regexes a set of regular expressions
+   * @return true if every string is matched by at least one regex
+   */
+  public static boolean everyStringMatchesSomeRegex(
+      Collection<String> strings, RegexSet regexes) {
     for (String s : strings) {
-      for (Pattern p : patterns) {
-        if (p.matcher(s).matches()) {
-          continue outer;
-        }
+      if (!regexes.matches(s)) {
+        return false;
       }
-      return false;
     }
     return true;
   }
@@ -389,16 +534,22 @@ public final class RegexUtil {
    */
   public static List<String> matchesNoRegex(
       Collection<String> strings, Collection<@Regex String> regexes) {
-    List<Pattern> patterns = CollectionsP.mapList(Pattern::compile, regexes);
+    return matchesNoRegex(strings, new RegexSet(regexes));
+  }
+
+  /**
+   * Returns the strings that are matched by no regex.
+   *
+   * @param strings a collection of strings
+   * @param regexes a set of regular expressions
+   * @return the strings such that none of the regexes matches it
+   */
+  public static List<String> matchesNoRegex(Collection<String> strings, RegexSet regexes) {
     List<String> result = new ArrayList<>(strings.size());
-    outer:
     for (String s : strings) {
-      for (Pattern p : patterns) {
-        if (p.matcher(s).matches()) {
-          continue outer;
-        }
+      if (!regexes.matches(s)) {
+        result.add(s);
       }
-      result.add(s);
     }
     return result;
   }
@@ -412,12 +563,23 @@ public final class RegexUtil {
    */
   public static boolean noStringMatchesAnyRegex(
       Collection<String> strings, Collection<@Regex String> regexes) {
-    for (String regex : regexes) {
-      Pattern p = Pattern.compile(regex);
-      for (String s : strings) {
-        if (p.matcher(s).matches()) {
-          return false;
-        }
+    return noStringMatchesAnyRegex(strings, new RegexSet(regexes));
+  }
+
+  /**
+   * Returns true if no string is matched by any regex.
+   *
+   * @param strings a collection of strings
+   * @param regexes a set of regular expressions
+   * @return true if no string is matched by any regex
+   */
+  public static boolean noStringMatchesAnyRegex(Collection<String> strings, RegexSet regexes) {
+    if (regexes.isEmpty()) {
+      return true;
+    }
+    for (String s : strings) {
+      if (regexes.matches(s)) {
+        return false;
       }
     }
     return true;
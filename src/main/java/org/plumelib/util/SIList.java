@@ -1,14 +1,25 @@
 package org.plumelib.util;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
 import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.checkerframework.checker.index.qual.IndexFor;
 import org.checkerframework.checker.index.qual.IndexOrHigh;
 import org.checkerframework.checker.index.qual.LengthOf;
@@ -33,6 +44,15 @@ import org.checkerframework.common.value.qual.ArrayLen;
  *
  * <p>"SIList" stands for "Shared Immutable List".
  *
+ * <p>A list built by many calls to {@link #add} is kept balanced: its most recent additions are
+ * periodically gathered into arrays, which are combined into a balanced tree. Thus {@link #get} of
+ * such a list takes time logarithmic in its size, and neither it nor any other operation can
+ * overflow the stack, no matter how many elements were added.
+ *
+ * <p>Iterating over a list takes constant time per element, however the list was constructed. The
+ * {@link #spliterator} splits a list along the boundaries of the lists that it was built from, so
+ * {@link #parallelStream} can process the parts in parallel.
+ *
  * @param <E> the type of elements of the list
  */
 public abstract class SIList<E> implements Iterable<E>, Serializable {
@@ -40,6 +60,12 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
   /** Serial version UID. */
   static final long serialVersionUID = 20250617;
 
+  /**
+   * The maximum number of consecutive {@link OneMoreElementList}s. When {@link #add} would exceed
+   * it, the elements of the chain are gathered into an array instead.
+   */
+  private static final int MAX_CHAIN_LENGTH = 64;
+
   // **************** producers ****************
 
   /** Creates a SIList. */
@@ -199,6 +225,39 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     return new ListOfLists<>(new ArrayList<>(lists));
   }
 
+  /**
+   * Returns a list that consists of {@code base} followed by {@code chunk}. The result keeps lists
+   * built by repeated appends balanced.
+   *
+   * <p>The result is a "spine": a ListOfLists whose sublists are balanced trees whose sizes at
+   * least double from each sublist to the previous one, so a spine has logarithmically many
+   * sublists. Appending works like incrementing a binary counter: the new chunk becomes the last
+   * sublist, and then, while the last sublist is more than half the size of the one before it, the
+   * two are combined into one tree. The elements of {@code base} and {@code chunk} are not copied.
+   *
+   * @param <E2> the type of list elements
+   * @param base a list; if it is a spine, its sublists are reused
+   * @param chunk a nonempty list to append to {@code base}
+   * @return the concatenation of {@code base} and {@code chunk}
+   */
+  private static <E2> SIList<E2> appendToSpine(SIList<E2> base, SIList<E2> chunk) {
+    List<SIList<E2>> spine = new ArrayList<>();
+    if (base instanceof ListOfLists<E2> lol && lol.isSpine) {
+      Collections.addAll(spine, lol.lists);
+    } else if (!base.isEmpty()) {
+      spine.add(base);
+    }
+    spine.add(chunk);
+    int n;
+    while ((n = spine.size()) >= 2
+        && spine.get(n - 2).size() < 2L * spine.get(n - 1).size()) {
+      SIList<E2> last = spine.remove(n - 1);
+      SIList<E2> previous = spine.remove(n - 2);
+      spine.add(new ListOfLists<>(List.of(previous, last), false));
+    }
+    return (spine.size() == 1) ? spine.get(0) : new ListOfLists<>(spine, true);
+  }
+
   // **************** accessors ****************
 
   /**
@@ -254,6 +313,96 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
    */
   public abstract SIList<E> getSublistContaining(@IndexFor("this") int index);
 
+  /**
+   * Returns an iterator over the elements of this list. Its {@code next} method takes amortized
+   * constant time, however this list was constructed.
+   *
+   * @return an iterator over the elements of this list
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new FlatIterator<>(this, 0, size());
+  }
+
+  /**
+   * Returns a spliterator over the elements of this list. It is {@link Spliterator#SIZED}, {@link
+   * Spliterator#SUBSIZED}, {@link Spliterator#IMMUTABLE}, and {@link Spliterator#ORDERED}. It
+   * splits this list where possible at the boundaries of the lists that this list was built from.
+   *
+   * @return a spliterator over the elements of this list
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return new SIListSpliterator<>(this, 0, size());
+  }
+
+  /**
+   * Returns a sequential stream of the elements of this list.
+   *
+   * @return a sequential stream of the elements of this list
+   */
+  public Stream<E> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * Returns a possibly parallel stream of the elements of this list.
+   *
+   * @return a possibly parallel stream of the elements of this list
+   */
+  public Stream<E> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
+  // **************** structure, for iteration ****************
+
+  /**
+   * A range of the elements of a list.
+   *
+   * @param <E> the type of elements of the list
+   * @param list the list
+   * @param from the index of the first element in the range
+   * @param to the index after the last element in the range
+   */
+  private static record Range<E>(SIList<E> list, int from, int to) {}
+
+  /**
+   * Returns true if {@link #get} takes constant time for every index in the given range, so that
+   * an iterator can use {@code get} rather than {@link #pushParts}.
+   *
+   * @param from the index of the first element in the range
+   * @param to the index after the last element in the range
+   * @return true if {@code get} takes constant time for indices in [from, to)
+   */
+  /*package-private*/ boolean hasFastGet(int from, int to) {
+    return false;
+  }
+
+  /**
+   * Divides the given nonempty range of this list into parts that are ranges of the lists that
+   * this list is built from, and pushes them onto the stack in reverse order, so that popping them
+   * yields them in order. Need not be implemented if {@link #hasFastGet} always returns true.
+   *
+   * @param stack the stack to push the parts onto
+   * @param from the index of the first element in the range
+   * @param to the index after the last element in the range
+   */
+  /*package-private*/ void pushParts(Deque<Range<E>> stack, int from, int to) {
+    throw new Error("This can't happen.");
+  }
+
+  /**
+   * Returns an index at which to split the given range of this list: preferably near its middle,
+   * and at a boundary between the lists that this list is built from.
+   *
+   * @param from the index of the first element in the range
+   * @param to the index after the last element in the range; at least {@code from + 2}
+   * @return an index strictly between {@code from} and {@code to}
+   */
+  /*package-private*/ int splitPoint(int from, int to) {
+    return (from + to) >>> 1;
+  }
+
   @Override
   @SuppressWarnings({
     "allcheckers:purity.not.sideeffectfree.call",
@@ -351,6 +500,15 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     public Iterator<E> iterator() {
       return Collections.emptyIterator();
     }
+
+    /**
+     * Returns the unique empty list, so that deserialization does not create another one.
+     *
+     * @return the unique empty list
+     */
+    private Object readResolve() {
+      return it;
+    }
   }
 
   /**
@@ -406,6 +564,11 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     public Iterator<E> iterator() {
       return Collections.singleton(element).iterator();
     }
+
+    @Override
+    boolean hasFastGet(int from, int to) {
+      return true;
+    }
   }
 
   /**
@@ -428,6 +591,12 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     /** The size of this. */
     private final @LengthOf({"this", "list"}) int size;
 
+    /**
+     * The number of OneMoreElementLists in the chain that ends with this one: 1 if {@link #list}
+     * is not a OneMoreElementList.
+     */
+    private final int chainLength;
+
     /**
      * Creates a OneMoreElementList.
      *
@@ -439,6 +608,32 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
       this.list = list;
       this.lastElement = extraElement;
       this.size = list.size() + 1;
+      this.chainLength = (list instanceof OneMoreElementList<E> l) ? l.chainLength + 1 : 1;
+    }
+
+    /**
+     * Returns a new list that consists of this one plus one more element. If the chain of
+     * OneMoreElementLists would become too long, its elements are gathered into an array, which is
+     * appended to the list that the chain extends.
+     *
+     * @param element the additional element
+     * @return a new list that consists of this one plus one more element
+     */
+    @Override
+    @SuppressWarnings("unchecked") // the array holds only elements of type E
+    public SIList<E> add(E element) {
+      if (chainLength < MAX_CHAIN_LENGTH) {
+        return new OneMoreElementList<>(this, element);
+      }
+      Object[] elements = new Object[chainLength + 1];
+      elements[chainLength] = element;
+      SIList<E> base = this;
+      for (int i = chainLength - 1; i >= 0; i--) {
+        OneMoreElementList<E> link = (OneMoreElementList<E>) base;
+        elements[i] = link.lastElement;
+        base = link.list;
+      }
+      return appendToSpine(base, new SimpleArrayList<>(Arrays.asList((E[]) elements)));
     }
 
     @Override
@@ -464,8 +659,25 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     }
 
     @Override
-    public Iterator<E> iterator() {
-      return CollectionsP.iteratorPlusOne(list.iterator(), lastElement);
+    boolean hasFastGet(int from, int to) {
+      return from == size - 1;
+    }
+
+    @Override
+    void pushParts(Deque<Range<E>> stack, int from, int to) {
+      if (to == size) {
+        stack.push(new Range<>(this, size - 1, size));
+      }
+      int listTo = Math.min(to, size - 1);
+      if (from < listTo) {
+        stack.push(new Range<>(list, from, listTo));
+      }
+    }
+
+    @Override
+    int splitPoint(int from, int to) {
+      int listTo = Math.min(to, size - 1);
+      return (listTo - from >= 2) ? list.splitPoint(from, listTo) : listTo;
     }
 
     @Override
@@ -479,6 +691,24 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
       }
       throw new Error("This can't happen.");
     }
+
+    /**
+     * Returns the object to serialize in place of this. A long chain of OneMoreElementLists would
+     * overflow the stack if serialized one link at a time, so the elements that were added by the
+     * chain are serialized together, after the list that the chain extends.
+     *
+     * @return the serialized form of this
+     */
+    private Object writeReplace() {
+      ArrayList<E> added = new ArrayList<>();
+      SIList<E> base = this;
+      while (base instanceof OneMoreElementList<E> link) {
+        added.add(link.lastElement);
+        base = link.list;
+      }
+      Collections.reverse(added);
+      return new SerializedForm<>(base, added);
+    }
   }
 
   /**
@@ -523,7 +753,12 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
 
     @Override
     public Iterator<E> iterator() {
-      return delegate.iterator();
+      return Collections.unmodifiableList(delegate).iterator();
+    }
+
+    @Override
+    boolean hasFastGet(int from, int to) {
+      return true;
     }
 
     @Override
@@ -553,13 +788,27 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     /** The size of this collection. */
     private @LengthOf("this") int size;
 
+    /** True if this is a spine; see {@link SIList#appendToSpine}. */
+    private final boolean isSpine;
+
     /**
      * Create a ListOfLists from a list of SILists.
      *
      * @param lists the lists that will compose the newly-created ListOfLists
      */
-    @SuppressWarnings("index") // constructor creates object of size @SameLen(this) by definition
     ListOfLists(List<SIList<E>> lists) {
+      this(lists, false);
+    }
+
+    /**
+     * Create a ListOfLists from a list of SILists.
+     *
+     * @param lists the lists that will compose the newly-created ListOfLists
+     * @param isSpine true if the result is a spine; see {@link SIList#appendToSpine}
+     */
+    @SuppressWarnings("index") // constructor creates object of size @SameLen(this) by definition
+    ListOfLists(List<SIList<E>> lists, boolean isSpine) {
+      this.isSpine = isSpine;
       // TODO: have a variant that doesn't make a copy?
       @LengthOf({"lists", "this.lists"}) int numLists = lists.size();
       @SuppressWarnings({
@@ -593,38 +842,83 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     @Override
     public E get(int index) {
       checkIndex(index);
-      int previousListSize = 0;
-      @LengthOf({"cumulativeSize", "lists"}) int numLists = cumulativeSize.length;
-      for (int i = 0; i < numLists; i++) {
-        if (index < cumulativeSize[i]) {
-          @SuppressWarnings("index:argument") // index arithmetic
-          E result = lists[i].get(index - previousListSize);
-          return result;
-        }
-        previousListSize = cumulativeSize[i];
-      }
-      throw new Error("This can't happen.");
+      int i = listIndex(index);
+      @SuppressWarnings("index:argument") // index arithmetic
+      E result = lists[i].get(index - startOf(i));
+      return result;
     }
 
     @Override
     public SIList<E> getSublistContaining(int index) {
       checkIndex(index);
-      int previousListSize = 0;
-      for (int i = 0; i < cumulativeSize.length; i++) {
-        if (index < cumulativeSize[i]) {
-          @SuppressWarnings("index:argument") // index arithmetic
-          SIList<E> result = lists[i].getSublistContaining(index - previousListSize);
-          return result;
+      int i = listIndex(index);
+      @SuppressWarnings("index:argument") // index arithmetic
+      SIList<E> result = lists[i].getSublistContaining(index - startOf(i));
+      return result;
+    }
+
+    /**
+     * Returns the index of the sublist that contains the given index of this, using binary search
+     * on {@link #cumulativeSize}.
+     *
+     * @param index a valid index into this
+     * @return the least {@code i} such that {@code index < cumulativeSize[i]}
+     */
+    @SuppressWarnings("index:return") // binary search; index < size == the last cumulativeSize
+    private @IndexFor({"lists", "cumulativeSize"}) int listIndex(int index) {
+      int low = 0;
+      int high = cumulativeSize.length - 1;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (index < cumulativeSize[mid]) {
+          high = mid;
+        } else {
+          low = mid + 1;
         }
-        previousListSize = cumulativeSize[i];
       }
-      throw new Error("This can't happen.");
+      return low;
+    }
+
+    /**
+     * Returns the index in this of the first element of the given sublist.
+     *
+     * @param i the index of a sublist
+     * @return the number of elements in the sublists before the {@code i}th one
+     */
+    private int startOf(@IndexFor({"lists", "cumulativeSize"}) int i) {
+      return (i == 0) ? 0 : cumulativeSize[i - 1];
     }
 
     @Override
-    public Iterator<E> iterator() {
-      List<Iterator<E>> itors = CollectionsP.mapList(SIList::iterator, lists);
-      return CollectionsP.mergedIterator(itors.iterator());
+    void pushParts(Deque<Range<E>> stack, int from, int to) {
+      for (int i = listIndex(to - 1); i >= 0; i--) {
+        int start = startOf(i);
+        if (start < to && cumulativeSize[i] > start) {
+          int partFrom = Math.max(from, start) - start;
+          int partTo = Math.min(to, cumulativeSize[i]) - start;
+          stack.push(new Range<>(lists[i], partFrom, partTo));
+        }
+        if (start <= from) {
+          break;
+        }
+      }
+    }
+
+    @Override
+    int splitPoint(int from, int to) {
+      int first = listIndex(from);
+      int last = listIndex(to - 1);
+      if (first == last) {
+        int start = startOf(first);
+        return start + lists[first].splitPoint(from - start, to - start);
+      }
+      // The boundaries between sublists that lie strictly inside the range are
+      // cumulativeSize[first] .. cumulativeSize[last - 1].  Choose the one nearest the middle.
+      int mid = (from + to) >>> 1;
+      int i = listIndex(mid);
+      int before = (i > first) ? startOf(i) : cumulativeSize[first];
+      int after = (i < last) ? cumulativeSize[i] : startOf(last);
+      return (mid - before <= after - mid) ? before : after;
     }
   }
 
@@ -686,36 +980,268 @@ public abstract class SIList<E> implements Iterable<E>, Serializable {
     }
 
     @Override
-    public Iterator<E> iterator() {
-      return new SimpleSubListIterator();
+    public SIList<E> subList(int fromIndex, int toIndex) {
+      checkRange(fromIndex, toIndex);
+      if (toIndex - fromIndex < 2) {
+        return super.subList(fromIndex, toIndex);
+      }
+      // A view of the same delegate, rather than a view of a view.
+      return new SimpleSubList<>(delegate, this.fromIndex + fromIndex, this.fromIndex + toIndex);
+    }
+
+    @Override
+    void pushParts(Deque<Range<E>> stack, int from, int to) {
+      stack.push(new Range<>(delegate, fromIndex + from, fromIndex + to));
     }
 
-    // Two possible implementation strategies:
-    //  1. Create an iterator for `delegate`, discard `fromIndex` elements of it, and fail after
-    // getting to `toIndex`.
-    //  2. Use `get` to obtain the elements one by one, from `fromIndex` to `toIndex`.
-    // I'm not sure which approach is more efficient.
-    /** An iterator over a SimpleSubList. */
-    private class SimpleSubListIterator implements Iterator<E> {
+    @Override
+    int splitPoint(int from, int to) {
+      return delegate.splitPoint(fromIndex + from, fromIndex + to) - fromIndex;
+    }
 
-      /** The index of the next element to return. */
-      int index = fromIndex;
+    /**
+     * Returns the object to serialize in place of this: just the elements of this sublist, not the
+     * entire list that it is a view of.
+     *
+     * @return the serialized form of this
+     */
+    private Object writeReplace() {
+      ArrayList<E> elements = new ArrayList<>(size());
+      for (E e : this) {
+        elements.add(e);
+      }
+      return new SerializedForm<E>(empty(), elements);
+    }
+  }
+
+  /**
+   * An iterator over a range of a SIList. It maintains an explicit stack of the parts of the range
+   * that remain, rather than nesting one iterator per level of the list's structure, so its cost
+   * per element does not depend on how the list was constructed.
+   *
+   * @param <E> the type of elements of the list
+   */
+  private static final class FlatIterator<E> implements Iterator<E> {
 
-      /** Creates a new SimpleSubListIterator. */
-      public SimpleSubListIterator() {}
+    /** The parts of the range that remain, after {@link #leaf}; the next part is on top. */
+    private final Deque<Range<E>> stack = new ArrayDeque<>();
 
-      @Override
-      public boolean hasNext(@GuardSatisfied SimpleSubListIterator this) {
-        return index < toIndex;
+    /** The list whose elements are currently being returned, using {@code get}. */
+    private @Nullable SIList<E> leaf = null;
+
+    /** The index in {@link #leaf} of the next element to return. */
+    private int index = 0;
+
+    /** The index in {@link #leaf} after the last element to return from it. */
+    private int end = 0;
+
+    /**
+     * Creates an iterator over the given range of a list.
+     *
+     * @param list the list
+     * @param from the index of the first element to return
+     * @param to the index after the last element to return
+     */
+    FlatIterator(SIList<E> list, int from, int to) {
+      if (from < to) {
+        stack.push(new Range<>(list, from, to));
       }
+    }
 
-      @Override
-      public E next(@GuardSatisfied SimpleSubListIterator this) {
-        if (!hasNext()) {
-          throw new NoSuchElementException();
+    @Override
+    public boolean hasNext(@GuardSatisfied FlatIterator<E> this) {
+      while (index == end) {
+        Range<E> range = stack.poll();
+        if (range == null) {
+          return false;
         }
-        return delegate.get(index++);
+        SIList<E> list = range.list();
+        if (list.hasFastGet(range.from(), range.to())) {
+          leaf = list;
+          index = range.from();
+          end = range.to();
+        } else {
+          list.pushParts(stack, range.from(), range.to());
+        }
+      }
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings({
+      "nullness:dereference.of.nullable", // hasNext() sets leaf
+      "index:argument" // hasNext() ensures that index is valid for leaf
+    })
+    public E next(@GuardSatisfied FlatIterator<E> this) {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return leaf.get(index++);
+    }
+  }
+
+  /**
+   * A spliterator over a range of a SIList.
+   *
+   * @param <E> the type of elements of the list
+   */
+  private static final class SIListSpliterator<E> implements Spliterator<E> {
+
+    /** The list. */
+    private final SIList<E> list;
+
+    /** The index of the next element to return. */
+    private int from;
+
+    /** The index after the last element to return. */
+    private final int to;
+
+    /** The iterator that returns the elements, or null if traversal has not begun. */
+    private @Nullable FlatIterator<E> itor = null;
+
+    /**
+     * Creates a spliterator over the given range of a list.
+     *
+     * @param list the list
+     * @param from the index of the first element to return
+     * @param to the index after the last element to return
+     */
+    SIListSpliterator(SIList<E> list, int from, int to) {
+      this.list = list;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Returns the iterator that returns the elements, creating it if necessary.
+     *
+     * @return the iterator that returns the elements
+     */
+    private FlatIterator<E> itor() {
+      FlatIterator<E> result = itor;
+      if (result == null) {
+        result = new FlatIterator<>(list, from, to);
+        itor = result;
+      }
+      return result;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+      Objects.requireNonNull(action);
+      FlatIterator<E> it = itor();
+      if (!it.hasNext()) {
+        return false;
+      }
+      from++;
+      action.accept(it.next());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+      Objects.requireNonNull(action);
+      FlatIterator<E> it = itor();
+      while (it.hasNext()) {
+        from++;
+        action.accept(it.next());
+      }
+    }
+
+    @Override
+    public @Nullable Spliterator<E> trySplit() {
+      if (itor != null || to - from < 2) {
+        return null;
       }
+      int mid = list.splitPoint(from, to);
+      Spliterator<E> prefix = new SIListSpliterator<>(list, from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE | Spliterator.ORDERED;
+    }
+  }
+
+  /**
+   * The serialized form of a OneMoreElementList or a SimpleSubList: a list, followed by some more
+   * elements. Deserialization yields a list with the same elements, though perhaps with a different
+   * representation.
+   *
+   * @param <E> the type of elements of the list
+   */
+  private static final class SerializedForm<E> implements Serializable {
+
+    /** serialVersionUID */
+    private static final long serialVersionUID = 20261019L;
+
+    /** The first elements of the list. */
+    private final SIList<E> prefix;
+
+    /** The remaining elements of the list. Serialized as a count followed by the elements. */
+    private transient List<E> suffix;
+
+    /**
+     * Creates a SerializedForm.
+     *
+     * @param prefix the first elements of the list
+     * @param suffix the remaining elements of the list
+     */
+    SerializedForm(SIList<E> prefix, List<E> suffix) {
+      this.prefix = prefix;
+      this.suffix = suffix;
+    }
+
+    /**
+     * Writes this.
+     *
+     * @param out the stream to write to
+     * @serialData the prefix, then the number of remaining elements, then those elements
+     * @throws IOException if there is trouble writing
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+      out.writeInt(suffix.size());
+      for (E e : suffix) {
+        out.writeObject(e);
+      }
+    }
+
+    /**
+     * Reads a SerializedForm that was written by {@link #writeObject}.
+     *
+     * @param in the stream to read from
+     * @throws IOException if there is trouble reading, or the data is malformed
+     * @throws ClassNotFoundException if a class of a serialized object cannot be found
+     */
+    @SuppressWarnings("unchecked") // deserialization
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      int size = in.readInt();
+      if (size < 0) {
+        throw new InvalidObjectException("negative size: " + size);
+      }
+      List<E> suffix = new ArrayList<>(Math.min(size, 1 << 16));
+      for (int i = 0; i < size; i++) {
+        suffix.add((E) in.readObject());
+      }
+      this.suffix = suffix;
+    }
+
+    /**
+     * Returns the list that this represents.
+     *
+     * @return the list that this represents
+     */
+    private Object readResolve() {
+      return concat(List.of(prefix, from(suffix)));
     }
   }
 }
@@ -0,0 +1,207 @@
+package org.plumelib.util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A binary min-heap of sorted iterators, ordered by the next element of each. This is the shared
+ * machinery of {@link CollectionsP#sortedMergedIterator} and {@link OrderedGroupIterator}.
+ *
+ * <p>Each input is identified by its index in the list passed to the constructor. Inputs whose
+ * next elements are equal are ordered by index, so a merge is stable.
+ *
+ * @param <T> the type of elements of the iterators
+ */
+@SuppressWarnings("index") // input indices are bounded by the number of inputs
+final class SortedIteratorHeap<T extends @Nullable Object> {
+
+  /** The inputs. */
+  private final Iterator<? extends T>[] itors;
+
+  /** The next element of each input that is in the heap. */
+  private final @Nullable Object[] heads;
+
+  /** The indices of the inputs that have a next element, in heap order. */
+  private final int[] heap;
+
+  /** The number of inputs in {@link #heap}. */
+  private @NonNegative int size = 0;
+
+  /** The comparator for elements. */
+  private final Comparator<? super T> comparator;
+
+  /**
+   * Creates a heap of the given iterators.
+   *
+   * @param itors the inputs, each sorted according to {@code comparator}
+   * @param comparator the sort order of the inputs
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  SortedIteratorHeap(
+      List<? extends Iterator<? extends T>> itors, Comparator<? super T> comparator) {
+    this.itors = itors.toArray(new Iterator[0]);
+    this.heads = new Object[this.itors.length];
+    this.heap = new int[this.itors.length];
+    this.comparator = comparator;
+    for (int i = 0; i < this.itors.length; i++) {
+      if (this.itors[i].hasNext()) {
+        heads[i] = this.itors[i].next();
+        heap[size++] = i;
+      }
+    }
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  /**
+   * Returns the number of inputs.
+   *
+   * @return the number of inputs
+   */
+  int inputs() {
+    return itors.length;
+  }
+
+  /**
+   * Returns true if every input is exhausted.
+   *
+   * @return true if every input is exhausted
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the index of the input whose next element is least. The heap must not be empty.
+   *
+   * @return the index of the input whose next element is least
+   */
+  int top() {
+    return heap[0];
+  }
+
+  /**
+   * Returns the next element of the given input, which must be in the heap.
+   *
+   * @param input the index of an input
+   * @return the next element of the input
+   */
+  @SuppressWarnings("unchecked") // heads[input] came from itors[input]
+  T head(int input) {
+    return (T) heads[input];
+  }
+
+  /**
+   * Compares two elements.
+   *
+   * @param a an element
+   * @param b another element
+   * @return the comparison of {@code a} and {@code b}
+   */
+  int compare(T a, T b) {
+    return comparator.compare(a, b);
+  }
+
+  /**
+   * Returns the next element of the least input and advances that input. The heap must not be
+   * empty.
+   *
+   * @return the least next element of any input
+   */
+  T next() {
+    int input = heap[0];
+    T result = head(input);
+    if (itors[input].hasNext()) {
+      heads[input] = itors[input].next();
+    } else {
+      heads[input] = null;
+      size--;
+      heap[0] = heap[size];
+    }
+    if (size > 0) {
+      siftDown(0);
+    }
+    return result;
+  }
+
+  /**
+   * Removes the least input from the heap, without advancing it. The heap must not be empty. Call
+   * {@link #advance} on the result to return it to the heap.
+   *
+   * @return the index of the input that was removed
+   */
+  int removeTop() {
+    int input = heap[0];
+    size--;
+    heap[0] = heap[size];
+    if (size > 0) {
+      siftDown(0);
+    }
+    return input;
+  }
+
+  /**
+   * Advances an input that was removed by {@link #removeTop}, and returns it to the heap if it is
+   * not exhausted.
+   *
+   * @param input the index of an input that is not in the heap
+   */
+  void advance(int input) {
+    if (!itors[input].hasNext()) {
+      heads[input] = null;
+      return;
+    }
+    heads[input] = itors[input].next();
+    int i = size++;
+    heap[i] = input;
+    while (i > 0) {
+      int parent = (i - 1) / 2;
+      if (less(heap[parent], input)) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = input;
+  }
+
+  /**
+   * Returns true if the next element of input {@code a} precedes that of input {@code b}.
+   *
+   * @param a the index of an input in the heap
+   * @param b the index of another input in the heap
+   * @return true if input {@code a} precedes input {@code b}
+   */
+  private boolean less(int a, int b) {
+    int c = comparator.compare(head(a), head(b));
+    return c < 0 || (c == 0 && a < b);
+  }
+
+  /**
+   * Moves the input at the given position of {@link #heap} down to its place.
+   *
+   * @param i a position in the heap
+   */
+  private void siftDown(int i) {
+    int input = heap[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && less(heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (less(input, heap[child])) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = input;
+  }
+}
@@ -2,7 +2,9 @@
 
 package org.plumelib.util;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -16,7 +18,6 @@ import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.index.qual.IndexOrHigh;
-import org.checkerframework.checker.index.qual.LTEqLengthOf;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.mustcall.qual.MustCallUnknown;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -193,8 +194,54 @@ public final class StringsP {
   // Splitting and joining
   //
 
-  /** A pattern that matches all common line separators: lf, cr, cr-lf. */
-  private static Pattern allLineSeparators = Pattern.compile("\\R");
+  /**
+   * Returns true if the character is, or begins, a line separator. The line separators are those
+   * matched by the regular expression {@code \R}: lf, cr, cr-lf, and the less common vertical
+   * tab, form feed, next line (U+0085), line separator (U+2028), and paragraph separator (U+2029).
+   *
+   * @param c a character
+   * @return true if {@code c} is, or begins, a line separator
+   */
+  @Pure
+  static boolean isLineSeparatorChar(char c) {
+    if (c <= '\r') {
+      return c >= '\n';
+    }
+    return c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  /**
+   * Returns the index of the first line separator in {@code s} at or after {@code from}, or -1.
+   *
+   * @param s the string to search
+   * @param from the index at which to start searching
+   * @return the index of the first line separator at or after {@code from}, or -1
+   */
+  @Pure
+  private static int indexOfLineSeparator(CharSequence s, int from) {
+    for (int i = from; i < s.length(); i++) {
+      if (isLineSeparatorChar(s.charAt(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index just past the line separator that starts at index {@code i}. That is, treats
+   * cr-lf as a single line separator.
+   *
+   * @param s a string
+   * @param i the index of a line separator in {@code s}
+   * @return the index just past the line separator that starts at index {@code i}
+   */
+  @Pure
+  private static int lineSeparatorEnd(CharSequence s, int i) {
+    if (s.charAt(i) == '\r' && i + 1 < s.length() && s.charAt(i + 1) == '\n') {
+      return i + 2;
+    }
+    return i + 1;
+  }
 
   /**
    * Returns an array of Strings, one for each line in the argument. The strings do <b>not</b> end
@@ -213,7 +260,14 @@ public final class StringsP {
   @SideEffectFree
   @StaticallyExecutable
   public static String[] splitLines(String s) {
-    return allLineSeparators.split(s, -1);
+    List<String> result = new ArrayList<>();
+    int pos = 0;
+    for (int i = indexOfLineSeparator(s, 0); i != -1; i = indexOfLineSeparator(s, pos)) {
+      result.add(s.substring(pos, i));
+      pos = lineSeparatorEnd(s, i);
+    }
+    result.add(s.substring(pos));
+    return result.toArray(new String[0]);
   }
 
   /**
@@ -222,19 +276,25 @@ public final class StringsP {
    * @param s a string
    * @return the first line separator in the given string
    */
-  @SuppressWarnings({
-    "regex:return", // all matches of allLineSeparators are regexes
-    "allcheckers:purity.not.sideeffectfree.call", // side effect to local state
-    "lock:method.guarantee.violated" // side effect to local state
-  })
+  @SuppressWarnings("regex:return") // a line separator contains no metacharacters
   @SideEffectFree
   public static @Nullable @Regex String firstLineSeparator(String s) {
-    Matcher m = allLineSeparators.matcher(s);
-    if (m.find()) {
-      return m.group();
-    } else {
+    int i = indexOfLineSeparator(s, 0);
+    if (i == -1) {
       return null;
     }
+    int end = lineSeparatorEnd(s, i);
+    if (end == i + 2) {
+      return "\r\n";
+    }
+    switch (s.charAt(i)) {
+      case '\n':
+        return "\n";
+      case '\r':
+        return "\r";
+      default:
+        return String.valueOf(s.charAt(i));
+    }
   }
 
   /**
@@ -245,7 +305,58 @@ public final class StringsP {
    */
   @SideEffectFree
   public static List<String> splitLinesRetainSeparators(String input) {
-    return splitRetainSeparators(input, allLineSeparators);
+    int[] starts = lineStartOffsets(input);
+    List<String> result = new ArrayList<>(starts.length - 1);
+    for (int i = 0; i < starts.length - 1; i++) {
+      result.add(input.substring(starts[i], starts[i + 1]));
+    }
+    return result;
+  }
+
+  /**
+   * Like {@link #splitLinesRetainSeparators(String)}, but returns views of the input rather than
+   * copies of each line. Each view is a read-only {@link java.nio.CharBuffer} that shares storage
+   * with {@code input}, so this is cheaper when the caller examines each line once and does not
+   * retain it. If {@code input} is mutable, a view reflects later changes to it.
+   *
+   * @param input the input
+   * @return the lines of the input, each ending with its line separator (except perhaps the last)
+   */
+  @SideEffectFree
+  public static List<CharSequence> splitLinesRetainSeparatorsAsViews(CharSequence input) {
+    int[] starts = lineStartOffsets(input);
+    List<CharSequence> result = new ArrayList<>(starts.length - 1);
+    for (int i = 0; i < starts.length - 1; i++) {
+      result.add(CharBuffer.wrap(input, starts[i], starts[i + 1]));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index at which each line of the input starts, followed by the length of the input.
+   * Line {@code i}, including its line separator, is {@code input.subSequence(result[i],
+   * result[i+1])}; the lines are those returned by {@link #splitLinesRetainSeparators}. The result
+   * has one more element than the number of lines; for the empty string, it is {@code [0]}.
+   *
+   * @param input the input
+   * @return the start of each line, followed by the length of {@code input}
+   */
+  @SideEffectFree
+  public static int[] lineStartOffsets(CharSequence input) {
+    int length = input.length();
+    int[] result = new int[16];
+    int size = 0;
+    int pos = 0;
+    while (pos < length) {
+      if (size == result.length - 1) {
+        result = Arrays.copyOf(result, result.length * 2);
+      }
+      result[size++] = pos;
+      int i = indexOfLineSeparator(input, pos);
+      pos = (i == -1) ? length : lineSeparatorEnd(input, i);
+    }
+    result[size++] = length;
+    return Arrays.copyOf(result, size);
   }
 
   /**
@@ -257,7 +368,7 @@ public final class StringsP {
    */
   @SideEffectFree
   public static List<String> splitRetainSeparators(String input, @Regex String regex) {
-    return splitRetainSeparators(input, Pattern.compile(regex));
+    return splitRetainSeparators(input, RegexUtil.compileCached(regex));
   }
 
   /**
@@ -388,6 +499,7 @@ public final class StringsP {
    *
    * @param orig string to quote
    * @return quoted version of orig
+   * @see #escapeJava(CharSequence, Appendable)
    */
   @SuppressWarnings({
     "lock:method.guarantee.violated", // side effect to local state
@@ -395,92 +507,110 @@ public final class StringsP {
   })
   @SideEffectFree
   public static String escapeJava(String orig) {
-    StringBuilder sb = new StringBuilder();
-    // The previous escape character was seen right before this position.
-    @IndexOrHigh("orig") int postEsc = 0;
+    int firstEsc = indexOfEscape(orig);
+    if (firstEsc == -1) {
+      return orig;
+    }
+    StringBuilder sb = new StringBuilder(orig.length() + 16);
+    try {
+      escape(orig, firstEsc, sb, true);
+    } catch (IOException e) {
+      throw new Error("StringBuilder does not throw IOException", e);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Escapes a CharSequence so that it is expressible in a string literal in Java source code, and
+   * appends the result to {@code out}. This is like {@link #escapeJava(String)}, but it creates no
+   * intermediate String, which matters when {@code out} is a large buffer or a Writer.
+   *
+   * @param orig characters to quote
+   * @param out where to append the quoted version of orig
+   * @throws IOException if {@code out} throws IOException
+   */
+  public static void escapeJava(CharSequence orig, Appendable out) throws IOException {
+    escape(orig, 0, out, true);
+  }
+
+  /**
+   * Returns the index of the first character of {@code orig} that must be escaped, or -1 if none
+   * must be.
+   *
+   * @param orig characters to search
+   * @return the index of the first character that must be escaped, or -1
+   */
+  @Pure
+  private static int indexOfEscape(CharSequence orig) {
     int origLen = orig.length();
     for (int i = 0; i < origLen; i++) {
       char c = orig.charAt(i);
-      switch (c) {
-        case '\"' -> {
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\\"");
-          postEsc = i + 1;
-        }
-        case '\\' -> {
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\\\");
-          postEsc = i + 1;
-        }
-        case '\b' -> {
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\b");
-          postEsc = i + 1;
-        }
-        case '\f' -> {
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\f");
-          postEsc = i + 1;
-        }
-        case '\n' -> { // '\n', not lineSep
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\n"); // not lineSep
-          postEsc = i + 1;
-        }
-        case '\r' -> {
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\r");
-          postEsc = i + 1;
-        }
-        case '\t' -> {
-          if (postEsc < i) {
-            sb.append(orig.substring(postEsc, i));
-          }
-          sb.append("\\t");
-          postEsc = i + 1;
-        }
+      if (c < ' ' || c > '~' || c == '\"' || c == '\\') {
+        return i;
+      }
+    }
+    return -1;
+  }
 
+  /**
+   * Appends {@code orig} to {@code out}, escaping the characters that must be escaped. Appends
+   * unescaped runs of characters as ranges rather than as substrings.
+   *
+   * @param orig characters to quote
+   * @param start a position in orig such that no character before it must be escaped
+   * @param out where to append the quoted version of orig
+   * @param namedControls if true, escape backspace and form feed as {@code \b} and {@code \f}, as
+   *     escapeJava does; if false, escape them in octal, as escapeNonASCII does
+   * @throws IOException if {@code out} throws IOException
+   */
+  private static void escape(CharSequence orig, int start, Appendable out, boolean namedControls)
+      throws IOException {
+    // The previous escape character was seen right before this position.
+    int postEsc = 0;
+    int origLen = orig.length();
+    for (int i = start; i < origLen; i++) {
+      char c = orig.charAt(i);
+      if (c >= ' ' && c <= '~' && c != '\"' && c != '\\') {
+        continue;
+      }
+      if (postEsc < i) {
+        out.append(orig, postEsc, i);
+      }
+      switch (c) {
+        case '\"' -> out.append("\\\"");
+        case '\\' -> out.append("\\\\");
+        case '\n' -> out.append("\\n"); // '\n', not lineSep
+        case '\r' -> out.append("\\r");
+        case '\t' -> out.append("\\t");
         default -> {
-          if (c >= ' ' && c <= '~') {
-            // Nothing to do: i gets incremented
+          if (namedControls && c == '\b') {
+            out.append("\\b");
+          } else if (namedControls && c == '\f') {
+            out.append("\\f");
           } else if (c <= '\377') {
-            if (postEsc < i) {
-              sb.append(orig.substring(postEsc, i));
-            }
-            sb.append('\\');
-            int cAsInt = (int) c;
-            sb.append(String.format("%03o", cAsInt));
-            postEsc = i + 1;
+            out.append('\\');
+            out.append((char) ('0' + (c >> 6)));
+            out.append((char) ('0' + ((c >> 3) & 7)));
+            out.append((char) ('0' + (c & 7)));
           } else {
-            if (postEsc < i) {
-              sb.append(orig.substring(postEsc, i));
-            }
-            sb.append("\\u");
-            sb.append(String.format("%04x", (int) c));
-            postEsc = i + 1;
+            out.append("\\u");
+            out.append(hexDigits.charAt(c >> 12));
+            out.append(hexDigits.charAt((c >> 8) & 0xF));
+            out.append(hexDigits.charAt((c >> 4) & 0xF));
+            out.append(hexDigits.charAt(c & 0xF));
           }
         }
       }
+      postEsc = i + 1;
     }
-    if (sb.length() == 0) {
-      return orig;
+    if (postEsc < origLen) {
+      out.append(orig, postEsc, origLen);
     }
-    sb.append(orig.substring(postEsc));
-    return sb.toString();
   }
 
+  /** The hexadecimal digits, in order, as used in Unicode escapes. */
+  private static final String hexDigits = "0123456789abcdef";
+
   /**
    * Given a character, returns a Java character literal denoting the character. The return value
    * begins and ends with a single quote mark.
@@ -515,10 +645,15 @@ public final class StringsP {
 
   /**
    * Escape unprintable characters in the target, following the usual Java backslash conventions, so
-   * that the result is sure to be printable ASCII. Returns a new string.
+   * that the result is sure to be printable ASCII. Returns a new string only if any modifications
+   * were necessary.
+   *
+   * <p>This is like escapeJava(), but it escapes backspace and form feed in octal rather than as
+   * {@code \b} and {@code \f}.
    *
    * @param orig string to quote
    * @return quoted version of orig
+   * @see #escapeNonASCII(CharSequence, Appendable)
    */
   @SuppressWarnings({
     "lock:method.guarantee.violated", // side effect to local state
@@ -526,50 +661,30 @@ public final class StringsP {
   })
   @SideEffectFree
   public static String escapeNonASCII(String orig) {
-    StringBuilder sb = new StringBuilder();
-    int origLen = orig.length();
-    for (int i = 0; i < origLen; i++) {
-      char c = orig.charAt(i);
-      sb.append(escapeNonASCII(c));
+    int firstEsc = indexOfEscape(orig);
+    if (firstEsc == -1) {
+      return orig;
+    }
+    StringBuilder sb = new StringBuilder(orig.length() + 16);
+    try {
+      escape(orig, firstEsc, sb, false);
+    } catch (IOException e) {
+      throw new Error("StringBuilder does not throw IOException", e);
     }
     return sb.toString();
   }
 
   /**
-   * Like escapeJava(), but quote more characters so that the result is sure to be printable ASCII.
-   *
-   * <p>This implementation is not particularly optimized.
+   * Escape unprintable characters in the target, following the usual Java backslash conventions,
+   * and appends the result to {@code out}. This is like {@link #escapeNonASCII(String)}, but it
+   * creates no intermediate String.
    *
-   * @param c character to quote
-   * @return quoted version of c
+   * @param orig characters to quote
+   * @param out where to append the quoted version of orig
+   * @throws IOException if {@code out} throws IOException
    */
-  @SideEffectFree
-  private static String escapeNonASCII(char c) {
-    if (c == '"') {
-      return "\\\"";
-    } else if (c == '\\') {
-      return "\\\\";
-    } else if (c == '\n') { // not lineSep
-      return "\\n"; // not lineSep
-    } else if (c == '\r') {
-      return "\\r";
-    } else if (c == '\t') {
-      return "\\t";
-    } else if (c >= ' ' && c <= '~') {
-      return new String(new char[] {c});
-    } else if (c < 256) {
-      String octal = Integer.toOctalString(c);
-      while (octal.length() < 3) {
-        octal = '0' + octal;
-      }
-      return "\\" + octal;
-    } else {
-      String hex = Integer.toHexString(c);
-      while (hex.length() < 4) {
-        hex = "0" + hex;
-      }
-      return "\\u" + hex;
-    }
+  public static void escapeNonASCII(CharSequence orig, Appendable out) throws IOException {
+    escape(orig, 0, out, false);
   }
 
   /**
@@ -586,8 +701,11 @@ public final class StringsP {
    * that is not an octal digit, or before the digit that would make the value exceed {@code 0xFF};
    * this matches the Java specification.
    *
+   * <p>Returns a new string only if any modifications were necessary.
+   *
    * @param orig string to quote
    * @return quoted version of orig
+   * @see #unescapeJava(CharSequence, Appendable)
    */
   @SuppressWarnings({
     "lock:method.guarantee.violated", // side effect to local state
@@ -595,62 +713,88 @@ public final class StringsP {
   })
   @SideEffectFree
   public static String unescapeJava(String orig) {
-    StringBuilder sb = new StringBuilder();
+    int firstEsc = orig.indexOf('\\');
+    if (firstEsc == -1) {
+      return orig;
+    }
+    // The result is no longer than the original.
+    StringBuilder sb = new StringBuilder(orig.length());
+    try {
+      unescape(orig, firstEsc, sb);
+    } catch (IOException e) {
+      throw new Error("StringBuilder does not throw IOException", e);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Convert a string from Java source code format (with escape sequences) into the string it would
+   * represent at run time, and appends the result to {@code out}. This is like {@link
+   * #unescapeJava(String)}, but it creates no intermediate String.
+   *
+   * @param orig characters to unquote
+   * @param out where to append the unquoted version of orig
+   * @throws IOException if {@code out} throws IOException
+   */
+  public static void unescapeJava(CharSequence orig, Appendable out) throws IOException {
+    unescape(orig, indexOf(orig, '\\', 0), out);
+  }
+
+  /**
+   * Appends {@code orig} to {@code out}, replacing escape sequences by the characters they denote.
+   * Appends runs of characters that contain no escape sequence as ranges rather than as substrings.
+   *
+   * @param orig characters to unquote
+   * @param firstEsc the index of the first backslash in orig, or -1 if there is none
+   * @param out where to append the unquoted version of orig
+   * @throws IOException if {@code out} throws IOException
+   */
+  private static void unescape(CharSequence orig, int firstEsc, Appendable out)
+      throws IOException {
+    int origLen = orig.length();
     // The previous escape character was seen just before this position.
-    @LTEqLengthOf("orig") int postEsc = 0;
-    int thisEsc = orig.indexOf('\\');
+    int postEsc = 0;
+    int thisEsc = firstEsc;
     while (thisEsc != -1) {
-      if (thisEsc == orig.length() - 1) {
-        sb.append(orig.substring(postEsc, thisEsc + 1));
+      if (thisEsc == origLen - 1) {
+        out.append(orig, postEsc, thisEsc + 1);
         postEsc = thisEsc + 1;
         break;
       }
-      switch (orig.charAt(thisEsc + 1)) {
-        case 'b' -> {
-          sb.append(orig.substring(postEsc, thisEsc));
-          sb.append('\b');
-          postEsc = thisEsc + 2;
-        }
-        case 'f' -> {
-          sb.append(orig.substring(postEsc, thisEsc));
-          sb.append('\f');
-          postEsc = thisEsc + 2;
-        }
-        case 'n' -> {
-          sb.append(orig.substring(postEsc, thisEsc));
-          sb.append('\n'); // not lineSep
-          postEsc = thisEsc + 2;
-        }
-        case 'r' -> {
-          sb.append(orig.substring(postEsc, thisEsc));
-          sb.append('\r');
-          postEsc = thisEsc + 2;
-        }
-        case 't' -> {
-          sb.append(orig.substring(postEsc, thisEsc));
-          sb.append('\t');
+      char escaped = orig.charAt(thisEsc + 1);
+      switch (escaped) {
+        case 'b', 'f', 'n', 'r', 't' -> {
+          out.append(orig, postEsc, thisEsc);
+          out.append(
+              switch (escaped) {
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n'; // not lineSep
+                case 'r' -> '\r';
+                default -> '\t';
+              });
           postEsc = thisEsc + 2;
         }
         case '\\' -> {
           // This is not in the default case because the search would find
           // the quoted backslash.  Here we include the first backslash in
           // the output, but not the second.
-          sb.append(orig.substring(postEsc, thisEsc + 1));
+          out.append(orig, postEsc, thisEsc + 1);
           postEsc = thisEsc + 2;
         }
 
         case 'u' -> {
           // Unescape Unicode characters.
-          sb.append(orig.substring(postEsc, thisEsc));
+          out.append(orig, postEsc, thisEsc);
           char unicodeChar = 0;
           int ii = thisEsc + 2;
           // The specification permits one or more 'u' characters.
-          while (ii < orig.length() && orig.charAt(ii) == 'u') {
+          while (ii < origLen && orig.charAt(ii) == 'u') {
             ii++;
           }
           // The specification requires exactly 4 hexadecimal characters.
           // This is more liberal.  (Should it be?)
-          int limit = Math.min(ii + 4, orig.length());
+          int limit = Math.min(ii + 4, origLen);
           while (ii < limit) {
             int thisDigit = Character.digit(orig.charAt(ii), 16);
             if (thisDigit == -1) {
@@ -659,16 +803,16 @@ public final class StringsP {
             unicodeChar = (char) ((unicodeChar * 16) + thisDigit);
             ii++;
           }
-          sb.append(unicodeChar);
+          out.append(unicodeChar);
           postEsc = ii;
         }
 
         case '0', '1', '2', '3', '4', '5', '6', '7' -> {
           // Unescape octal characters.
-          sb.append(orig.substring(postEsc, thisEsc));
+          out.append(orig, postEsc, thisEsc);
           char octalChar = 0;
           int iii = thisEsc + 1;
-          while (iii < Math.min(thisEsc + 4, orig.length())) {
+          while (iii < Math.min(thisEsc + 4, origLen)) {
             int thisDigit = Character.digit(orig.charAt(iii), 8);
             if (thisDigit == -1) {
               break;
@@ -680,24 +824,45 @@ public final class StringsP {
             octalChar = (char) newValue;
             iii++;
           }
-          sb.append(octalChar);
+          out.append(octalChar);
           postEsc = iii;
         }
 
         default -> {
           // In the default case, retain the character following the backslash,
           // but discard the backslash itself.  "\*" is just a one-character string.
-          sb.append(orig.substring(postEsc, thisEsc));
+          out.append(orig, postEsc, thisEsc);
           postEsc = thisEsc + 1;
         }
       }
-      thisEsc = orig.indexOf('\\', postEsc);
+      thisEsc = indexOf(orig, '\\', postEsc);
     }
-    if (postEsc == 0) {
-      return orig;
+    if (postEsc < origLen) {
+      out.append(orig, postEsc, origLen);
     }
-    sb.append(orig.substring(postEsc));
-    return sb.toString();
+  }
+
+  /**
+   * Returns the index of the first occurrence of c in s at or after fromIndex, or -1. This is like
+   * {@link String#indexOf(int, int)}, but for any CharSequence.
+   *
+   * @param s characters to search
+   * @param c the character to search for
+   * @param fromIndex the index to start the search from
+   * @return the index of the first occurrence of c at or after fromIndex, or -1
+   */
+  @Pure
+  private static int indexOf(CharSequence s, char c, int fromIndex) {
+    if (s instanceof String str) {
+      return str.indexOf(c, fromIndex);
+    }
+    int len = s.length();
+    for (int i = fromIndex; i < len; i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
   }
 
   // //////////////////////////////////////////////////////////////////////
@@ -1025,6 +1190,23 @@ public final class StringsP {
       String s2 = o2.toString();
       return s1.compareTo(s2);
     }
+
+    /**
+     * Sorts the list according to its elements' string representations, with nulls first. This is
+     * like {@code list.sort(ObjectComparator.it)}, but calls {@code toString()} once per element,
+     * rather than twice per comparison. The order is the same, unless two equal elements have
+     * different string representations.
+     *
+     * @param <T> the type of the elements
+     * @param list the list to sort; it is side-effected
+     * @see ToStringComparator#sort
+     */
+    public static <T extends @Nullable Object> void sort(List<T> list) {
+      CollectionsP.sortByKey(
+          list,
+          (T elt) -> elt == null ? null : elt.toString(),
+          Comparator.<String>nullsFirst(Comparator.naturalOrder()));
+    }
   }
 
   // //////////////////////////////////////////////////////////////////////
@@ -1118,6 +1300,10 @@ public final class StringsP {
    *
    * <p>A component may be arbitrarily large; it is not converted to an {@code int}, so a component
    * larger than {@code Integer.MAX_VALUE} does not cause an exception.
+   *
+   * <p>This comparator walks the two strings once, component by component, and allocates nothing.
+   * To compare the same version numbers many times, as when sorting, it is faster to parse each
+   * one into a {@link VersionNumber} once.
    */
   public static class VersionNumberComparator implements Comparator<String> {
 
@@ -1129,64 +1315,114 @@ public final class StringsP {
       if (s1.equals(s2)) {
         return 0;
       }
-      String[] components1 = s1.split("\\.", -1);
-      String[] components2 = s2.split("\\.", -1);
-      int len = Math.min(components1.length, components2.length);
-      for (int i = 0; i < len; i++) {
-        int comparison = compareDigitStrings(components1[i], components2[i]);
+      int length1 = s1.length();
+      int length2 = s2.length();
+      // The start of the current component of each string.
+      int start1 = 0;
+      int start2 = 0;
+      while (true) {
+        int end1 = endOfComponent(s1, start1);
+        int end2 = endOfComponent(s2, start2);
+        int comparison = compareDigits(s1, start1, end1, s2, start2, end2);
         if (comparison != 0) {
           return comparison;
         }
+        // If a component is followed by a period, then another component follows.
+        boolean more1 = end1 < length1;
+        boolean more2 = end2 < length2;
+        if (!more1 || !more2) {
+          return Boolean.compare(more1, more2);
+        }
+        start1 = end1 + 1;
+        start2 = end2 + 1;
       }
-      return Integer.compare(components1.length, components2.length);
     }
 
     /**
-     * Compares two strings of decimal digits numerically. The components of a version number may be
-     * arbitrarily large, so this does not convert them to {@code int} or {@code long}.
+     * Returns the end of the version number component that starts at the given index.
      *
-     * @param s1 a nonempty string of decimal digits
-     * @param s2 a nonempty string of decimal digits
-     * @return a negative integer, zero, or a positive integer as s1 is numerically less than, equal
-     *     to, or greater than s2
-     * @throws NumberFormatException if either argument is not a nonempty string of decimal digits
+     * @param s a version number
+     * @param start the index of the start of a component of {@code s}
+     * @return the index of the period that follows the component, or {@code s.length()}
+     * @throws NumberFormatException if the component is empty or contains a character that is not
+     *     a decimal digit
      */
-    private static int compareDigitStrings(String s1, String s2) {
-      int start1 = indexOfFirstSignificantDigit(s1);
-      int start2 = indexOfFirstSignificantDigit(s2);
-      // Ignoring leading zeros, the number with more digits is the larger one.
-      int comparison = Integer.compare(s1.length() - start1, s2.length() - start2);
-      if (comparison != 0) {
-        return comparison;
+    private static @IndexOrHigh("#1") int endOfComponent(String s, @IndexOrHigh("#1") int start) {
+      int end = start;
+      int length = s.length();
+      while (end < length) {
+        char c = s.charAt(end);
+        if (c == '.') {
+          break;
+        }
+        if (c < '0' || c > '9') {
+          throw notAComponent(s, start);
+        }
+        end++;
       }
-      // The two numbers have the same number of significant digits, so comparing them
-      // lexicographically compares them numerically.
-      return Integer.signum(s1.substring(start1).compareTo(s2.substring(start2)));
+      if (end == start) {
+        throw notAComponent(s, start);
+      }
+      return end;
     }
 
     /**
-     * Returns the index in the given string of its first nonzero digit.
+     * Returns an exception reporting that the version number component at the given index is
+     * malformed.
      *
-     * @param s a nonempty string of decimal digits
-     * @return the index of the first nonzero digit in s, or s.length() if every digit of s is zero
-     * @throws NumberFormatException if s is not a nonempty string of decimal digits
+     * @param s a string
+     * @param start the index of the start of a component of {@code s}
+     * @return an exception that reports the malformed component
      */
-    private static @IndexOrHigh("#1") int indexOfFirstSignificantDigit(String s) {
-      if (s.isEmpty()) {
-        throw new NumberFormatException("Not a version number component: \"" + s + "\"");
+    private static NumberFormatException notAComponent(String s, @IndexOrHigh("#1") int start) {
+      int end = s.indexOf('.', start);
+      String component = s.substring(start, end == -1 ? s.length() : end);
+      return new NumberFormatException("Not a version number component: \"" + component + "\"");
+    }
+
+    /**
+     * Compares two nonempty sequences of decimal digits numerically. The components of a version
+     * number may be arbitrarily large, so this does not convert them to {@code int} or {@code
+     * long}.
+     *
+     * @param s1 a string
+     * @param start1 the start of a sequence of digits in s1
+     * @param end1 the end of the sequence of digits in s1
+     * @param s2 another string
+     * @param start2 the start of a sequence of digits in s2
+     * @param end2 the end of the sequence of digits in s2
+     * @return -1, 0, or 1 as the digits in s1 are numerically less than, equal to, or greater than
+     *     the digits in s2
+     */
+    @SuppressWarnings("index") // the digits compared in the loop have the same length
+    private static int compareDigits(
+        String s1,
+        @IndexOrHigh("#1") int start1,
+        @IndexOrHigh("#1") int end1,
+        String s2,
+        @IndexOrHigh("#4") int start2,
+        @IndexOrHigh("#4") int end2) {
+      // Skip leading zeros.
+      while (start1 < end1 && s1.charAt(start1) == '0') {
+        start1++;
       }
-      for (int i = 0; i < s.length(); i++) {
-        char c = s.charAt(i);
-        if (c < '0' || c > '9') {
-          throw new NumberFormatException("Not a version number component: \"" + s + "\"");
-        }
+      while (start2 < end2 && s2.charAt(start2) == '0') {
+        start2++;
       }
-      for (int i = 0; i < s.length(); i++) {
-        if (s.charAt(i) != '0') {
-          return i;
+      // Ignoring leading zeros, the number with more digits is the larger one.
+      int comparison = Integer.compare(end1 - start1, end2 - start2);
+      if (comparison != 0) {
+        return comparison;
+      }
+      // The two numbers have the same number of significant digits, so comparing them
+      // lexicographically compares them numerically.
+      for (; start1 < end1; start1++, start2++) {
+        comparison = Character.compare(s1.charAt(start1), s2.charAt(start2));
+        if (comparison != 0) {
+          return Integer.signum(comparison);
         }
       }
-      return s.length();
+      return 0;
     }
   }
 
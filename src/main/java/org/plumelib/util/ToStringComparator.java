@@ -2,6 +2,8 @@ package org.plumelib.util;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
 import org.checkerframework.checker.mustcall.qual.MustCallUnknown;
@@ -12,6 +14,10 @@ import org.checkerframework.checker.signedness.qual.Signed;
  * A comparator that orders values based on the lexicographic ordering of their toString().
  *
  * <p>It handles null values, sorting them according to their printed representation "null".
+ *
+ * <p>Sorting with this comparator calls {@code toString()} twice per comparison. The static
+ * methods {@link #sorted}, {@link #sort}, {@link #parallelSort}, and {@link #sortCachingKeys} sort
+ * in the same order, but call {@code toString()} at most once per element.
  */
 // Once https://github.com/typetools/checker-framework/issues/1970 is fixed, Comparator's type
 // argument should be marked as @Contravariant and this should be declared as "extends
@@ -35,13 +41,63 @@ public final class ToStringComparator implements Comparator<Object> {
    * @param in a set of elements
    * @return the elements, sorted according to {@code toString()}
    */
-  @SuppressWarnings("nullness:argument") // Comparator should be @Contravariant.
   public static <T extends @Nullable @Signed Object> List<T> sorted(Iterable<T> in) {
     List<T> result = new ArrayList<>();
     for (T object : in) {
       result.add(object);
     }
-    result.sort(instance);
+    sort(result);
     return result;
   }
+
+  /**
+   * Sorts the list according to the elements' {@code toString()}, calling {@code toString()} once
+   * per element.
+   *
+   * @param <T> the type of the elements
+   * @param list the list to sort; it is side-effected
+   */
+  public static <T extends @Nullable Object> void sort(List<T> list) {
+    CollectionsP.sortByKey(list, Objects::toString);
+  }
+
+  /**
+   * Like {@link #sort}, but calls {@code toString()} and sorts using multiple threads. This is
+   * faster only for large lists. The elements' {@code toString()} methods must be safe to call from
+   * multiple threads at once.
+   *
+   * @param <T> the type of the elements
+   * @param list the list to sort; it is side-effected
+   */
+  public static <T extends @Nullable Object> void parallelSort(List<T> list) {
+    CollectionsP.parallelSortByKey(list, Objects::toString, Comparator.naturalOrder());
+  }
+
+  /**
+   * Like {@link #sort}, but calls {@code toString()} only once per distinct element, and shares
+   * equal strings. Use this when the list contains many references to the same objects, or many
+   * objects with the same printed representation: it saves {@code toString()} calls, and it
+   * compares two elements with the same printed representation in constant time. When most
+   * elements are distinct objects, {@link #sort} is faster.
+   *
+   * @param <T> the type of the elements
+   * @param list the list to sort; it is side-effected
+   */
+  @SuppressWarnings({"interning:not.interned", "ReferenceEquality"}) // keys are canonicalized
+  public static <T extends @Nullable Object> void sortCachingKeys(List<T> list) {
+    // Elements are compared by identity, because toString() need not be consistent with equals().
+    IdentityHashMap<@Nullable Object, String> keys = new IdentityHashMap<>();
+    HashMap<String, String> canonicalKeys = new HashMap<>();
+    CollectionsP.sortByKey(
+        list,
+        elt ->
+            keys.computeIfAbsent(
+                elt,
+                e -> {
+                  String key = Objects.toString(e);
+                  return canonicalKeys.computeIfAbsent(key, k -> k);
+                }),
+        // Equal keys are the same object, so the == test avoids comparing their characters.
+        (String k1, String k2) -> k1 == k2 ? 0 : k1.compareTo(k2));
+  }
 }
@@ -1,6 +1,8 @@
 package org.plumelib.util;
 
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.index.qual.Positive;
 
 /**
  * Provides a unique ID for classes that you cannot modify. The unique ID is useful because it makes
@@ -20,18 +22,75 @@ import java.util.concurrent.atomic.AtomicLong;
  *   <li>Wherever you would call {@code x.hashCode()}, instead call {@code treeUids.get(x)}.
  * </ol>
  *
+ * <p>A UniqueIdMap is thread-safe: concurrent calls never give one object two IDs or two objects
+ * the same ID. The objects are divided among several independently locked stripes, so threads that
+ * look up different objects rarely contend. If several threads request IDs for new objects at the
+ * same time, which of them gets the lower ID is unspecified; for deterministic IDs, request the
+ * IDs of new objects from one thread (for instance, with {@link #getAll}) or in a fixed order.
+ *
  * @param <E> the type of elements that get a unique ID
  */
 public class UniqueIdMap<E> {
 
-  /** Create a new UniqueIdMap. */
-  public UniqueIdMap() {}
+  /** The maximum number of stripes. */
+  private static final int MAX_STRIPES = 1 << 16;
+
+  /** Create a new UniqueIdMap, with enough stripes for the number of available processors. */
+  public UniqueIdMap() {
+    this(4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a new UniqueIdMap that is divided into about {@code concurrencyLevel} stripes.
+   *
+   * @param concurrencyLevel the expected number of threads that use this map at once
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  public UniqueIdMap(@Positive int concurrencyLevel) {
+    if (concurrencyLevel < 1) {
+      throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+    }
+    int numStripes = Integer.highestOneBit(Math.min(concurrencyLevel, MAX_STRIPES) * 2 - 1);
+    stripes = new WeakIdentityHashMap[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      stripes[i] = new WeakIdentityHashMap<>();
+    }
+    stripeShift = 32 - Integer.numberOfTrailingZeros(numStripes);
+  }
 
   /** The unique ID for the next-created object. */
   private final AtomicLong nextUid = new AtomicLong(0);
 
-  /** A mapping from objects to their IDs. */
-  private WeakIdentityHashMap<E, Long> map = new WeakIdentityHashMap<>();
+  /**
+   * Mappings from objects to their IDs. Each object is in the stripe given by {@link #stripeFor}.
+   * Each stripe is its own lock, which guards all use of it.
+   */
+  private final WeakIdentityHashMap<E, Long>[] stripes;
+
+  /**
+   * How far to shift a scrambled identity hash code to get a stripe index. With one stripe this is
+   * 32, and {@link #stripeFor} handles that case specially, because Java shifts an int by only the
+   * low five bits of the shift amount.
+   */
+  private final int stripeShift;
+
+  /**
+   * Returns the stripe that holds the given object's ID.
+   *
+   * @param object an object
+   * @return the stripe that holds {@code object}'s ID
+   */
+  private WeakIdentityHashMap<E, Long> stripeFor(E object) {
+    if (stripes.length == 1) {
+      return stripes[0];
+    }
+    // Use the high bits of a multiplicative hash, so that the choice of stripe is independent of
+    // the low bits that each WeakIdentityHashMap uses to choose a bucket.
+    int index = (System.identityHashCode(object) * 0x9E3779B9) >>> stripeShift;
+    @SuppressWarnings("index") // index < 2^(32 - stripeShift) == stripes.length
+    WeakIdentityHashMap<E, Long> stripe = stripes[index];
+    return stripe;
+  }
 
   /**
    * Returns the unique ID for the given object. If the object's ID has not been previously
@@ -41,12 +100,34 @@ public class UniqueIdMap<E> {
    * @return the unique ID for the given object
    */
   public long get(E object) {
-    Long id = map.get(object);
-    if (id != null) {
-      return id;
+    WeakIdentityHashMap<E, Long> stripe = stripeFor(object);
+    synchronized (stripe) {
+      Long id = stripe.get(object);
+      if (id != null) {
+        return id;
+      }
+      // Generate the ID while holding the lock, so no other thread can give the object an ID.
+      long newId = nextUid.getAndIncrement();
+      stripe.put(object, newId);
+      return newId;
+    }
+  }
+
+  /**
+   * Returns the unique IDs of the given objects, in iteration order. Objects whose IDs have not
+   * been previously requested are given IDs in iteration order, too, unless other threads are
+   * requesting IDs at the same time.
+   *
+   * @param objects the objects to get unique IDs for
+   * @return the unique IDs for the given objects
+   */
+  @SuppressWarnings("index") // i < objects.size() == result.length
+  public long[] getAll(Collection<? extends E> objects) {
+    long[] result = new long[objects.size()];
+    int i = 0;
+    for (E object : objects) {
+      result[i++] = get(object);
     }
-    long newId = nextUid.getAndIncrement();
-    map.put(object, newId);
-    return newId;
+    return result;
   }
 }
@@ -0,0 +1,188 @@
+package org.plumelib.util;
+
+import java.util.Arrays;
+import java.util.List;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.lock.qual.GuardSatisfied;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.qual.Pure;
+import org.checkerframework.dataflow.qual.SideEffectFree;
+
+/**
+ * A parsed version number, of the form N, N.N, N.N.N, etc., where each N consists of decimal
+ * digits. Its components are parsed once, so comparing two VersionNumbers is faster than comparing
+ * the strings with {@link StringsP.VersionNumberComparator}. Use it to sort many version numbers
+ * or to compare many version numbers against a range.
+ *
+ * <p>VersionNumbers are ordered like {@link StringsP.VersionNumberComparator} orders strings:
+ * component by component, numerically, and a version number is less than any longer one that
+ * extends it. For example, 1.2 &lt; 1.2.0 &lt; 1.10. Unlike that comparator, this class requires
+ * each component to be at most {@code Integer.MAX_VALUE}.
+ *
+ * <p>Equality is consistent with the ordering. Leading zeros are not significant, so 1.2 and 1.02
+ * are equal, though their {@link #toString} differs.
+ */
+public final class VersionNumber implements Comparable<VersionNumber> {
+
+  /** The text from which this was parsed. */
+  private final String text;
+
+  /** The numeric components, most significant first. */
+  private final int[] components;
+
+  /** The hash code, which depends only on {@link #components}. */
+  private final int hashCode;
+
+  /**
+   * Creates a VersionNumber.
+   *
+   * @param text the text from which this was parsed
+   * @param components the numeric components, most significant first
+   */
+  private VersionNumber(String text, int[] components) {
+    this.text = text;
+    this.components = components;
+    this.hashCode = Arrays.hashCode(components);
+  }
+
+  /**
+   * Parses a version number.
+   *
+   * @param text a version number, of the form N, N.N, N.N.N, etc., where each N consists of
+   *     decimal digits
+   * @return the parsed version number
+   * @throws NumberFormatException if {@code text} is not a version number, or if a component is
+   *     greater than {@code Integer.MAX_VALUE}
+   */
+  @SuppressWarnings("index") // there is one more component than there are periods
+  public static VersionNumber parse(String text) {
+    int length = text.length();
+    int numComponents = 1;
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(i) == '.') {
+        numComponents++;
+      }
+    }
+    int[] components = new int[numComponents];
+    int component = 0;
+    int start = 0;
+    for (int i = 0; i <= length; i++) {
+      char c = (i == length) ? '.' : text.charAt(i);
+      if (c == '.') {
+        if (i == start) {
+          throw new NumberFormatException("Not a version number: \"" + text + "\"");
+        }
+        start = i + 1;
+        component++;
+      } else if (c >= '0' && c <= '9') {
+        int value = components[component];
+        int digit = c - '0';
+        if (value > (Integer.MAX_VALUE - digit) / 10) {
+          throw new NumberFormatException("Version number component too large: \"" + text + "\"");
+        }
+        components[component] = value * 10 + digit;
+      } else {
+        throw new NumberFormatException("Not a version number: \"" + text + "\"");
+      }
+    }
+    return new VersionNumber(text, components);
+  }
+
+  /**
+   * Sorts a list of version number strings, parsing each one only once. The order is the same as
+   * that of {@link StringsP.VersionNumberComparator}.
+   *
+   * @param versions the version numbers to sort; it is side-effected
+   * @throws NumberFormatException if an element is not a version number, or if a component is
+   *     greater than {@code Integer.MAX_VALUE}
+   */
+  public static void sort(List<String> versions) {
+    CollectionsP.sortByKey(versions, VersionNumber::parse);
+  }
+
+  /**
+   * Returns the number of components.
+   *
+   * @return the number of components
+   */
+  @Pure
+  public @NonNegative int size(@GuardSatisfied VersionNumber this) {
+    return components.length;
+  }
+
+  /**
+   * Returns the given component.
+   *
+   * @param index the index of a component; 0 is the most significant
+   * @return the component at the given index
+   * @throws IndexOutOfBoundsException if {@code index} is not less than {@link #size}
+   */
+  @Pure
+  public @NonNegative int get(@GuardSatisfied VersionNumber this, int index) {
+    if (index < 0 || index >= components.length) {
+      throw new IndexOutOfBoundsException(
+          "index " + index + " for version number of size " + components.length);
+    }
+    return components[index];
+  }
+
+  /**
+   * Returns true if this is in the half-open range [low, high).
+   *
+   * @param low the least version number in the range
+   * @param high the least version number above the range
+   * @return true if {@code low <= this < high}
+   */
+  @Pure
+  public boolean isInRange(
+      @GuardSatisfied VersionNumber this,
+      @GuardSatisfied VersionNumber low,
+      @GuardSatisfied VersionNumber high) {
+    return compareTo(low) >= 0 && compareTo(high) < 0;
+  }
+
+  /**
+   * Compares this to another version number, component by component. Returns -1, 0, or 1.
+   *
+   * @param other the version number to compare to
+   * @return -1, 0, or 1 as this is less than, equal to, or greater than {@code other}
+   */
+  @Pure
+  @Override
+  public int compareTo(@GuardSatisfied VersionNumber this, @GuardSatisfied VersionNumber other) {
+    // Components are non-negative, so signed comparison is correct.  Arrays.compare orders a
+    // proper prefix first.
+    return Integer.signum(Arrays.compare(components, other.components));
+  }
+
+  @Pure
+  @Override
+  @SuppressWarnings("lock:instanceof.pattern.unsafe") // obj is @GuardSatisfied
+  public boolean equals(
+      @GuardSatisfied VersionNumber this, @GuardSatisfied @Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof VersionNumber other)) {
+      return false;
+    }
+    return hashCode == other.hashCode && Arrays.equals(components, other.components);
+  }
+
+  @Pure
+  @Override
+  public int hashCode(@GuardSatisfied VersionNumber this) {
+    return hashCode;
+  }
+
+  /**
+   * Returns the text from which this was parsed.
+   *
+   * @return the text from which this was parsed
+   */
+  @SideEffectFree
+  @Override
+  public String toString(@GuardSatisfied VersionNumber this) {
+    return text;
+  }
+}
@@ -29,6 +29,14 @@
  *   <dd>Given two sequences/iterators/whatever, OrderedPairIterator returns a new
  *       sequence/iterator/whatever that pairs the matching elements of the inputs, according to
  *       their respective sort orders. (This operation is sometimes called "zipping".)
+ *   <dt>{@link org.plumelib.util.OrderedIntPairIterator OrderedIntPairIterator}
+ *   <dd>Like OrderedPairIterator, but for sorted ints, without boxing. It also supports inner,
+ *       left outer, and right outer joins.
+ *   <dt>{@link org.plumelib.util.OrderedLongPairIterator OrderedLongPairIterator}
+ *   <dd>Like OrderedIntPairIterator, but for sorted longs.
+ *   <dt>{@link org.plumelib.util.OrderedGroupIterator OrderedGroupIterator}
+ *   <dd>Like OrderedPairIterator, but for any number of sorted inputs: it groups the equal elements
+ *       of the inputs.
  *   <dt>{@link org.plumelib.util.SIList SIList}
  *   <dd>An immutable list implementation that can share substructure, for time and space
  *       efficiency. Use this only if you will be creating many lists that share structure. Examples
@@ -68,6 +76,8 @@
  *   <dt>{@link org.plumelib.util.FileWriterWithName FileWriterWithName}
  *   <dd>Just like {@code FileWriter}, but adds a {@code getFileName()} method and overrides {@code
  *       toString()} to give the file name.
+ *   <dt>{@link org.plumelib.util.AsyncFileWriterWithName AsyncFileWriterWithName}
+ *   <dd>Like {@code FileWriterWithName}, but writes to the file on a separate thread.
  *   <dt>{@link org.plumelib.util.RegexUtil RegexUtil}
  *   <dd>Utility methods for regular expressions, most notably for testing whether a string is a
  *       regular expression.
@@ -75,6 +85,8 @@
  *   <dd>Utility methods that manipulate Strings: replacement; prefixing and indentation; splitting
  *       and joining; quoting and escaping; whitespace; comparisons; StringTokenizer; version
  *       numbers; debugging variants of toString; diagnostic output; miscellaneous.
+ *   <dt>{@link org.plumelib.util.VersionNumber VersionNumber}
+ *   <dd>A parsed version number, for sorting version numbers and comparing them against ranges.
  *       <!--
  *   <dt>{link org.plumelib.util.CountingPrintWriter CountingPrintWriter}
  *   <dd>Prints formatted representations of objects to a text-output stream counting the number of
@@ -7,6 +7,12 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,6 +21,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.signedness.qual.Signed;
 import org.junit.jupiter.api.Test;
 
 /** Tests of {@link ArrayMap} and {@link ArraySet} behaviors that the adapted JDK suites omit. */
@@ -219,4 +226,81 @@ final class ArrayMapAndSetTest {
     assertEquals(Map.of("a", "1"), nonEmpty);
     assertEquals(Map.of("a", "1", "b", "2"), nonEmptyClone);
   }
+
+  /**
+   * Serializes and deserializes the given object.
+   *
+   * @param <T> the type of the object
+   * @param o the object to serialize
+   * @return a deserialized copy of the object
+   * @throws IOException if serialization fails
+   * @throws ClassNotFoundException if deserialization fails
+   */
+  @SuppressWarnings("unchecked") // deserialization
+  private static <T extends @Signed Object> T serializeAndDeserialize(T o)
+      throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    try (ObjectInputStream ois =
+        new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      return (T) ois.readObject();
+    }
+  }
+
+  @Test
+  void serialization() throws IOException, ClassNotFoundException {
+    ArrayMap<String, String> am = new ArrayMap<>(100);
+    am.put("a", "1");
+    am.put("b", null);
+    am.put(null, "3");
+    ArrayMap<String, String> amCopy = serializeAndDeserialize(am);
+    assertEquals(am, amCopy);
+    assertEquals(Arrays.asList("a", "b", null), new ArrayList<>(amCopy.keySet()));
+    // The copy is modifiable, and does not share state with the original.
+    amCopy.put("c", "4");
+    assertEquals(4, amCopy.size());
+    assertEquals(3, am.size());
+    // Unused capacity is not serialized.
+    ArrayMap<String, String> amSmall = new ArrayMap<>(3);
+    amSmall.putAll(am);
+    assertEquals(serializedSize(amSmall), serializedSize(am));
+
+    ArrayMap<String, String> emptyMap = serializeAndDeserialize(new ArrayMap<String, String>(10));
+    assertTrue(emptyMap.isEmpty());
+    emptyMap.put("x", "y");
+    assertEquals(Map.of("x", "y"), emptyMap);
+
+    ArraySet<String> as = new ArraySet<>(100);
+    as.add("a");
+    as.add(null);
+    as.add("b");
+    ArraySet<String> asCopy = serializeAndDeserialize(as);
+    assertEquals(as, asCopy);
+    assertEquals(Arrays.asList("a", null, "b"), new ArrayList<>(asCopy));
+    asCopy.add("c");
+    assertEquals(4, asCopy.size());
+    assertEquals(3, as.size());
+
+    ArraySet<String> emptySet = serializeAndDeserialize(new ArraySet<String>(10));
+    assertTrue(emptySet.isEmpty());
+    emptySet.add("x");
+    assertEquals(Set.of("x"), emptySet);
+  }
+
+  /**
+   * Returns the number of bytes in the serialized form of the given object.
+   *
+   * @param o the object to serialize
+   * @return the number of bytes in the serialized form of {@code o}
+   * @throws IOException if serialization fails
+   */
+  private static int serializedSize(Object o) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    return baos.size();
+  }
 }
@@ -649,6 +649,9 @@ class ArrayMapTestApache {
 
   static class SubMap<K extends @GuardedBy Object, V extends @GuardedBy Object>
       extends ArrayMap<K, V> {
+    /** Unique identifier for serialization. If you add or remove fields, change this number. */
+    private static final long serialVersionUID = 20261019L;
+
     public SubMap(Map<? extends K, ? extends V> m) {
       super(m);
     }
@@ -14,6 +14,7 @@ import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -283,6 +284,22 @@ final class CollectionsPTest {
 
   // public static <T> List<T> sortList(List<T> l, Comparator<@MustCallUnknown ? super T> c)
 
+  /** Test sortByKey() and parallelSortByKey(). */
+  @Test
+  void test_sortByKey() {
+    List<String> words = List.of("ccc", "a", "bb", "dd", "e", "");
+    List<String> byLength = new ArrayList<>(words);
+    CollectionsP.sortByKey(byLength, String::length);
+    // The sort is stable.
+    assertEquals(List.of("", "a", "e", "bb", "dd", "ccc"), byLength);
+    List<String> reversed = new ArrayList<>(words);
+    CollectionsP.sortByKey(reversed, String::length, Comparator.reverseOrder());
+    assertEquals(List.of("ccc", "bb", "dd", "a", "e", ""), reversed);
+    List<String> parallel = new ArrayList<>(words);
+    CollectionsP.parallelSortByKey(parallel, String::length, Comparator.reverseOrder());
+    assertEquals(reversed, parallel);
+  }
+
   // public static <T extends Comparable<T>> boolean isSorted(List<T> values)
 
   /** Test isSorted(). */
@@ -989,6 +1006,167 @@ final class CollectionsPTest {
         iota10Twice, toArrayList(CollectionsP.mergedIterator(iota10IteratorTwice3.iterator())));
   }
 
+  // public static <T> Iterator<T> sortedMergedIterator(List<? extends Iterator<? extends T>> itors)
+
+  /**
+   * Returns sorted lists of random integers.
+   *
+   * @param random the source of randomness
+   * @param lists the number of lists
+   * @param maxLength the maximum length of each list
+   * @return sorted lists of random integers
+   */
+  private static List<List<Integer>> randomSortedLists(Random random, int lists, int maxLength) {
+    List<List<Integer>> result = new ArrayList<>();
+    for (int i = 0; i < lists; i++) {
+      List<Integer> list = new ArrayList<>();
+      int length = random.nextInt(maxLength + 1);
+      for (int j = 0; j < length; j++) {
+        list.add(random.nextInt(50));
+      }
+      Collections.sort(list);
+      result.add(list);
+    }
+    return result;
+  }
+
+  /**
+   * Returns iterators over the given lists.
+   *
+   * @param <T> the type of elements
+   * @param lists some lists
+   * @return iterators over the lists
+   */
+  private static <T> List<Iterator<T>> iterators(List<List<T>> lists) {
+    List<Iterator<T>> result = new ArrayList<>();
+    for (List<T> list : lists) {
+      result.add(list.iterator());
+    }
+    return result;
+  }
+
+  /** Test sortedMergedIterator(). */
+  @Test
+  void test_sortedMergedIterator() {
+    assertEquals(
+        List.of(), toArrayList(CollectionsP.<Integer>sortedMergedIterator(List.of())));
+    assertEquals(
+        List.of(1, 1, 2, 3, 3, 3, 5),
+        toArrayList(
+            CollectionsP.sortedMergedIterator(
+                List.of(
+                    List.of(1, 3, 5).iterator(),
+                    List.<Integer>of().iterator(),
+                    List.of(1, 2, 3, 3).iterator()))));
+
+    Random random = new Random(20261019);
+    for (int trial = 0; trial < 200; trial++) {
+      List<List<Integer>> lists = randomSortedLists(random, 1 + random.nextInt(20), 30);
+      List<Integer> expected = new ArrayList<>();
+      for (List<Integer> list : lists) {
+        expected.addAll(list);
+      }
+      Collections.sort(expected);
+      assertEquals(expected, toArrayList(CollectionsP.sortedMergedIterator(iterators(lists))));
+      assertEquals(
+          new ArrayList<>(new TreeSet<>(expected)),
+          toArrayList(
+              CollectionsP.sortedMergedIterator(
+                  iterators(lists), Comparator.naturalOrder(), true)));
+    }
+
+    // The merge is stable: equal elements come out in the order of their inputs.
+    List<List<String>> words =
+        List.of(
+            List.of("a0", "b0", "b0'", "c0"), List.of("a1", "c1"), List.of("b2", "c2", "d2"));
+    Comparator<String> firstLetter = Comparator.comparing(w -> w.charAt(0));
+    assertEquals(
+        List.of("a0", "a1", "b0", "b0'", "b2", "c0", "c1", "c2", "d2"),
+        toArrayList(CollectionsP.sortedMergedIterator(iterators(words), firstLetter)));
+    assertEquals(
+        List.of("a0", "b0", "c0", "d2"),
+        toArrayList(CollectionsP.sortedMergedIterator(iterators(words), firstLetter, true)));
+  }
+
+  /**
+   * Merges two sorted lists.
+   *
+   * @param a a sorted list
+   * @param b a sorted list
+   * @return the sorted merge of the lists
+   */
+  private static List<Integer> mergeTwo(List<Integer> a, List<Integer> b) {
+    List<Integer> result = new ArrayList<>(a.size() + b.size());
+    int i = 0;
+    int j = 0;
+    while (i < a.size() && j < b.size()) {
+      if (b.get(j) < a.get(i)) {
+        result.add(b.get(j++));
+      } else {
+        result.add(a.get(i++));
+      }
+    }
+    result.addAll(a.subList(i, a.size()));
+    result.addAll(b.subList(j, b.size()));
+    return result;
+  }
+
+  // Time to merge k sorted lists with 1,000,000 Integers in total, on a single processor, best of
+  // 5 runs:
+  //   k                          2     8    32   128
+  //   sortedMergedIterator (ms)  33    51   105   151
+  //   pairwise, balanced (ms)    21    41    96   140
+  //   pairwise, folded (ms)      20    42   230  1370
+  // Pairwise merging in a balanced tree is about as fast as the heap, but it materializes log k
+  // intermediate lists, whereas the heap streams its inputs using space proportional to k.
+  // @Test
+  void test_sortedMergedIteratorTime() {
+    Random random = new Random(0);
+    for (int k : new int[] {2, 8, 32, 128}) {
+      List<List<Integer>> lists = randomSortedLists(random, k, 0);
+      for (List<Integer> list : lists) {
+        for (int i = 0; i < 1_000_000 / k; i++) {
+          list.add(random.nextInt());
+        }
+        Collections.sort(list);
+      }
+      for (int rep = 0; rep < 5; rep++) {
+        long start = System.nanoTime();
+        Iterator<Integer> merged = CollectionsP.sortedMergedIterator(iterators(lists));
+        long sum = 0;
+        while (merged.hasNext()) {
+          sum += merged.next();
+        }
+        long heapTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<List<Integer>> level = lists;
+        while (level.size() > 1) {
+          List<List<Integer>> nextLevel = new ArrayList<>();
+          for (int i = 0; i + 1 < level.size(); i += 2) {
+            nextLevel.add(mergeTwo(level.get(i), level.get(i + 1)));
+          }
+          if (level.size() % 2 == 1) {
+            nextLevel.add(level.get(level.size() - 1));
+          }
+          level = nextLevel;
+        }
+        long balancedTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Integer> folded = lists.get(0);
+        for (int i = 1; i < k; i++) {
+          folded = mergeTwo(folded, lists.get(i));
+        }
+        long foldedTime = System.nanoTime() - start;
+        assertEquals(folded, level.get(0));
+        System.out.printf(
+            "test_sortedMergedIteratorTime: k = %d, heap = %s, balanced = %s, folded = %s (%d)%n",
+            k, heapTime, balancedTime, foldedTime, sum);
+      }
+    }
+  }
+
   // public static <T> Iterator<T> filteredIterator(Iterator<T> itor, Predicate<T> predicate)
 
   // public static final class FilteredIterator<T> implements Iterator<T>
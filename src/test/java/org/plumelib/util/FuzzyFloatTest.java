@@ -11,6 +11,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Random;
 import org.checkerframework.checker.signedness.qual.Signed;
 import org.checkerframework.common.value.qual.ArrayLen;
 import org.junit.jupiter.api.Test;
@@ -204,6 +205,118 @@ final class FuzzyFloatTest {
     }
   }
 
+  /** Test indexOf(), isSubset(), and isElemMatch() against element-by-element uses of eq(). */
+  @Test
+  void test_bulkAgainstEq() {
+    double[] specials = {
+      0.0, -0.0, Double.MIN_VALUE, 1e-9, -1e-9, 0.005, -0.005, Double.NaN, Double.POSITIVE_INFINITY
+    };
+    Random random = new Random(0);
+    for (FuzzyFloat fuzzy : new FuzzyFloat[] {ff, new FuzzyFloat(0), new FuzzyFloat(0.1)}) {
+      for (int iter = 0; iter < 2000; iter++) {
+        double[] a = new double[random.nextInt(8)];
+        double[] b = new double[random.nextInt(8)];
+        for (double[] arr : new double[][] {a, b}) {
+          for (int i = 0; i < arr.length; i++) {
+            arr[i] =
+                random.nextBoolean()
+                    ? specials[random.nextInt(specials.length)]
+                    : (random.nextInt(5) - 2) * (1 + random.nextInt(3) * 0.00004);
+          }
+        }
+        for (double elt : b) {
+          int expected = -1;
+          for (int i = 0; i < a.length; i++) {
+            if (fuzzy.eq(elt, a[i])) {
+              expected = i;
+              break;
+            }
+          }
+          assertEquals(expected, fuzzy.indexOf(a, elt));
+        }
+        String message = Arrays.toString(a) + " " + Arrays.toString(b);
+        assertEquals(isSubsetByEq(fuzzy, a, b), fuzzy.isSubset(a, b), message);
+        assertEquals(
+            isSubsetByEq(fuzzy, a, b) && isSubsetByEq(fuzzy, b, a),
+            fuzzy.isElemMatch(a, b),
+            message);
+      }
+    }
+  }
+
+  /**
+   * Returns true if every element of smaller is eq to some element of bigger.
+   *
+   * @param fuzzy the comparison to use
+   * @param smaller the possibly-smaller subset
+   * @param bigger the possibly-larger set
+   * @return true if smaller is a subset of bigger
+   */
+  private static boolean isSubsetByEq(FuzzyFloat fuzzy, double[] smaller, double[] bigger) {
+    outer:
+    for (double val : smaller) {
+      for (double elt : bigger) {
+        if (fuzzy.eq(val, elt)) {
+          continue outer;
+        }
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /** Test SortedIndex against indexOf() and isSubset(). */
+  @Test
+  void test_SortedIndex() {
+    double[] specials = {
+      0.0,
+      -0.0,
+      Double.MIN_VALUE,
+      1e-9,
+      -1e-9,
+      0.005,
+      -0.005,
+      Double.NaN,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+      Double.MAX_VALUE
+    };
+    Random random = new Random(0);
+    FuzzyFloat[] fuzzies = {ff, new FuzzyFloat(0), new FuzzyFloat(0.1), new FuzzyFloat(1.5)};
+    for (FuzzyFloat fuzzy : fuzzies) {
+      for (int iter = 0; iter < 500; iter++) {
+        double[] values = new double[random.nextInt(30)];
+        for (int i = 0; i < values.length; i++) {
+          values[i] =
+              random.nextBoolean()
+                  ? specials[random.nextInt(specials.length)]
+                  : (random.nextInt(5) - 2) * (1 + random.nextInt(5) * 0.00004);
+        }
+        FuzzyFloat.SortedIndex index = fuzzy.new SortedIndex(values);
+        double[] queries = new double[specials.length + 10];
+        System.arraycopy(specials, 0, queries, 0, specials.length);
+        for (int i = specials.length; i < queries.length; i++) {
+          queries[i] = (random.nextInt(5) - 2) * (1 + random.nextInt(5) * 0.00004);
+        }
+        for (double query : queries) {
+          int expected = fuzzy.indexOf(values, query);
+          assertEquals(expected, index.indexOf(query), query + " in " + Arrays.toString(values));
+          assertEquals(expected != -1, index.contains(query));
+        }
+        double[] subset = Arrays.copyOf(queries, random.nextInt(4));
+        assertEquals(fuzzy.isSubset(subset, values), index.containsAll(subset));
+      }
+    }
+
+    FuzzyFloat.SortedIndex index = ff.new SortedIndex(new double[] {5, 3, 1, 3 * offhigh});
+    assertEquals(1, index.indexOf(3));
+    assertEquals(1, index.indexOf(3 * offlow));
+    assertEquals(-1, index.indexOf(3 * offhigh2 * offhigh2));
+    assertEquals(-1, index.indexOf(0));
+    assertTrue(index.containsAll(new double[] {1, 5 * offhigh}));
+    assertFalse(index.containsAll(new double[] {1, 2}));
+  }
+
   /** Test isElemMatch(). */
   @Test
   void test_isElemMatch() {
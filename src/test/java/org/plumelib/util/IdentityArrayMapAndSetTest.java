@@ -0,0 +1,246 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Tests of {@link IdentityArrayMap} and {@link IdentityArraySet}. */
+final class IdentityArrayMapAndSetTest {
+
+  IdentityArrayMapAndSetTest() {}
+
+  @SuppressWarnings("StringOperationCanBeSimplified") // distinct but equal strings
+  @Test
+  void mapUsesIdentity() {
+    String a1 = new String("a");
+    String a2 = new String("a");
+    IdentityArrayMap<String, String> m = new IdentityArrayMap<>();
+    m.put(a1, "1");
+    m.put(a2, "2");
+    m.put(null, "3");
+    assertEquals(3, m.size());
+    assertEquals("1", m.get(a1));
+    assertEquals("2", m.get(a2));
+    assertEquals("3", m.get(null));
+    assertNull(m.get("b"));
+    assertEquals(List.of(a1, a2), new ArrayList<>(m.keySet()).subList(0, 2));
+    assertSame(a2, new ArrayList<>(m.keySet()).get(1));
+
+    String v = new String("v");
+    m.put(a1, v);
+    assertTrue(m.containsValue(v));
+    assertFalse(m.containsValue(new String("v")));
+    assertFalse(m.remove(a1, new String("v")));
+    assertTrue(m.remove(a1, v));
+    assertFalse(m.containsKey(a1));
+    assertTrue(m.containsKey(a2));
+  }
+
+  @SuppressWarnings("StringOperationCanBeSimplified") // distinct but equal strings
+  @Test
+  void setUsesIdentity() {
+    String a1 = new String("a");
+    String a2 = new String("a");
+    IdentityArraySet<String> s = new IdentityArraySet<>();
+    assertTrue(s.add(a1));
+    assertTrue(s.add(a2));
+    assertFalse(s.add(a1));
+    assertEquals(2, s.size());
+    assertFalse(s.contains("b"));
+    assertTrue(s.remove(a1));
+    assertFalse(s.contains(a1));
+    assertTrue(s.contains(a2));
+  }
+
+  @SuppressWarnings("StringOperationCanBeSimplified") // distinct but equal strings
+  @Test
+  void mapEqualsAndHashCode() {
+    String k = "k";
+    String v1 = "v";
+    String v2 = new String("v");
+    IdentityArrayMap<String, String> m1 = new IdentityArrayMap<>();
+    m1.put(k, v1);
+    IdentityArrayMap<String, String> m2 = new IdentityArrayMap<>();
+    m2.put(k, v1);
+    IdentityArrayMap<String, String> m3 = new IdentityArrayMap<>();
+    m3.put(k, v2);
+    assertEquals(m1, m2);
+    assertEquals(m1.hashCode(), m2.hashCode());
+    assertNotEquals(m1, m3);
+
+    // The hash code is that of an IdentityHashMap with the same mappings.
+    Map<String, String> ihm = new IdentityHashMap<>(m1);
+    assertEquals(ihm.hashCode(), m1.hashCode());
+    for (Map.Entry<String, String> e : m1.entrySet()) {
+      assertEquals(ihm.entrySet().iterator().next().hashCode(), e.hashCode());
+    }
+  }
+
+  /**
+   * Performs random operations on two maps, one that is indexed once it has more than one
+   * mapping and one that is never indexed, and checks that they agree.
+   *
+   * @param seed the seed for the random operations
+   */
+  private static void randomMapOperations(long seed) {
+    Random random = new Random(seed);
+    Object[] keys = new Object[40];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Object();
+    }
+    IdentityArrayMap<Object, Integer> indexed = new IdentityArrayMap<>(0, 1);
+    IdentityArrayMap<Object, Integer> linear = new IdentityArrayMap<>(4, Integer.MAX_VALUE);
+    for (int op = 0; op < 2000; op++) {
+      Object key = keys[random.nextInt(keys.length)];
+      int choice = random.nextInt(10);
+      if (choice < 5) {
+        Integer value = op;
+        assertEquals(linear.put(key, value), indexed.put(key, value));
+      } else if (choice < 8) {
+        assertEquals(linear.remove(key), indexed.remove(key));
+      } else if (choice < 9) {
+        // Remove the first key through an iterator.
+        Iterator<Object> itor = indexed.keySet().iterator();
+        if (itor.hasNext()) {
+          Object first = itor.next();
+          itor.remove();
+          linear.remove(first);
+        }
+      } else if (random.nextInt(20) == 0) {
+        indexed.clear();
+        linear.clear();
+      } else {
+        indexed = indexed.clone();
+      }
+      assertEquals(new ArrayList<>(linear.keySet()), new ArrayList<>(indexed.keySet()));
+      for (Object k : keys) {
+        assertEquals(linear.containsKey(k), indexed.containsKey(k));
+        assertEquals(linear.get(k), indexed.get(k));
+      }
+    }
+  }
+
+  @Test
+  void mapIndexAgreesWithLinearSearch() {
+    for (long seed = 0; seed < 10; seed++) {
+      randomMapOperations(seed);
+    }
+  }
+
+  @Test
+  void setIndexAgreesWithLinearSearch() {
+    Random random = new Random(42);
+    Object[] elements = new Object[40];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = new Object();
+    }
+    elements[0] = null;
+    IdentityArraySet<Object> indexed = new IdentityArraySet<>(0, 1);
+    IdentityArraySet<Object> linear = new IdentityArraySet<>(4, Integer.MAX_VALUE);
+    for (int op = 0; op < 20000; op++) {
+      Object element = elements[random.nextInt(elements.length)];
+      int choice = random.nextInt(100);
+      if (choice < 55) {
+        assertEquals(linear.add(element), indexed.add(element));
+      } else if (choice < 98) {
+        assertEquals(linear.remove(element), indexed.remove(element));
+      } else if (choice < 99) {
+        indexed.clear();
+        linear.clear();
+      } else {
+        indexed = indexed.clone();
+      }
+      assertEquals(new ArrayList<>(linear), new ArrayList<>(indexed));
+      for (Object e : elements) {
+        assertEquals(linear.contains(e), indexed.contains(e));
+      }
+    }
+  }
+
+  @Test
+  void indexIsBuiltPastThreshold() {
+    IdentityArraySet<Object> s = new IdentityArraySet<>();
+    IdentityArrayMap<Object, Object> m = new IdentityArrayMap<>();
+    for (int i = 0; i < IdentityArraySet.DEFAULT_INDEX_THRESHOLD; i++) {
+      Object o = new Object();
+      s.add(o);
+      m.put(o, o);
+    }
+    assertTrue(s.repr().contains("indexed=false"), s.repr());
+    assertTrue(m.repr().contains("indexed=false"), m.repr());
+    s.add(new Object());
+    m.put(new Object(), null);
+    assertTrue(s.repr().contains("indexed=true"), s.repr());
+    assertTrue(m.repr().contains("indexed=true"), m.repr());
+    s.clear();
+    m.clear();
+    assertTrue(s.repr().contains("indexed=false"), s.repr());
+    assertTrue(m.repr().contains("indexed=false"), m.repr());
+  }
+
+  @Test
+  void illegalArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new IdentityArraySet<>(-1));
+    assertThrows(IllegalArgumentException.class, () -> new IdentityArraySet<>(4, -1));
+    assertThrows(IllegalArgumentException.class, () -> new IdentityArrayMap<>(-1));
+    assertThrows(IllegalArgumentException.class, () -> new IdentityArrayMap<>(4, -1));
+  }
+
+  // Time per contains() call that finds an element in an IdentityArraySet, on a single processor.
+  //   size           4     8    12    16    24    32    64  1000
+  //   linear (ns)  4.2   4.9   5.9   6.5   8.4  11.0  20.9   236
+  //   indexed (ns) 4.7   4.8   4.3   5.3   4.4   4.4   4.1   4.2
+  // The default index threshold, 8, is near the crossover.
+  // @Test
+  void containsTime() {
+    for (int n : new int[] {4, 8, 12, 16, 24, 32, 64, 1000}) {
+      Object[] objs = new Object[n];
+      for (int i = 0; i < n; i++) {
+        objs[i] = new Object();
+      }
+      IdentityArraySet<Object> linear = new IdentityArraySet<>(4, Integer.MAX_VALUE);
+      IdentityArraySet<Object> indexed = new IdentityArraySet<>(4, 0);
+      for (Object o : objs) {
+        linear.add(o);
+        indexed.add(o);
+      }
+      int reps = 20_000_000 / n;
+      int found = 0;
+      for (int rep = 0; rep < 7; rep++) {
+        long start = System.nanoTime();
+        for (int k = 0; k < reps; k++) {
+          for (Object o : objs) {
+            if (linear.contains(o)) {
+              found++;
+            }
+          }
+        }
+        long linearTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int k = 0; k < reps; k++) {
+          for (Object o : objs) {
+            if (indexed.contains(o)) {
+              found++;
+            }
+          }
+        }
+        long indexedTime = System.nanoTime() - start;
+        System.out.printf(
+            "containsTime: size = %d, linear = %s, indexed = %s%n", n, linearTime, indexedTime);
+      }
+      assertEquals(14L * reps * n, found);
+    }
+  }
+}
@@ -1,9 +1,63 @@
 package org.plumelib.util;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.jupiter.api.Test;
+
 /** Test the LimitedSizeLongSet class. */
 final class LimitedSizeLongSetTest {
 
   LimitedSizeLongSetTest() {}
 
-  // TODO
+  /**
+   * Serializes and deserializes the given set.
+   *
+   * @param s the set to serialize
+   * @return a deserialized copy of the set
+   * @throws IOException if serialization fails
+   * @throws ClassNotFoundException if deserialization fails
+   */
+  private static LimitedSizeLongSet serializeAndDeserialize(LimitedSizeLongSet s)
+      throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(s);
+    }
+    try (ObjectInputStream ois =
+        new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      return (LimitedSizeLongSet) ois.readObject();
+    }
+  }
+
+  @Test
+  void testSerialization() throws IOException, ClassNotFoundException {
+    LimitedSizeLongSet s = new LimitedSizeLongSet(1000);
+    s.add(3L);
+    s.add(-7L);
+    LimitedSizeLongSet copy = serializeAndDeserialize(s);
+    assertEquals(2, copy.size());
+    assertEquals(s.maxSize(), copy.maxSize());
+    assertTrue(copy.contains(3L));
+    assertTrue(copy.contains(-7L));
+    assertFalse(copy.contains(0L));
+    // The copy has the original's capacity.
+    for (long i = 100; i < 1098; i++) {
+      copy.add(i);
+    }
+    assertFalse(copy.repNulled());
+    copy.add(-1L);
+    assertTrue(copy.repNulled());
+
+    LimitedSizeLongSet nulled = serializeAndDeserialize(copy);
+    assertTrue(nulled.repNulled());
+    assertEquals(copy.size(), nulled.size());
+    assertEquals(copy.maxSize(), nulled.maxSize());
+  }
 }
@@ -0,0 +1,179 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+/** Test the MostlySingletonSet and IdentityMostlySingletonSet classes. */
+final class MostlySingletonSetTest {
+
+  MostlySingletonSetTest() {}
+
+  /**
+   * Returns the elements of the given set, in iteration order. ({@code new ArrayList<>(s)} does not
+   * work, because the sets do not support {@code toArray}.)
+   *
+   * @param <T> the type of elements
+   * @param s a set
+   * @return the elements of {@code s}
+   */
+  private static <T> List<T> toList(Set<T> s) {
+    List<T> result = new ArrayList<>();
+    for (T elt : s) {
+      result.add(elt);
+    }
+    return result;
+  }
+
+  @Test
+  void growsThroughAllStates() {
+    MostlySingletonSet<Integer> s = new MostlySingletonSet<>();
+    List<Integer> expected = new ArrayList<>();
+    assertEquals(AbstractMostlySingletonSet.State.EMPTY, s.state);
+    for (int i = 0; i < 2 * AbstractMostlySingletonSet.SMALL_CAPACITY; i++) {
+      assertTrue(s.add(i));
+      assertFalse(s.add(i));
+      expected.add(i);
+      s.checkRep();
+      assertEquals(expected.size(), s.size());
+      assertEquals(expected, toList(s));
+      assertEquals(expected.toString(), s.toString());
+      for (int j = -1; j <= i + 1; j++) {
+        assertEquals(j >= 0 && j <= i, s.contains(j));
+      }
+      AbstractMostlySingletonSet.State state =
+          (i == 0)
+              ? AbstractMostlySingletonSet.State.SINGLETON
+              : (i < AbstractMostlySingletonSet.SMALL_CAPACITY)
+                  ? AbstractMostlySingletonSet.State.SMALL
+                  : AbstractMostlySingletonSet.State.ANY;
+      assertEquals(state, s.state);
+    }
+  }
+
+  @SuppressWarnings("StringOperationCanBeSimplified") // distinct but equal strings
+  @Test
+  void equalityAndIdentity() {
+    String a1 = new String("a");
+    String a2 = new String("a");
+    for (int extra = 0; extra < 2 * AbstractMostlySingletonSet.SMALL_CAPACITY; extra += 3) {
+      MostlySingletonSet<String> equal = new MostlySingletonSet<>();
+      IdentityMostlySingletonSet<String> identical = new IdentityMostlySingletonSet<>();
+      for (int i = 0; i < extra; i++) {
+        equal.add("x" + i);
+        identical.add("x" + i);
+      }
+      assertTrue(equal.add(a1));
+      assertFalse(equal.add(a2));
+      assertTrue(equal.contains(a2));
+      assertTrue(identical.add(a1));
+      assertTrue(identical.add(a2));
+      assertFalse(identical.add(a1));
+      assertFalse(identical.contains(new String("a")));
+      assertEquals(extra + 1, equal.size());
+      assertEquals(extra + 2, identical.size());
+      equal.checkRep();
+      identical.checkRep();
+    }
+  }
+
+  @Test
+  void iteratorRemove() {
+    MostlySingletonSet<Integer> s = new MostlySingletonSet<>();
+    for (int i = 0; i < 5; i++) {
+      s.add(i);
+    }
+    Iterator<Integer> itor = s.iterator();
+    assertThrows(IllegalStateException.class, itor::remove);
+    while (itor.hasNext()) {
+      if (itor.next() % 2 == 0) {
+        itor.remove();
+      }
+    }
+    s.checkRep();
+    assertEquals(List.of(1, 3), toList(s));
+    assertFalse(s.contains(2));
+    assertTrue(s.add(2));
+    assertEquals(List.of(1, 3, 2), toList(s));
+
+    // An iterator over a small set fails once the set switches to a hash set.
+    for (int i = 10; i < 15; i++) {
+      s.add(i);
+    }
+    Iterator<Integer> stale = s.iterator();
+    for (int i = 20; i < 30; i++) {
+      s.add(i);
+    }
+    assertThrows(ConcurrentModificationException.class, stale::next);
+  }
+
+  /**
+   * Returns the average number of bytes of heap used by a set with the given number of elements.
+   *
+   * @param factory creates an empty set
+   * @param size the number of elements in each set
+   * @return the average number of bytes used by a set with {@code size} elements
+   */
+  private static long bytesPerSet(Supplier<Set<Object>> factory, int size) {
+    int count = 100_000;
+    Object[] sets = new Object[count];
+    long before = usedMemory();
+    for (int i = 0; i < count; i++) {
+      Set<Object> set = factory.get();
+      for (int j = 0; j < size; j++) {
+        set.add(j);
+      }
+      sets[i] = set;
+    }
+    long after = usedMemory();
+    assertEquals(size, ((Set<?>) sets[count - 1]).size());
+    return (after - before) / count;
+  }
+
+  /**
+   * Returns the number of bytes of heap in use, after garbage collection.
+   *
+   * @return the number of bytes of heap in use
+   */
+  private static long usedMemory() {
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  // Bytes of heap per set, not counting the elements, with compressed object pointers.
+  //   size                               1    2    3    4    6    8    9   16
+  //   MostlySingletonSet                27   64   64   64   80   80  544  888
+  //   LinkedHashSet                    192  232  272  312  392  472  512  856
+  //   IdentityMostlySingletonSet        32   64   64   64   80   80  256  384
+  //   newSetFromMap(IdentityHashMap)   160  160  160  160  224  224  224  352
+  // Before the SMALL state, a MostlySingletonSet with 2 or more elements used about as much as a
+  // LinkedHashSet plus 32 bytes.
+  // @Test
+  void memoryFootprint() {
+    for (int size : new int[] {1, 2, 3, 4, 6, 8, 9, 16}) {
+      System.out.printf(
+          "memoryFootprint: size = %d, MostlySingletonSet = %d, LinkedHashSet = %d,"
+              + " IdentityMostlySingletonSet = %d, IdentityHashMap set = %d%n",
+          size,
+          bytesPerSet(MostlySingletonSet::new, size),
+          bytesPerSet(LinkedHashSet::new, size),
+          bytesPerSet(IdentityMostlySingletonSet::new, size),
+          bytesPerSet(() -> Collections.newSetFromMap(new IdentityHashMap<>(4)), size));
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+
+/** Test the OrderedGroupIterator class. */
+final class OrderedGroupIteratorTest {
+
+  OrderedGroupIteratorTest() {}
+
+  /**
+   * Returns all the groups produced by an OrderedGroupIterator.
+   *
+   * @param <T> the type of elements
+   * @param itor an OrderedGroupIterator
+   * @return all the groups that {@code itor} produces
+   */
+  private static <T> List<List<@Nullable T>> groups(OrderedGroupIterator<T> itor) {
+    List<List<@Nullable T>> result = new ArrayList<>();
+    while (itor.hasNext()) {
+      result.add(itor.next());
+    }
+    assertThrows(NoSuchElementException.class, itor::next);
+    return result;
+  }
+
+  @Test
+  void testDocumentationExample() {
+    OrderedGroupIterator<Integer> itor =
+        new OrderedGroupIterator<>(
+            List.of(
+                List.of(1, 2, 3, 5).iterator(),
+                List.of(1, 3, 5, 7).iterator(),
+                List.of(2, 3).iterator()));
+    assertEquals(
+        List.of(
+            Arrays.asList(1, 1, null),
+            Arrays.asList(2, null, 2),
+            Arrays.asList(3, 3, 3),
+            Arrays.asList(5, 5, null),
+            Arrays.asList(null, 7, null)),
+        groups(itor));
+  }
+
+  @Test
+  void testNoInputs() {
+    assertFalse(new OrderedGroupIterator<Integer>(List.of()).hasNext());
+    assertFalse(
+        new OrderedGroupIterator<Integer>(List.of(Collections.emptyIterator())).hasNext());
+  }
+
+  @Test
+  void testDuplicatesWithinAnInput() {
+    // Each group takes at most one element from each input.
+    OrderedGroupIterator<String> itor =
+        new OrderedGroupIterator<>(
+            List.of(List.of("a", "a", "b").iterator(), List.of("a").iterator()));
+    assertEquals(
+        List.of(Arrays.asList("a", "a"), Arrays.asList("a", null), Arrays.asList("b", null)),
+        groups(itor));
+  }
+
+  @Test
+  void testComparator() {
+    Comparator<String> byLength = Comparator.comparing(String::length);
+    OrderedGroupIterator<String> itor =
+        new OrderedGroupIterator<>(
+            List.of(List.of("x", "xyz").iterator(), List.of("ab", "abc").iterator()), byLength);
+    assertEquals(
+        List.of(
+            Arrays.asList("x", null), Arrays.asList(null, "ab"), Arrays.asList("xyz", "abc")),
+        groups(itor));
+  }
+
+  /** With two inputs, OrderedGroupIterator produces the same result as OrderedPairIterator. */
+  @Test
+  void testAgreesWithOrderedPairIterator() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      List<Integer> list1 = randomSortedList(random);
+      List<Integer> list2 = randomSortedList(random);
+      List<List<@Nullable Integer>> expected = new ArrayList<>();
+      Iterator<IPair<@Nullable Integer, @Nullable Integer>> pairs =
+          new OrderedPairIterator<>(list1.iterator(), list2.iterator());
+      while (pairs.hasNext()) {
+        IPair<@Nullable Integer, @Nullable Integer> pair = pairs.next();
+        expected.add(Arrays.asList(pair.first, pair.second));
+      }
+      assertEquals(
+          expected,
+          groups(new OrderedGroupIterator<>(List.of(list1.iterator(), list2.iterator()))));
+    }
+  }
+
+  /**
+   * Returns a sorted list of random small integers.
+   *
+   * @param random the source of randomness
+   * @return a sorted list of random small integers
+   */
+  private static List<Integer> randomSortedList(Random random) {
+    List<Integer> result = new ArrayList<>();
+    int length = random.nextInt(20);
+    for (int i = 0; i < length; i++) {
+      result.add(random.nextInt(15));
+    }
+    Collections.sort(result);
+    return result;
+  }
+}
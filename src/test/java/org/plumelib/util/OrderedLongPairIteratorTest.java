@@ -0,0 +1,111 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+import org.plumelib.util.OrderedPairIterator.JoinType;
+
+/** Test the OrderedLongPairIterator class. */
+final class OrderedLongPairIteratorTest {
+
+  OrderedLongPairIteratorTest() {}
+
+  /**
+   * Returns all the pairs reported by an OrderedLongPairIterator, as lists of length 2 that contain
+   * null for a missing element.
+   *
+   * @param itor an OrderedLongPairIterator
+   * @return all the pairs that {@code itor} reports
+   */
+  private static List<List<@Nullable Long>> pairs(OrderedLongPairIterator itor) {
+    List<List<@Nullable Long>> result = new ArrayList<>();
+    while (itor.advance()) {
+      result.add(
+          Arrays.asList(
+              itor.hasFirst() ? itor.first() : null, itor.hasSecond() ? itor.second() : null));
+    }
+    assertFalse(itor.advance());
+    assertThrows(NoSuchElementException.class, itor::first);
+    assertThrows(NoSuchElementException.class, itor::second);
+    return result;
+  }
+
+  @Test
+  void testJoinTypes() {
+    long[] a1 = {Long.MIN_VALUE, 1, 1L << 40, Long.MAX_VALUE};
+    long[] a2 = {1, 2, 1L << 40, Long.MAX_VALUE};
+    assertEquals(
+        List.of(
+            List.of(1L, 1L),
+            List.of(1L << 40, 1L << 40),
+            List.of(Long.MAX_VALUE, Long.MAX_VALUE)),
+        pairs(new OrderedLongPairIterator(a1, a2, JoinType.INNER)));
+    assertEquals(
+        List.of(
+            Arrays.asList(Long.MIN_VALUE, null),
+            List.of(1L, 1L),
+            List.of(1L << 40, 1L << 40),
+            List.of(Long.MAX_VALUE, Long.MAX_VALUE)),
+        pairs(new OrderedLongPairIterator(a1, a2, JoinType.LEFT_OUTER)));
+    assertEquals(
+        List.of(
+            List.of(1L, 1L),
+            Arrays.asList(null, 2L),
+            List.of(1L << 40, 1L << 40),
+            List.of(Long.MAX_VALUE, Long.MAX_VALUE)),
+        pairs(new OrderedLongPairIterator(a1, a2, JoinType.RIGHT_OUTER)));
+  }
+
+  @Test
+  void testStopsEarly() {
+    // A left outer join stops reading the second input once the first is exhausted.
+    PrimitiveIterator.OfLong itor2 = Arrays.stream(new long[] {1, 2, 3, 4, 5}).iterator();
+    OrderedLongPairIterator itor =
+        new OrderedLongPairIterator(
+            Arrays.stream(new long[] {0, 2}).iterator(), itor2, JoinType.LEFT_OUTER);
+    assertEquals(List.of(Arrays.asList(0L, null), List.of(2L, 2L)), pairs(itor));
+    assertEquals(4L, itor2.nextLong());
+  }
+
+  @Test
+  void testAgreesWithOrderedPairIterator() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      long[] a1 = randomSortedArray(random);
+      long[] a2 = randomSortedArray(random);
+      List<List<@Nullable Long>> expected = new ArrayList<>();
+      OrderedPairIterator<Long> boxed =
+          new OrderedPairIterator<>(
+              Arrays.stream(a1).boxed().iterator(), Arrays.stream(a2).boxed().iterator());
+      while (boxed.hasNext()) {
+        IPair<@Nullable Long, @Nullable Long> pair = boxed.next();
+        expected.add(Arrays.asList(pair.first, pair.second));
+      }
+      assertEquals(expected, pairs(new OrderedLongPairIterator(a1, a2, JoinType.FULL_OUTER)));
+    }
+  }
+
+  /**
+   * Returns a sorted array of random longs, drawn from a small set so that many are equal.
+   *
+   * @param random the source of randomness
+   * @return a sorted array of random longs
+   */
+  private static long[] randomSortedArray(Random random) {
+    long[] result = new long[random.nextInt(20)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = random.nextInt(15) * (1L << 35);
+    }
+    Arrays.sort(result);
+    return result;
+  }
+}
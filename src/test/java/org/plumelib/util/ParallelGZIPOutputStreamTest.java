@@ -0,0 +1,200 @@
+package org.plumelib.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+
+final class ParallelGZIPOutputStreamTest {
+
+  ParallelGZIPOutputStreamTest() {}
+
+  /**
+   * Returns compressible pseudo-random data.
+   *
+   * @param size the number of bytes
+   * @param seed the random seed
+   * @return compressible pseudo-random data
+   */
+  static byte[] sampleData(int size, long seed) {
+    Random random = new Random(seed);
+    byte[] result = new byte[size];
+    String[] words = {"alpha ", "beta ", "gamma ", "delta ", "epsilon\n", "zeta "};
+    int i = 0;
+    while (i < size) {
+      if (random.nextInt(10) == 0) {
+        result[i++] = (byte) random.nextInt(256);
+      } else {
+        byte[] word = words[random.nextInt(words.length)].getBytes(UTF_8);
+        int n = Math.min(word.length, size - i);
+        System.arraycopy(word, 0, result, i, n);
+        i += n;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the decompression of gzip data.
+   *
+   * @param compressed gzip data
+   * @return the decompressed data
+   * @throws IOException if the data is not valid gzip data
+   */
+  static byte[] gunzip(byte[] compressed) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return in.readAllBytes();
+    }
+  }
+
+  @Test
+  void testRoundTrip() throws IOException {
+    int blockSize = 1000;
+    for (int size : new int[] {0, 1, 999, 1000, 1001, 2000, 50_000}) {
+      byte[] data = sampleData(size, size);
+      for (int threads : new int[] {1, 3}) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGZIPOutputStream(baos, threads, blockSize)) {
+          out.write(data);
+        }
+        assertArrayEquals(data, gunzip(baos.toByteArray()));
+      }
+    }
+  }
+
+  @Test
+  void testWritesAndFlushes() throws IOException {
+    byte[] data = sampleData(10_000, 0);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (OutputStream out = new ParallelGZIPOutputStream(baos, 2, 512, 9)) {
+      int i = 0;
+      while (i < data.length) {
+        if (i % 7 == 0) {
+          out.write(data[i]);
+          i++;
+        } else {
+          int n = Math.min(i % 1500, data.length - i);
+          out.write(data, i, n);
+          i += n;
+        }
+        if (i % 5 == 0) {
+          out.flush();
+        }
+      }
+      out.flush();
+      out.flush();
+    }
+    assertArrayEquals(data, gunzip(baos.toByteArray()));
+
+    // Concatenated members, as produced by appending to a file.
+    ByteArrayOutputStream both = new ByteArrayOutputStream();
+    try (OutputStream out = new ParallelGZIPOutputStream(both, 2, 512)) {
+      out.write(data, 0, 3000);
+    }
+    try (OutputStream out = new GZIPOutputStream(both)) {
+      out.write(data, 3000, data.length - 3000);
+    }
+    assertArrayEquals(data, gunzip(both.toByteArray()));
+  }
+
+  @Test
+  void testErrors() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    assertThrows(
+        IllegalArgumentException.class, () -> new ParallelGZIPOutputStream(baos, 0, 100));
+    assertThrows(IllegalArgumentException.class, () -> new ParallelGZIPOutputStream(baos, 1, 0));
+    OutputStream out = new ParallelGZIPOutputStream(baos, 1, 100);
+    out.close();
+    out.close();
+    assertThrows(IOException.class, () -> out.write(1));
+
+    OutputStream broken =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("broken");
+          }
+        };
+    assertThrows(IOException.class, () -> new ParallelGZIPOutputStream(broken, 1, 100));
+  }
+
+  // Throughput of GZIPOutputStream and GZIPInputStream against ParallelGZIPOutputStream and a
+  // ReadAheadInputStream that wraps a GZIPInputStream, on 256 MiB of sample data held in memory.
+  // To run, enable the annotation.  On a single processor, where no speedup is possible, the
+  // parallel writer ran at 95% of the speed of GZIPOutputStream and its output was 0.2% larger;
+  // read-ahead decompression ran at 85-95% of the speed of GZIPInputStream.
+  // @Test
+  void testThroughput() throws IOException {
+    byte[] data = sampleData(256 << 20, 0);
+    int threads = Runtime.getRuntime().availableProcessors();
+    for (int rep = 0; rep < 3; rep++) {
+      ByteArrayOutputStream serial = new ByteArrayOutputStream(data.length / 2);
+      long start = System.nanoTime();
+      try (OutputStream out = new GZIPOutputStream(serial, 1 << 16)) {
+        out.write(data);
+      }
+      long serialTime = System.nanoTime() - start;
+
+      ByteArrayOutputStream parallel = new ByteArrayOutputStream(data.length / 2);
+      start = System.nanoTime();
+      try (OutputStream out = new ParallelGZIPOutputStream(parallel)) {
+        out.write(data);
+      }
+      long parallelTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      try (InputStream in =
+          new GZIPInputStream(new ByteArrayInputStream(parallel.toByteArray()), 1 << 16)) {
+        consume(in);
+      }
+      long readTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      try (InputStream in =
+          new ReadAheadInputStream(
+              new GZIPInputStream(new ByteArrayInputStream(parallel.toByteArray()), 1 << 16))) {
+        consume(in);
+      }
+      long readAheadTime = System.nanoTime() - start;
+
+      System.out.printf("testThroughput: %s bytes, %s threads%n", data.length, threads);
+      System.out.printf(
+          "  compress: serial %s MB/s, %s bytes; parallel %s MB/s, %s bytes%n",
+          data.length * 1000L / serialTime,
+          serial.size(),
+          data.length * 1000L / parallelTime,
+          parallel.size());
+      System.out.printf(
+          "  decompress: serial %s MB/s; read-ahead %s MB/s%n",
+          data.length * 1000L / readTime, data.length * 1000L / readAheadTime);
+    }
+  }
+
+  /**
+   * Reads the stream to its end, doing a little work on each byte as a client would.
+   *
+   * @param in the stream to read
+   * @throws IOException if there is trouble reading
+   */
+  private static void consume(InputStream in) throws IOException {
+    byte[] buffer = new byte[8192];
+    long sum = 0;
+    int n;
+    while ((n = in.read(buffer)) != -1) { // NOPMD
+      for (int i = 0; i < n; i++) {
+        sum += buffer[i];
+      }
+    }
+    if (sum == 42) {
+      System.out.println("unlikely");
+    }
+  }
+}
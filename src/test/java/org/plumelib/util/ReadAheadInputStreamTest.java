@@ -0,0 +1,85 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.jupiter.api.Test;
+
+final class ReadAheadInputStreamTest {
+
+  ReadAheadInputStreamTest() {}
+
+  @Test
+  void testRead() throws IOException {
+    for (int size : new int[] {0, 1, 99, 100, 101, 1000, 12345}) {
+      byte[] data = ParallelGZIPOutputStreamTest.sampleData(size, size);
+      try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), 100, 2)) {
+        assertArrayEquals(data, in.readAllBytes());
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(new byte[10], 0, 10));
+        assertEquals(0, in.available());
+      }
+      // Single-byte reads.
+      try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), 100, 2)) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) { // NOPMD
+          baos.write(b);
+        }
+        assertArrayEquals(data, baos.toByteArray());
+      }
+    }
+  }
+
+  @Test
+  void testError() throws IOException {
+    InputStream failing =
+        new InputStream() {
+          int count = 0;
+
+          @Override
+          public int read() throws IOException {
+            if (count == 250) {
+              throw new IOException("read fails");
+            }
+            return count++ & 0x7f;
+          }
+        };
+    try (InputStream in = new ReadAheadInputStream(failing, 100, 4)) {
+      byte[] buffer = new byte[200];
+      assertEquals(200, in.readNBytes(buffer, 0, 200));
+      IOException e = assertThrows(IOException.class, () -> in.readNBytes(buffer, 0, 100));
+      assertEquals("read fails", e.getCause().getMessage());
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  void testCloseEarly() throws IOException {
+    boolean[] closed = {false};
+    InputStream endless =
+        new InputStream() {
+          @Override
+          public int read() {
+            return 'x';
+          }
+
+          @Override
+          public void close() {
+            closed[0] = true;
+          }
+        };
+    InputStream in = new ReadAheadInputStream(endless, 10, 2);
+    assertEquals('x', in.read());
+    in.close();
+    assertTrue(closed[0]);
+    assertThrows(IOException.class, () -> in.read());
+    in.close();
+  }
+}
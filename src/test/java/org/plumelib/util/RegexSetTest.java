@@ -0,0 +1,97 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.checkerframework.checker.regex.qual.Regex;
+import org.junit.jupiter.api.Test;
+
+/** Test the RegexSet class. */
+final class RegexSetTest {
+
+  RegexSetTest() {}
+
+  /**
+   * Returns true if some regex matches the string, testing each regex separately.
+   *
+   * @param regexes the regular expressions
+   * @param s the string to test
+   * @return true if some regex matches the string
+   */
+  private static boolean matchesSomeSeparately(List<@Regex String> regexes, String s) {
+    for (String regex : regexes) {
+      if (Pattern.matches(regex, s)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Asserts that a RegexSet built from the regexes agrees with testing each regex separately.
+   *
+   * @param regexes the regular expressions
+   * @param strings the strings to test
+   */
+  private static void assertAgrees(List<@Regex String> regexes, List<String> strings) {
+    RegexSet set = new RegexSet(regexes);
+    for (String s : strings) {
+      assertEquals(
+          matchesSomeSeparately(regexes, s), set.matches(s), () -> regexes + " vs. \"" + s + "\"");
+    }
+  }
+
+  List<String> strings =
+      Arrays.asList(
+          "", "a", "aa", "ab", "abc", "abd", "ABC", "b", "bb", "foo", "foo.bar", "fooXbar",
+          "foobar", "foofoo", "x1", "xyz", "zz", "héllo");
+
+  @Test
+  void test_matches() {
+    assertAgrees(Collections.emptyList(), strings);
+    // literals only
+    assertAgrees(Arrays.asList("a", "foo", "héllo"), strings);
+    // a literal prefix
+    assertAgrees(Arrays.asList("ab.", "foo\\.bar", "foo.*"), strings);
+    // a quantified last prefix character
+    assertAgrees(Arrays.asList("abc?", "ab*", "fo{2}bar", "xyz+"), strings);
+    // alternation at top level, which must not be split by the prefix filter
+    assertAgrees(Arrays.asList("ab|b", "foo|xyz"), strings);
+    // inline flags stay local to their own regex
+    assertAgrees(Arrays.asList("(?i)abc", "b+"), strings);
+    assertAgrees(Arrays.asList("abc", "(?i)b"), strings);
+    // backreferences
+    assertAgrees(Arrays.asList("(a|b)\\1", "(foo)\\1", "x\\d"), strings);
+    // duplicate group names cannot be combined
+    assertAgrees(Arrays.asList("(?<g>a)b.", "(?<g>f)oo"), strings);
+    // no literal prefix
+    assertAgrees(Arrays.asList(".*bar", "[ab]+", "foo"), strings);
+  }
+
+  @Test
+  void test_misc() {
+    RegexSet empty = new RegexSet(Collections.emptyList());
+    assertTrue(empty.isEmpty());
+    assertFalse(empty.matches(""));
+    RegexSet set = new RegexSet(Arrays.asList("a+", "b"));
+    assertFalse(set.isEmpty());
+    assertEquals(Arrays.asList("a+", "b"), set.regexes());
+    assertEquals("RegexSet[a+, b]", set.toString());
+  }
+
+  @SuppressWarnings("regex") // deliberately malformed regular expressions
+  @Test
+  void test_malformed() {
+    // Each of these balances the parentheses of an alternation that it is combined into.
+    assertThrows(PatternSyntaxException.class, () -> new RegexSet(List.of("a)|(?:b", "c+")));
+    assertThrows(PatternSyntaxException.class, () -> new RegexSet(List.of("c+", "a)|(?:b")));
+    assertThrows(PatternSyntaxException.class, () -> new RegexSet(List.of("a)|(?:b")));
+  }
+}
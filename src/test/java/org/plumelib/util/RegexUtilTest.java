@@ -5,12 +5,17 @@ package org.plumelib.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 import org.checkerframework.checker.regex.qual.Regex;
 import org.junit.jupiter.api.Test;
 
@@ -274,4 +279,55 @@ final class RegexUtilTest {
     assertTrue(RegexUtil.noStringMatchesAnyRegex(s5, r6));
     assertFalse(RegexUtil.noStringMatchesAnyRegex(s6, r6));
   }
+
+  @Test
+  void test_RegexSet_overloads() {
+    List<List<@Regex String>> regexLists = Arrays.asList(r1, r2, r3, r4, r5, r6, r7);
+    List<List<String>> stringLists = Arrays.asList(s1, s2, s3, s4, s5, s6);
+    for (List<@Regex String> r : regexLists) {
+      RegexSet set = new RegexSet(r);
+      for (List<String> s : stringLists) {
+        assertEquals(RegexUtil.matchesSomeRegex(s, r), RegexUtil.matchesSomeRegex(s, set));
+        assertEquals(RegexUtil.matchesNoRegex(s, r), RegexUtil.matchesNoRegex(s, set));
+        assertEquals(
+            RegexUtil.everyStringMatchesSomeRegex(s, r),
+            RegexUtil.everyStringMatchesSomeRegex(s, set));
+        assertEquals(
+            RegexUtil.noStringMatchesAnyRegex(s, r), RegexUtil.noStringMatchesAnyRegex(s, set));
+      }
+    }
+  }
+
+  @Test
+  void test_compileCached() {
+    // A regex that no other test uses, so that other tests do not affect the counts.
+    long nanos = System.nanoTime();
+    String regex = "cache(d+)" + nanos;
+    long hits = RegexUtil.patternCacheHits();
+    long misses = RegexUtil.patternCacheMisses();
+    assertTrue(RegexUtil.isRegex(regex, 1));
+    assertEquals(misses + 1, RegexUtil.patternCacheMisses());
+    @Regex(1) String checked = RegexUtil.asRegex(regex, 1);
+    Pattern p = RegexUtil.compileCached(checked);
+    assertEquals(hits + 2, RegexUtil.patternCacheHits());
+    assertEquals(misses + 1, RegexUtil.patternCacheMisses());
+    assertSame(p, RegexUtil.compileCached(checked));
+    assertEquals(regex, p.pattern());
+    assertNull(RegexUtil.regexError(regex, 1));
+    assertNotNull(RegexUtil.regexError(regex, 2));
+    assertNull(RegexUtil.regexException(regex, 1));
+    assertEquals(misses + 1, RegexUtil.patternCacheMisses());
+
+    // Flags are part of the key.
+    Pattern pi = RegexUtil.compileCached(checked, Pattern.CASE_INSENSITIVE);
+    assertNotSame(p, pi);
+    assertTrue(pi.matcher("CACHEDD" + nanos).matches());
+    assertFalse(p.matcher("CACHEDD" + nanos).matches());
+
+    // Invalid regexes are still reported.
+    assertFalse(RegexUtil.isRegex("(unclosed"));
+    assertFalse(RegexUtil.isRegex("(unclosed"));
+    assertNotNull(RegexUtil.regexError("(unclosed"));
+    assertNotNull(RegexUtil.regexException("(unclosed"));
+  }
 }
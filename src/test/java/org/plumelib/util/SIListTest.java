@@ -1,15 +1,28 @@
 package org.plumelib.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 import org.checkerframework.checker.index.qual.IndexFor;
+import org.checkerframework.checker.signedness.qual.Signed;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -139,6 +152,173 @@ final class SIListTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("index:argument") // the indices are within the lists' sizes
+  void manyAdds() {
+    // Far more adds than the stack could hold as a chain.
+    int n = 1_000_000;
+    SIList<Integer> sl = SIList.empty();
+    for (int i = 0; i < n; i++) {
+      sl = sl.add(i);
+    }
+    assertEquals(n, sl.size());
+    for (int i = 0; i < n; i++) {
+      assertEquals(Integer.valueOf(i), sl.get(i));
+      SIList<Integer> containing = sl.getSublistContaining(i);
+      assertTrue(containing.size() > 0);
+    }
+    int expected = 0;
+    for (Integer elt : sl) {
+      assertEquals(Integer.valueOf(expected), elt);
+      expected++;
+    }
+    assertEquals(n, expected);
+  }
+
+  @Test
+  @SuppressWarnings("index:argument") // the indices are within the lists' sizes
+  void addsShareStructure() {
+    // Lists that extend a common list do not affect it or each other.
+    SIList<String> base = SIList.from(strings(0, 3));
+    for (int i = 3; i < 200; i++) {
+      base = base.add("str" + i);
+    }
+    SIList<String> left = base;
+    SIList<String> right = base;
+    for (int i = 200; i < 500; i++) {
+      left = left.add("left" + i);
+      right = right.add("right" + i);
+    }
+    assertEquals(200, base.size());
+    assertEquals(500, left.size());
+    assertEquals(500, right.size());
+    for (int i = 0; i < 500; i++) {
+      String expected = (i < 200) ? "str" + i : "left" + i;
+      assertEquals(expected, left.get(i));
+      expected = (i < 200) ? "str" + i : "right" + i;
+      assertEquals(expected, right.get(i));
+    }
+
+    // Adding to a concatenation.
+    SIList<String> concat =
+        SIList.concat(List.of(SIList.from(strings(0, 4)), SIList.from(strings(4, 10))));
+    for (int i = 10; i < 300; i++) {
+      concat = concat.add("str" + i);
+    }
+    assertEquals(strings(0, 300).toString().replace("[", "SIL["), concat.toString());
+
+    // A sublist of a sublist.
+    SIList<String> sub = concat.subList(10, 290).subList(5, 275).subList(1, 269);
+    assertEquals(strings(16, 284).toString().replace("[", "SIL["), sub.toString());
+  }
+
+  /**
+   * Returns lists of each SIList implementation, and of mixtures of them, paired with their
+   * expected contents.
+   *
+   * @return lists and their expected contents
+   */
+  private static List<Map.Entry<SIList<String>, List<String>>> variousLists() {
+    List<Map.Entry<SIList<String>, List<String>>> result = new ArrayList<>();
+    result.add(Map.entry(SIList.empty(), strings(0, 0)));
+    result.add(Map.entry(SIList.singleton("str0"), strings(0, 1)));
+    result.add(Map.entry(SIList.from(strings(0, 10)), strings(0, 10)));
+    result.add(Map.entry(SIList.from(strings(0, 9)).add("str9"), strings(0, 10)));
+    SIList<String> concat =
+        SIList.concat(
+            List.of(
+                SIList.from(strings(0, 4)),
+                SIList.from(strings(4, 5)).add("str5"),
+                SIList.from(strings(6, 100)).subList(0, 50)));
+    result.add(Map.entry(concat, strings(0, 56)));
+    result.add(Map.entry(concat.subList(3, 53), strings(3, 53)));
+    SIList<String> added = concat;
+    for (int i = 56; i < 3000; i++) {
+      added = added.add("str" + i);
+    }
+    result.add(Map.entry(added, strings(0, 3000)));
+    result.add(Map.entry(added.subList(1000, 2999), strings(1000, 2999)));
+    return result;
+  }
+
+  @Test
+  void iterator() {
+    for (Map.Entry<SIList<String>, List<String>> entry : variousLists()) {
+      List<String> actual = new ArrayList<>();
+      Iterator<String> itor = entry.getKey().iterator();
+      while (itor.hasNext()) {
+        assertTrue(itor.hasNext()); // hasNext() is idempotent
+        actual.add(itor.next());
+      }
+      assertThrows(NoSuchElementException.class, itor::next);
+      assertEquals(entry.getValue(), actual);
+    }
+  }
+
+  @Test
+  void spliterator() {
+    for (Map.Entry<SIList<String>, List<String>> entry : variousLists()) {
+      SIList<String> sl = entry.getKey();
+      List<String> expected = entry.getValue();
+
+      Spliterator<String> spliterator = sl.spliterator();
+      assertTrue(
+          spliterator.hasCharacteristics(
+              Spliterator.SIZED
+                  | Spliterator.SUBSIZED
+                  | Spliterator.IMMUTABLE
+                  | Spliterator.ORDERED));
+      assertEquals(expected.size(), spliterator.getExactSizeIfKnown());
+
+      // Split as far as possible, then traverse the pieces in order.
+      List<String> actual = new ArrayList<>();
+      splitAndTraverse(sl.spliterator(), actual);
+      assertEquals(expected, actual);
+
+      assertEquals(expected, sl.stream().collect(Collectors.toList()));
+      assertEquals(expected, sl.parallelStream().collect(Collectors.toList()));
+      assertEquals(expected.size(), sl.parallelStream().count());
+    }
+
+    // A split is at a boundary between the lists that the list was built from.
+    SIList<String> concat =
+        SIList.concat(List.of(SIList.from(strings(0, 10)), SIList.from(strings(10, 12))));
+    Spliterator<String> suffix = concat.spliterator();
+    Spliterator<String> prefix = suffix.trySplit();
+    assertEquals(10, prefix.estimateSize());
+    assertEquals(2, suffix.estimateSize());
+
+    // No split after traversal has begun.
+    Spliterator<String> started = concat.spliterator();
+    assertTrue(started.tryAdvance(s -> {}));
+    assertNull(started.trySplit());
+    assertEquals(11, started.estimateSize());
+  }
+
+  /**
+   * Splits the spliterator recursively until it can be split no further, then traverses the pieces
+   * in order, checking their sizes.
+   *
+   * @param spliterator the spliterator to split and traverse
+   * @param result the list to which to add the elements
+   */
+  private static void splitAndTraverse(Spliterator<String> spliterator, List<String> result) {
+    long size = spliterator.estimateSize();
+    Spliterator<String> prefix = spliterator.trySplit();
+    if (prefix == null) {
+      int before = result.size();
+      while (spliterator.tryAdvance(result::add)) {}
+      assertEquals(size, result.size() - before);
+      assertEquals(0, spliterator.estimateSize());
+      return;
+    }
+    assertTrue(prefix.estimateSize() > 0);
+    assertTrue(spliterator.estimateSize() > 0);
+    assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+    splitAndTraverse(prefix, result);
+    splitAndTraverse(spliterator, result);
+  }
+
   @Test
   void emptyLOL() {
     List<SIList<String>> lists = Collections.singletonList(SIList.from(new ArrayList<>()));
@@ -237,4 +417,79 @@ final class SIListTest {
     }
     return result;
   }
+
+  /**
+   * Serializes and deserializes the given object.
+   *
+   * @param <T> the type of the object
+   * @param o the object to serialize
+   * @return a deserialized copy of the object
+   * @throws IOException if serialization fails
+   * @throws ClassNotFoundException if deserialization fails
+   */
+  @SuppressWarnings("unchecked") // deserialization
+  private static <T extends @Signed Object> T serializeAndDeserialize(T o)
+      throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    try (ObjectInputStream ois =
+        new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      return (T) ois.readObject();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("index:argument") // the indices are within the lists' sizes
+  void serialization() throws IOException, ClassNotFoundException {
+    assertSame(SIList.empty(), serializeAndDeserialize(SIList.<String>empty()));
+
+    // Each SIList implementation round-trips.
+    List<SIList<String>> lists =
+        List.of(
+            SIList.singleton("str0"),
+            SIList.from(strings(0, 10)),
+            SIList.from(strings(0, 9)).add("str9"),
+            SIList.concat(List.of(SIList.from(strings(0, 4)), SIList.from(strings(4, 10)))),
+            SIList.from(strings(0, 12)).subList(1, 11));
+    for (SIList<String> sl : lists) {
+      SIList<String> copy = serializeAndDeserialize(sl);
+      assertEquals(sl.toString(), copy.toString());
+    }
+
+    // A long chain of added elements does not overflow the stack.
+    int n = 100000;
+    SIList<String> chain = SIList.from(strings(0, 2));
+    for (int i = 2; i < n; i++) {
+      chain = chain.add("str" + i);
+    }
+    SIList<String> chainCopy = serializeAndDeserialize(chain);
+    assertEquals(n, chainCopy.size());
+    for (int i = 0; i < n; i++) {
+      assertEquals("str" + i, chainCopy.get(i));
+    }
+
+    // A sublist serializes only its own elements, not the list it is a view of.
+    SIList<String> big = SIList.from(strings(0, 10000));
+    SIList<String> small = big.subList(5000, 5003);
+    SIList<String> smallCopy = serializeAndDeserialize(small);
+    assertEquals(small.toString(), smallCopy.toString());
+    assertTrue(serializedSize(small) < serializedSize(big) / 100);
+  }
+
+  /**
+   * Returns the number of bytes in the serialized form of the given object.
+   *
+   * @param o the object to serialize
+   * @return the number of bytes in the serialized form of {@code o}
+   * @throws IOException if serialization fails
+   */
+  private static int serializedSize(Object o) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    return baos.size();
+  }
 }
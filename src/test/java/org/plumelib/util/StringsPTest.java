@@ -1,7 +1,14 @@
 package org.plumelib.util;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,6 +17,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.regex.Pattern;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.value.qual.ArrayLen;
 import org.junit.jupiter.api.Test;
 import org.plumelib.util.StringsP.VersionNumberComparator;
@@ -155,6 +163,43 @@ final class StringsPTest {
     assertEquals(expected, result);
   }
 
+  /** Test that the line-splitting methods agree with the regular expression {@code \\R}. */
+  @Test
+  void test_splitLines_allSeparators() {
+    Pattern lineSeparator = Pattern.compile("\\R");
+    String text = "a\u000Bb\u000Cc\u0085d\u2028e\u2029f\r\r\ng\n\rh\r";
+    assertArrayEquals(lineSeparator.split(text, -1), StringsP.splitLines(text));
+    assertEquals(
+        StringsP.splitRetainSeparators(text, lineSeparator),
+        StringsP.splitLinesRetainSeparators(text));
+    assertEquals("\u000B", StringsP.firstLineSeparator(text));
+    assertArrayEquals(new String[] {""}, StringsP.splitLines(""));
+    assertArrayEquals(new String[] {"", ""}, StringsP.splitLines("\r\n"));
+  }
+
+  /** Test lineStartOffsets() and splitLinesRetainSeparatorsAsViews(). */
+  @Test
+  void test_lineStartOffsets() {
+    assertArrayEquals(new int[] {0}, StringsP.lineStartOffsets(""));
+    assertArrayEquals(new int[] {0, 3}, StringsP.lineStartOffsets("abc"));
+    assertArrayEquals(new int[] {0, 4}, StringsP.lineStartOffsets("abc\n"));
+    String text = "hello\rworld\nhello\r\nworld\n\rfoo";
+    assertArrayEquals(new int[] {0, 6, 12, 19, 25, 26, 29}, StringsP.lineStartOffsets(text));
+
+    StringBuilder many = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      many.append(i).append('\n');
+    }
+    assertEquals(101, StringsP.lineStartOffsets(many).length);
+
+    List<CharSequence> views = StringsP.splitLinesRetainSeparatorsAsViews(text);
+    List<String> viewStrings = new ArrayList<>();
+    for (CharSequence view : views) {
+      viewStrings.add(view.toString());
+    }
+    assertEquals(StringsP.splitLinesRetainSeparators(text), viewStrings);
+  }
+
   /** Test splitRetainSeparators(). */
   @Test
   void test_splitRetainSeparators() {
@@ -195,15 +240,27 @@ final class StringsPTest {
   // Quoting and escaping
   //
 
-  private void oneEscapeJava(String s, String escaped) {
+  private void oneEscapeJava(String s, String escaped) throws IOException {
     assertEquals(escaped, StringsP.escapeJava(s));
     assertEquals(s, StringsP.unescapeJava(escaped));
+    if (s.equals(escaped)) {
+      assertSame(s, StringsP.escapeJava(s));
+      assertSame(escaped, StringsP.unescapeJava(escaped));
+    }
+
+    // The Appendable variants, with a CharSequence that is not a String.
+    StringBuilder sb = new StringBuilder("prefix:");
+    StringsP.escapeJava(new StringBuilder(s), sb);
+    assertEquals("prefix:" + escaped, sb.toString());
+    StringWriter sw = new StringWriter();
+    StringsP.unescapeJava(new StringBuilder(escaped), sw);
+    assertEquals(s, sw.toString());
   }
 
   /** Test escapeJava(). */
   @SuppressWarnings({"UnicodeEscape"})
   @Test
-  void test_escapeJava() {
+  void test_escapeJava() throws IOException {
 
     // public static String escapeJava(String orig)
     // public static String escapeJava(char c)
@@ -280,8 +337,12 @@ final class StringsPTest {
         "\\000\\001\\002\\007\\n8@I\\222", StringsP.escapeNonASCII("\0\1\2\7\12\70\100\111\222"));
     assertEquals(
         "\\u0100\\u1000\\ucafe\\uffff", StringsP.escapeNonASCII("\u0100\u1000\ucafe\uffff"));
-
-    // private static String escapeNonASCII(char c)
+    assertEquals("\\010\\014", StringsP.escapeNonASCII("\b\f"));
+    String printable = "printable ASCII";
+    assertSame(printable, StringsP.escapeNonASCII(printable));
+    StringBuilder sb = new StringBuilder();
+    StringsP.escapeNonASCII(new StringBuilder("a\tb\u1234"), sb);
+    assertEquals("a\\tb\\u1234", sb.toString());
 
     // Unfortunately, there isn't yet a unescapeNonASCII function.
     // If implemented, it should have the following behavior:
@@ -416,6 +477,18 @@ final class StringsPTest {
   // Comparisons
   //
 
+  /** Test ObjectComparator.sort(). */
+  @Test
+  void test_ObjectComparator_sort() {
+    List<@Nullable Object> list =
+        new ArrayList<>(Arrays.asList("b", 10, null, 'a', 2, null, List.of(1), "b"));
+    List<@Nullable Object> expected = new ArrayList<>(list);
+    expected.sort(StringsP.ObjectComparator.it);
+    StringsP.ObjectComparator.sort(list);
+    assertEquals(expected, list);
+    assertEquals(Arrays.asList(null, null, 10, 2, List.of(1), 'a', "b", "b"), list);
+  }
+
   // //////////////////////////////////////////////////////////////////////
   // StringTokenizer
   //
@@ -473,6 +546,18 @@ final class StringsPTest {
     // All-zero components compare equal regardless of how they are written.
     assertEquals(0, vnc.compare("1.0", "1.000"));
     assertEquals(-1, vnc.compare("1.0", "1.0000000000000000000001"));
+
+    // Malformed components are reported when they are reached.
+    assertThrows(NumberFormatException.class, () -> vnc.compare("1.x", "1.2"));
+    assertThrows(NumberFormatException.class, () -> vnc.compare("1.2", "1..2"));
+    assertThrows(NumberFormatException.class, () -> vnc.compare(".1", "1"));
+    assertThrows(NumberFormatException.class, () -> vnc.compare("1.2", "1.-2"));
+    assertEquals(-1, vnc.compare("1.2.3", "1.3.x"));
+    assertEquals(-1, vnc.compare("1.2", "1.2."));
+
+    assertTrue(StringsP.isVersionNumberLE("1.9", "1.10"));
+    assertTrue(StringsP.isVersionNumberLE("1.10", "1.10"));
+    assertFalse(StringsP.isVersionNumberLE("1.10.1", "1.10"));
   }
 
   // //////////////////////////////////////////////////////////////////////
@@ -0,0 +1,180 @@
+package org.plumelib.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.Test;
+
+/** Test the UniqueIdMap class. */
+final class UniqueIdMapTest {
+
+  UniqueIdMapTest() {}
+
+  /**
+   * Returns the given number of new objects.
+   *
+   * @param count how many objects to create
+   * @return {@code count} new objects
+   */
+  private static List<Object> newObjects(int count) {
+    List<Object> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(new Object());
+    }
+    return result;
+  }
+
+  @Test
+  void testSequentialIds() {
+    for (int concurrencyLevel : new int[] {1, 2, 3, 16}) {
+      UniqueIdMap<Object> uids = new UniqueIdMap<>(concurrencyLevel);
+      List<Object> objects = newObjects(100);
+      for (int i = 0; i < objects.size(); i++) {
+        assertEquals(i, uids.get(objects.get(i)));
+      }
+      for (int i = objects.size() - 1; i >= 0; i--) {
+        assertEquals(i, uids.get(objects.get(i)));
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> new UniqueIdMap<Object>(0));
+  }
+
+  @SuppressWarnings("StringOperationCanBeSimplified") // distinct but equal strings
+  @Test
+  void testIdentity() {
+    UniqueIdMap<String> uids = new UniqueIdMap<>();
+    String a1 = new String("a");
+    String a2 = new String("a");
+    assertEquals(0, uids.get(a1));
+    assertEquals(1, uids.get(a2));
+    assertEquals(0, uids.get(a1));
+  }
+
+  @Test
+  void testGetAll() {
+    UniqueIdMap<Object> uids = new UniqueIdMap<>();
+    List<Object> objects = newObjects(5);
+    assertEquals(0, uids.get(objects.get(3)));
+    assertArrayEquals(new long[] {1, 2, 3, 0, 4}, uids.getAll(objects));
+    assertArrayEquals(
+        new long[] {4, 4, 0}, uids.getAll(List.of(objects.get(4), objects.get(4), objects.get(3))));
+    assertArrayEquals(new long[0], uids.getAll(List.of()));
+  }
+
+  /** Many threads request IDs for the same objects; each object must get exactly one ID. */
+  @Test
+  void testConcurrentGet() throws Exception {
+    int numThreads = 8;
+    List<Object> objects = newObjects(20_000);
+    UniqueIdMap<Object> uids = new UniqueIdMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<long[]>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        // Each thread visits the objects in a different order.
+        List<Object> shuffled = new ArrayList<>(objects);
+        Collections.shuffle(shuffled, new Random(t));
+        futures.add(
+            executor.submit(
+                () -> {
+                  long[] ids = new long[objects.size()];
+                  for (Object o : shuffled) {
+                    uids.get(o);
+                  }
+                  for (int i = 0; i < ids.length; i++) {
+                    ids[i] = uids.get(objects.get(i));
+                  }
+                  return ids;
+                }));
+      }
+      long[] first = futures.get(0).get();
+      for (Future<long[]> future : futures) {
+        assertArrayEquals(first, future.get());
+      }
+      long[] sorted = first.clone();
+      Arrays.sort(sorted);
+      for (int i = 0; i < sorted.length; i++) {
+        assertEquals(i, sorted[i]);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the number of milliseconds that the given number of threads take to request the IDs of
+   * the given objects, each thread requesting every ID {@code rounds} times.
+   *
+   * @param numThreads the number of threads
+   * @param objects the objects whose IDs to request; each thread requests the IDs in its own order
+   * @param rounds how many times each thread requests each ID
+   * @param get the function that returns an object's ID
+   * @return the elapsed time, in milliseconds
+   */
+  private static long timeGets(
+      int numThreads, List<Object> objects, int rounds, ToLongFunction<Object> get)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<List<Object>> orders = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        List<Object> shuffled = new ArrayList<>(objects);
+        Collections.shuffle(shuffled, new Random(t));
+        orders.add(shuffled);
+      }
+      long start = System.nanoTime();
+      List<Future<Long>> futures = new ArrayList<>();
+      for (List<Object> order : orders) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  long sum = 0;
+                  for (int r = 0; r < rounds; r++) {
+                    for (Object o : order) {
+                      sum += get.applyAsLong(o);
+                    }
+                  }
+                  return sum;
+                }));
+      }
+      for (Future<Long> future : futures) {
+        future.get();
+      }
+      return (System.nanoTime() - start) / 1_000_000;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  // Time for each of N threads to request the IDs of the same 100,000 objects 10 times.  "Global
+  // lock" is a UniqueIdMap with one stripe, which behaves like wrapping the old, unsafe
+  // implementation in a synchronized method.
+  //   threads            1     2     4     8    16    32
+  //   global lock (ms) 213   162   295   560  1244  2367
+  //   striped (ms)     150   135   289   576  1160  2053
+  // These numbers are from a single-CPU machine, so they show only that striping costs nothing; on
+  // a machine with many cores, the global lock serializes the threads and the stripes do not.
+  // @Test
+  void getTime() throws Exception {
+    List<Object> objects = newObjects(100_000);
+    for (int numThreads : new int[] {1, 2, 4, 8, 16, 32}) {
+      UniqueIdMap<Object> striped = new UniqueIdMap<>();
+      UniqueIdMap<Object> oneStripe = new UniqueIdMap<>(1);
+      long globalMillis = timeGets(numThreads, objects, 10, oneStripe::get);
+      long stripedMillis = timeGets(numThreads, objects, 10, striped::get);
+      System.out.printf(
+          "getTime: threads = %d, global lock = %d ms, striped = %d ms%n",
+          numThreads, globalMillis, stripedMillis);
+    }
+  }
+}